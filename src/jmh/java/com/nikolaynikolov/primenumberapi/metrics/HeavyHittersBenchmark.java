@@ -0,0 +1,62 @@
+package com.nikolaynikolov.primenumberapi.metrics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counting the requested numbers from several threads at once, the way every request does. With "hot" most of the
+ * numbers are a few keys which are already in the heap, so it shows whether the heavy hitters contend for its lock.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class HeavyHittersBenchmark {
+
+  private static final int NUMBER_COUNT = 1 << 16;
+  private static final int TOP_K = 20;
+
+  @Param({"hot", "uniform"})
+  private String distribution;
+
+  private HeavyHitters heavyHitters;
+  private long[] numbers;
+
+  @Setup
+  public void setUp() {
+    heavyHitters = new HeavyHitters(2048, 4, TOP_K);
+    var random = new SplittableRandom(42);
+    numbers = new long[NUMBER_COUNT];
+    for (int i = 0; i < NUMBER_COUNT; i++) {
+      // 9 of 10 numbers are one of the top k
+      boolean hot = "hot".equals(distribution) && random.nextInt(10) != 0;
+      numbers[i] = hot ? random.nextInt(TOP_K) : random.nextInt(10_000_000);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Position {
+    int next;
+  }
+
+  @Benchmark
+  public void add(Position position) {
+    heavyHitters.add(numbers[position.next++ & (NUMBER_COUNT - 1)]);
+  }
+}
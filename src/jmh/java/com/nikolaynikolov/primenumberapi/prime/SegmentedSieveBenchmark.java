@@ -0,0 +1,75 @@
+package com.nikolaynikolov.primenumberapi.prime;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The whole calculation at several prime.max sizes - the segmented sieve on one and on all cores, against checking
+ * every odd number with Miller-Rabin, which is what the numbers above prime.max cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SegmentedSieveBenchmark {
+
+  @Param({"100000", "1000000", "10000000"})
+  private int max;
+
+  @Param({"32768"})
+  private int segmentBytes;
+
+  private ForkJoinPool singleThread;
+  private ForkJoinPool allCores;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    singleThread = new ForkJoinPool(1);
+    allCores = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    singleThread.shutdownNow();
+    allCores.shutdownNow();
+  }
+
+  @Benchmark
+  public PrimeIndex sieveSingleThread() {
+    return new SegmentedSieve(max, segmentBytes).run(singleThread, segment -> {
+    });
+  }
+
+  @Benchmark
+  public PrimeIndex sieveAllCores() {
+    return new SegmentedSieve(max, segmentBytes).run(allCores, segment -> {
+    });
+  }
+
+  @Benchmark
+  public int millerRabin() {
+    int count = 1;
+    for (int number = 3; number <= max; number += 2) {
+      if (MillerRabin.isPrime(number)) {
+        count++;
+      }
+    }
+    return count;
+  }
+}
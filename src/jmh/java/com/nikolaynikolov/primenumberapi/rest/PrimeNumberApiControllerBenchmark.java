@@ -0,0 +1,124 @@
+package com.nikolaynikolov.primenumberapi.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nikolaynikolov.primenumberapi.configuration.HotKeysConfig;
+import com.nikolaynikolov.primenumberapi.configuration.PrimeCalculationConfig;
+import com.nikolaynikolov.primenumberapi.configuration.RateLimitConfig;
+import com.nikolaynikolov.primenumberapi.configuration.ResponseCacheConfig;
+import com.nikolaynikolov.primenumberapi.metrics.RequestMetrics;
+import com.nikolaynikolov.primenumberapi.prime.SegmentedSieve;
+import com.nikolaynikolov.primenumberapi.service.CacheService;
+import com.nikolaynikolov.primenumberapi.service.ClientRateLimiter;
+import com.nikolaynikolov.primenumberapi.service.PrimeNumberStore;
+import com.nikolaynikolov.primenumberapi.service.RateLimitResult;
+import com.nikolaynikolov.primenumberapi.service.RateLimitService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.redisson.api.RedissonClient;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import reactor.core.publisher.Mono;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * A request through the controller without the servlet container - validation, rate limit (always allowed), lookup and
+ * metrics - and the JSON serialization of the responses. The checked numbers fit in the {@link ResponseCache}, so after
+ * the warmup checkIfPrimeNumber measures the cached answers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrimeNumberApiControllerBenchmark {
+
+  private static final int MAX = 1_000_000;
+  private static final int NUMBER_COUNT = 1 << 12;
+  private static final RateLimitResult ALLOWED = RateLimitResult.allowed(5, 4);
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private PrimeNumberApiController controller;
+  private MockHttpServletRequest request;
+  private String[] numbers;
+  private long[] batch;
+  private PrimeNumberResponse response;
+  private BatchPrimeNumberResponse batchResponse;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    var config = new PrimeCalculationConfig();
+    config.setMax(MAX);
+    var cacheService = new CacheService(mock(RedissonClient.class), mock(PrimeNumberStore.class), config,
+        new SimpleMeterRegistry());
+    var pool = new ForkJoinPool(1);
+    cacheService.publishPrimeIndex(new SegmentedSieve(MAX, config.getSegmentSize()).run(pool, segment -> {
+    }));
+    pool.shutdownNow();
+
+    var rateLimitConfig = new RateLimitConfig();
+    rateLimitConfig.setMaxPerSecond(5);
+    controller = new PrimeNumberApiController(cacheService, new RateLimitService(new AllowingRateLimiter()),
+        rateLimitConfig, new RequestMetrics(new SimpleMeterRegistry(), new HotKeysConfig()),
+        new ResponseCache(objectMapper, config, new ResponseCacheConfig(), new SimpleMeterRegistry()));
+    request = new MockHttpServletRequest();
+    request.addHeader("X-Forwarded-For", "10.0.0.1");
+
+    var random = new SplittableRandom(42);
+    numbers = new String[NUMBER_COUNT];
+    for (int i = 0; i < NUMBER_COUNT; i++) {
+      numbers[i] = String.valueOf(random.nextLong(2, MAX));
+    }
+    batch = random.longs(1000, 2, MAX).toArray();
+    response = new PrimeNumberResponse(true, 999_983L);
+    batchResponse = new BatchPrimeNumberResponse(cacheService.checkIfPrimeNumbers(batch));
+  }
+
+  @Benchmark
+  public ResponseEntity<byte[]> checkIfPrimeNumber() {
+    return controller.checkIfPrimeNumber(numbers[next++ & (NUMBER_COUNT - 1)], request);
+  }
+
+  @Benchmark
+  public BatchPrimeNumberResponse batchCheckIfPrimeNumbers() {
+    return controller.batchCheckIfPrimeNumbers(batch, request);
+  }
+
+  @Benchmark
+  public byte[] serializeResponse() throws Exception {
+    return objectMapper.writeValueAsBytes(response);
+  }
+
+  @Benchmark
+  public byte[] serializeBatchResponse() throws Exception {
+    return objectMapper.writeValueAsBytes(batchResponse);
+  }
+
+  private static final class AllowingRateLimiter implements ClientRateLimiter {
+
+    @Override
+    public RateLimitResult tryAcquire(String key, int permits) {
+      return ALLOWED;
+    }
+
+    @Override
+    public Mono<RateLimitResult> tryAcquireAsync(String key, int permits) {
+      return Mono.just(ALLOWED);
+    }
+  }
+}
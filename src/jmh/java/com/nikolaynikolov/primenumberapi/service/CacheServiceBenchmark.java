@@ -0,0 +1,91 @@
+package com.nikolaynikolov.primenumberapi.service;
+
+import com.nikolaynikolov.primenumberapi.configuration.PrimeCalculationConfig;
+import com.nikolaynikolov.primenumberapi.prime.SegmentedSieve;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.redisson.api.RedissonClient;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * The lookups of {@link CacheService} once the prime index is published. The prime numbers are never read from redis
+ * after the start, so redis and the store are stand-ins which fail the benchmark if they are called.
+ * <p>
+ * The numbers are random, either up to prime.max (answered by the index) or above it (answered by Miller-Rabin).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheServiceBenchmark {
+
+  private static final int MAX = 10_000_000;
+  private static final int NUMBER_COUNT = 1 << 16;
+  private static final int BATCH_SIZE = 1000;
+
+  @Param({"index", "aboveMax"})
+  private String range;
+
+  private CacheService cacheService;
+  private long[] numbers;
+  private long[] batch;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    var config = new PrimeCalculationConfig();
+    config.setMax(MAX);
+    cacheService = new CacheService(mock(RedissonClient.class), mock(PrimeNumberStore.class,
+        invocation -> {
+          throw new IllegalStateException("The store was called during the benchmark");
+        }), config, new SimpleMeterRegistry());
+    var pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    cacheService.publishPrimeIndex(new SegmentedSieve(MAX, config.getSegmentSize()).run(pool, segment -> {
+    }));
+    pool.shutdownNow();
+
+    var random = new SplittableRandom(42);
+    numbers = new long[NUMBER_COUNT];
+    for (int i = 0; i < NUMBER_COUNT; i++) {
+      numbers[i] = range.equals("index") ? random.nextLong(2, MAX) : random.nextLong(MAX + 1L, Long.MAX_VALUE / 2);
+    }
+    batch = Arrays.copyOf(numbers, BATCH_SIZE);
+  }
+
+  @Benchmark
+  public boolean checkIfPrimeNumber() {
+    return cacheService.checkIfPrimeNumber(nextNumber());
+  }
+
+  @Benchmark
+  public Long getNextPrimeNumber() {
+    return cacheService.getNextPrimeNumber(nextNumber());
+  }
+
+  @Benchmark
+  public boolean[] checkIfPrimeNumbersBatch() {
+    return cacheService.checkIfPrimeNumbers(batch);
+  }
+
+  private long nextNumber() {
+    return numbers[next++ & (NUMBER_COUNT - 1)];
+  }
+}
@@ -0,0 +1,78 @@
+package com.nikolaynikolov.primenumberapi.load;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator - sends the requests at a constant arrival rate, no matter how fast the responses come back.
+ * <p>
+ * The latency of every request is measured from the time it was scheduled to be sent, not from the time it was
+ * actually sent, so a server which stalls is charged for every request which queued up behind the stall (there is no
+ * coordinated omission). Requests which are due while maxInFlight requests are still waiting for a response aren't
+ * sent and are counted as dropped.
+ */
+public class LoadGenerator {
+
+  private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+  private final HttpClient client;
+  private final RequestMix mix;
+  private final int maxInFlight;
+
+  public LoadGenerator(RequestMix mix, int maxInFlight) {
+    this.client = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+    this.mix = mix;
+    this.maxInFlight = maxInFlight;
+  }
+
+  public LoadResult run(int requestsPerSecond, Duration duration, long seed) throws InterruptedException {
+    var result = new LoadResult();
+    var random = new SplittableRandom(seed);
+    var inFlight = new Semaphore(maxInFlight);
+    long interval = TimeUnit.SECONDS.toNanos(1) / requestsPerSecond;
+    long total = duration.toSeconds() * requestsPerSecond;
+
+    long start = System.nanoTime();
+    for (long i = 0; i < total; i++) {
+      long intendedStart = start + i * interval;
+      sleepUntil(intendedStart);
+      var kind = mix.nextKind(random);
+      var request = mix.request(kind, random);
+      if (!inFlight.tryAcquire()) {
+        result.recordDropped(kind);
+        continue;
+      }
+      client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+        result.record(kind, System.nanoTime() - intendedStart);
+        if (error != null || !kind.isExpectedStatus(response.statusCode())) {
+          result.recordError(kind);
+        }
+        inFlight.release();
+      });
+    }
+    // the responses which are still on the way are part of the run
+    if (!inFlight.tryAcquire(maxInFlight, 1, TimeUnit.MINUTES)) {
+      throw new IllegalStateException("Requests still waiting for a response after a minute");
+    }
+    return result;
+  }
+
+  private static void sleepUntil(long deadline) {
+    long remaining;
+    while ((remaining = deadline - System.nanoTime()) > 0) {
+      if (remaining > SPIN_NANOS) {
+        LockSupport.parkNanos(remaining - SPIN_NANOS);
+      } else {
+        Thread.onSpinWait();
+      }
+    }
+  }
+}
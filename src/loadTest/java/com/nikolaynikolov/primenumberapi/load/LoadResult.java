@@ -0,0 +1,86 @@
+package com.nikolaynikolov.primenumberapi.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency histograms and response counts of a load test run, for every {@link RequestKind}. The latencies are recorded
+ * in microseconds, up to a minute with 3 significant digits.
+ */
+public class LoadResult {
+
+  private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+  private final Map<RequestKind, Histogram> latencies = new EnumMap<>(RequestKind.class);
+  private final Map<RequestKind, AtomicLong> errors = new EnumMap<>(RequestKind.class);
+  private final Map<RequestKind, AtomicLong> dropped = new EnumMap<>(RequestKind.class);
+  private final Histogram allLatencies = new ConcurrentHistogram(HIGHEST_LATENCY_MICROS, 3);
+
+  public LoadResult() {
+    for (RequestKind kind : RequestKind.values()) {
+      latencies.put(kind, new ConcurrentHistogram(HIGHEST_LATENCY_MICROS, 3));
+      errors.put(kind, new AtomicLong());
+      dropped.put(kind, new AtomicLong());
+    }
+  }
+
+  void record(RequestKind kind, long latencyNanos) {
+    long micros = Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_LATENCY_MICROS);
+    latencies.get(kind).recordValue(micros);
+    allLatencies.recordValue(micros);
+  }
+
+  void recordError(RequestKind kind) {
+    errors.get(kind).incrementAndGet();
+  }
+
+  void recordDropped(RequestKind kind) {
+    dropped.get(kind).incrementAndGet();
+  }
+
+  public Histogram getLatencies(RequestKind kind) {
+    return latencies.get(kind);
+  }
+
+  public Histogram getAllLatencies() {
+    return allLatencies;
+  }
+
+  public long getErrors() {
+    return errors.values().stream().mapToLong(AtomicLong::get).sum();
+  }
+
+  public long getErrors(RequestKind kind) {
+    return errors.get(kind).get();
+  }
+
+  public long getDropped() {
+    return dropped.values().stream().mapToLong(AtomicLong::get).sum();
+  }
+
+  /**
+   * @return true if every due request was sent and answered with an expected status
+   */
+  public boolean isClean() {
+    return getDropped() == 0 && getErrors() == 0;
+  }
+
+  /**
+   * @return the 99th percentile latency in milliseconds
+   */
+  public double getP99Millis(RequestKind kind) {
+    return latencies.get(kind).getValueAtPercentile(99) / 1000.0;
+  }
+
+  /**
+   * @return the 99th percentile latency of all requests in milliseconds
+   */
+  public double getP99Millis() {
+    return allLatencies.getValueAtPercentile(99) / 1000.0;
+  }
+}
@@ -0,0 +1,97 @@
+package com.nikolaynikolov.primenumberapi.load;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * The sustained rate and the p99 latency of every {@link RequestKind} which a load test run is compared to.
+ * <p>
+ * The sustained rate is the highest of the stepped rates which was served without dropped requests or errors and with
+ * the p99 latency of all requests under loadTest.p99LimitMillis. The throughput of an open-loop run always follows the
+ * offered rate as long as nothing is dropped, so only the rate the server keeps up with can show a regression. A run
+ * regresses when its sustained rate is lower or any of its p99 latencies is higher than the baseline by more than the
+ * tolerance. Values which are missing from the baseline aren't compared.
+ */
+public class LoadTestBaseline {
+
+  private static final String SUSTAINED_RATE = "sustainedRate";
+  private static final String P99_MILLIS = "p99Millis.";
+
+  private final Integer sustainedRate;
+  private final Map<RequestKind, Double> p99Millis;
+
+  public LoadTestBaseline(Integer sustainedRate, Map<RequestKind, Double> p99Millis) {
+    this.sustainedRate = sustainedRate;
+    this.p99Millis = p99Millis;
+  }
+
+  /**
+   * @param sustainedRate the highest sustained rate of the stepped runs, null if not even the first one was sustained
+   */
+  public static LoadTestBaseline of(LoadResult result, Integer sustainedRate) {
+    var p99Millis = new EnumMap<RequestKind, Double>(RequestKind.class);
+    for (RequestKind kind : RequestKind.values()) {
+      if (result.getLatencies(kind).getTotalCount() > 0) {
+        p99Millis.put(kind, result.getP99Millis(kind));
+      }
+    }
+    return new LoadTestBaseline(sustainedRate, p99Millis);
+  }
+
+  public static LoadTestBaseline load(InputStream input) throws IOException {
+    var properties = new Properties();
+    properties.load(input);
+    var p99Millis = new EnumMap<RequestKind, Double>(RequestKind.class);
+    for (RequestKind kind : RequestKind.values()) {
+      String value = properties.getProperty(P99_MILLIS + kind.getKey());
+      if (value != null) {
+        p99Millis.put(kind, Double.parseDouble(value));
+      }
+    }
+    String sustainedRate = properties.getProperty(SUSTAINED_RATE);
+    return new LoadTestBaseline(sustainedRate != null ? Integer.valueOf(sustainedRate) : null, p99Millis);
+  }
+
+  public void store(OutputStream output, String comment) throws IOException {
+    var properties = new Properties();
+    if (sustainedRate != null) {
+      properties.setProperty(SUSTAINED_RATE, String.valueOf(sustainedRate));
+    }
+    p99Millis.forEach((kind, value) -> properties.setProperty(P99_MILLIS + kind.getKey(), String.format("%.2f", value)));
+    properties.store(output, comment);
+  }
+
+  /**
+   * @return true if there is nothing to compare to - the baseline hasn't been measured yet
+   */
+  public boolean isEmpty() {
+    return sustainedRate == null && p99Millis.isEmpty();
+  }
+
+  /**
+   * @return a description of every regression of the measured run, empty if there are none
+   */
+  public List<String> findRegressions(LoadTestBaseline measured, double tolerance) {
+    var regressions = new ArrayList<String>();
+    if (sustainedRate != null) {
+      int actual = measured.sustainedRate != null ? measured.sustainedRate : 0;
+      if (actual < sustainedRate * (1 - tolerance)) {
+        regressions.add(String.format("sustained rate %d req/s is below the baseline %d req/s", actual, sustainedRate));
+      }
+    }
+    p99Millis.forEach((kind, expected) -> {
+      Double actual = measured.p99Millis.get(kind);
+      if (actual != null && actual > expected * (1 + tolerance)) {
+        regressions.add(String.format("p99 of %s %.2f ms is above the baseline %.2f ms", kind.getKey(), actual,
+            expected));
+      }
+    });
+    return regressions;
+  }
+}
@@ -0,0 +1,36 @@
+package com.nikolaynikolov.primenumberapi.load;
+
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.GenericContainer;
+
+/**
+ * Runs the application against a throwaway redis container and an in-memory H2 database, so the load test doesn't
+ * need anything installed except docker. Liquibase is disabled because the changelog is written for postgres, the
+ * users table is created by hibernate instead.
+ */
+public class LoadTestContextInitializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+  static final GenericContainer redis = new GenericContainer("redis:latest")
+      .withExposedPorts(6379);
+
+  @Override
+  public void initialize(ConfigurableApplicationContext configurableApplicationContext) {
+    redis.start();
+
+    TestPropertyValues.of(
+        "prime.max=" + System.getProperty("loadTest.primeMax", "10000000"),
+        "prime.snapshotPath=",
+        "spring.liquibase.enabled=false",
+        "spring.jpa.database=h2",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.datasource.url=jdbc:h2:mem:primeapi;DB_CLOSE_DELAY=-1;NON_KEYWORDS=USER,KEY",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "redis.host=" + redis.getContainerIpAddress(),
+        "redis.port=" + redis.getMappedPort(6379)
+    ).applyTo(configurableApplicationContext.getEnvironment());
+  }
+}
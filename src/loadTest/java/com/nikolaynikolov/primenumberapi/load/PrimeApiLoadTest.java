@@ -0,0 +1,133 @@
+package com.nikolaynikolov.primenumberapi.load;
+
+import com.nikolaynikolov.primenumberapi.service.CacheService;
+import com.nikolaynikolov.primenumberapi.PrimeIndexNotReadyException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Load test of the running application, see the Load test section of the README. The settings are read from the
+ * loadTest.* system properties, which gradle passes through from the project properties.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(initializers = {LoadTestContextInitializer.class})
+class PrimeApiLoadTest {
+
+  private static final Path REPORTS = Path.of(System.getProperty("loadTest.reportsDir", "build/reports/loadtest"));
+
+  @LocalServerPort
+  private int port;
+
+  @Autowired
+  private CacheService cacheService;
+
+  @Test
+  public void testLoad_shouldNotRegress() throws Exception {
+    int rate = Integer.getInteger("loadTest.rate", 500);
+    int maxInFlight = Integer.getInteger("loadTest.maxInFlight", 256);
+    var warmup = Duration.ofSeconds(Long.getLong("loadTest.warmupSeconds", 10));
+    var duration = Duration.ofSeconds(Long.getLong("loadTest.durationSeconds", 30));
+    double tolerance = Double.parseDouble(System.getProperty("loadTest.tolerance", "0.2"));
+    var mix = new RequestMix(URI.create("http://localhost:" + port),
+        Integer.getInteger("loadTest.primeMax", 10_000_000),
+        Integer.getInteger("loadTest.hotNumbers", 16),
+        RequestMix.parseWeights(System.getProperty("loadTest.mix", "hot:40,random:40,next:15,rateLimited:5")));
+    awaitPrimeIndex();
+
+    var generator = new LoadGenerator(mix, maxInFlight);
+    generator.run(rate, warmup, 1);
+    LoadResult result = generator.run(rate, duration, 2);
+    assertEquals("Requests dropped because the server fell behind", 0, result.getDropped());
+    assertEquals("Requests failed or got an unexpected status", 0, result.getErrors());
+
+    Integer sustainedRate = findSustainedRate(generator);
+    var measured = LoadTestBaseline.of(result, sustainedRate);
+    writeReports(result, measured);
+
+    // the reports are written first, so the values of the first run can be copied to an empty baseline
+    var baseline = loadBaseline();
+    assertFalse("No load test baseline to compare to, copy the values measured on this machine from " +
+        REPORTS.resolve("results.properties") + " to " + System.getProperty("loadTest.baseline",
+        "src/loadTest/resources/load-test-baseline.properties"), baseline.isEmpty());
+    List<String> regressions = baseline.findRegressions(measured, tolerance);
+    assertTrue("Regressed beyond " + tolerance + ": " + regressions, regressions.isEmpty());
+  }
+
+  /**
+   * Runs the stepped rates in ascending order until the server doesn't keep up with one of them.
+   *
+   * @return the highest rate served without dropped requests or errors and with the p99 latency under the limit, null
+   * if not even the first one was
+   */
+  private Integer findSustainedRate(LoadGenerator generator) throws InterruptedException {
+    var stepDuration = Duration.ofSeconds(Long.getLong("loadTest.stepSeconds", 10));
+    double p99LimitMillis = Double.parseDouble(System.getProperty("loadTest.p99LimitMillis", "50"));
+    Integer sustainedRate = null;
+    long seed = 3;
+    for (String step : System.getProperty("loadTest.stepRates", "250,500,750,1000,1500,2000,3000,4000").split(",")) {
+      int stepRate = Integer.parseInt(step.trim());
+      LoadResult result = generator.run(stepRate, stepDuration, seed++);
+      System.out.printf("Step %d req/s: p99 %.2f ms, %d dropped, %d errors%n", stepRate, result.getP99Millis(),
+          result.getDropped(), result.getErrors());
+      if (!result.isClean() || result.getP99Millis() > p99LimitMillis) {
+        break;
+      }
+      sustainedRate = stepRate;
+    }
+    return sustainedRate;
+  }
+
+  private void awaitPrimeIndex() throws InterruptedException {
+    long deadline = System.currentTimeMillis() + Duration.ofMinutes(5).toMillis();
+    while (true) {
+      try {
+        cacheService.getPrimeIndex();
+        return;
+      } catch (PrimeIndexNotReadyException e) {
+        assertTrue("The prime index wasn't ready in time", System.currentTimeMillis() < deadline);
+        Thread.sleep(100);
+      }
+    }
+  }
+
+  private static LoadTestBaseline loadBaseline() throws IOException {
+    String path = System.getProperty("loadTest.baseline");
+    try (InputStream input = path != null
+        ? new FileInputStream(path)
+        : PrimeApiLoadTest.class.getResourceAsStream("/load-test-baseline.properties")) {
+      return LoadTestBaseline.load(input);
+    }
+  }
+
+  private static void writeReports(LoadResult result, LoadTestBaseline measured) throws IOException {
+    Files.createDirectories(REPORTS);
+    // same format as the baseline, so it can be copied over it after an intended change
+    try (var output = new FileOutputStream(REPORTS.resolve("results.properties").toFile())) {
+      measured.store(output, "./gradlew loadTest");
+    }
+    try (var output = new PrintStream(REPORTS.resolve("all.hgrm").toFile())) {
+      result.getAllLatencies().outputPercentileDistribution(output, 1000.0);
+    }
+    for (RequestKind kind : RequestKind.values()) {
+      try (var output = new PrintStream(REPORTS.resolve(kind.getKey() + ".hgrm").toFile())) {
+        result.getLatencies(kind).outputPercentileDistribution(output, 1000.0);
+      }
+    }
+  }
+}
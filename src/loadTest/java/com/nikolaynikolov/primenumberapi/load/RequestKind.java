@@ -0,0 +1,38 @@
+package com.nikolaynikolov.primenumberapi.load;
+
+/**
+ * The kinds of requests the load test sends, see {@link RequestMix}.
+ */
+public enum RequestKind {
+  // one of a few numbers which receive most of the traffic
+  HOT_NUMBER("hot"),
+  // a uniformly random number up to prime.max
+  RANDOM_NUMBER("random"),
+  // the next prime number endpoint with a random number
+  NEXT_PRIME("next"),
+  // one of a few clients which send far more than rl.maxPerSecond, most of them get 429
+  RATE_LIMITED("rateLimited");
+
+  private final String key;
+
+  RequestKind(String key) {
+    this.key = key;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  public boolean isExpectedStatus(int status) {
+    return status == 200 || (this == RATE_LIMITED && status == 429);
+  }
+
+  public static RequestKind fromKey(String key) {
+    for (RequestKind kind : values()) {
+      if (kind.key.equals(key)) {
+        return kind;
+      }
+    }
+    throw new IllegalArgumentException("Unknown request kind " + key);
+  }
+}
@@ -0,0 +1,98 @@
+package com.nikolaynikolov.primenumberapi.load;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Picks the kind of every request by weight and builds it. The weights are given as "hot:40,random:40,next:15,
+ * rateLimited:5".
+ * <p>
+ * Every request except the rate limited ones comes from a random client address, so only the rate limited clients
+ * run into rl.maxPerSecond.
+ */
+public class RequestMix {
+
+  private static final int RATE_LIMITED_CLIENTS = 4;
+  private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+  private final URI baseUri;
+  private final int max;
+  private final long[] hotNumbers;
+  private final RequestKind[] kinds;
+  private final int[] cumulativeWeights;
+
+  public RequestMix(URI baseUri, int max, int hotNumberCount, Map<RequestKind, Integer> weights) {
+    this.baseUri = baseUri;
+    this.max = max;
+    var random = new SplittableRandom(hotNumberCount);
+    this.hotNumbers = random.longs(hotNumberCount, 2, max + 1L).toArray();
+    this.kinds = weights.keySet().toArray(new RequestKind[0]);
+    this.cumulativeWeights = new int[kinds.length];
+    int total = 0;
+    for (int i = 0; i < kinds.length; i++) {
+      total += weights.get(kinds[i]);
+      cumulativeWeights[i] = total;
+    }
+    if (total <= 0) {
+      throw new IllegalArgumentException("At least one request kind must have a positive weight");
+    }
+  }
+
+  public static Map<RequestKind, Integer> parseWeights(String weights) {
+    var parsed = new EnumMap<RequestKind, Integer>(RequestKind.class);
+    for (String weight : weights.split(",")) {
+      String[] parts = weight.trim().split(":");
+      parsed.put(RequestKind.fromKey(parts[0]), Integer.parseInt(parts[1]));
+    }
+    return parsed;
+  }
+
+  public RequestKind nextKind(SplittableRandom random) {
+    int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+    for (int i = 0; i < kinds.length; i++) {
+      if (value < cumulativeWeights[i]) {
+        return kinds[i];
+      }
+    }
+    throw new IllegalStateException();
+  }
+
+  public HttpRequest request(RequestKind kind, SplittableRandom random) {
+    String path;
+    String client;
+    switch (kind) {
+      case HOT_NUMBER:
+        path = "/primes/api/v1/" + hotNumbers[random.nextInt(hotNumbers.length)];
+        client = randomClient(random);
+        break;
+      case RANDOM_NUMBER:
+        path = "/primes/api/v1/" + random.nextLong(2, max + 1L);
+        client = randomClient(random);
+        break;
+      case NEXT_PRIME:
+        path = "/primes/api/v1/next/" + random.nextLong(2, max + 1L);
+        client = randomClient(random);
+        break;
+      case RATE_LIMITED:
+        path = "/primes/api/v1/" + random.nextLong(2, max + 1L);
+        client = "192.168.0." + random.nextInt(RATE_LIMITED_CLIENTS);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown request kind " + kind);
+    }
+    return HttpRequest.newBuilder(baseUri.resolve(path))
+        .header("X-Forwarded-For", client)
+        .header("Accept", "application/json")
+        .timeout(TIMEOUT)
+        .GET()
+        .build();
+  }
+
+  private static String randomClient(SplittableRandom random) {
+    return "10." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256);
+  }
+}
@@ -0,0 +1,11 @@
+package com.nikolaynikolov.primenumberapi;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class PrimeIndexNotReadyException extends RuntimeException {
+  public PrimeIndexNotReadyException() {
+    super("The prime numbers are still being calculated. Please try again later");
+  }
+}
@@ -2,180 +2,202 @@ package com.nikolaynikolov.primenumberapi;
 
 import com.google.common.base.Stopwatch;
 import com.nikolaynikolov.primenumberapi.configuration.PrimeCalculationConfig;
+import com.nikolaynikolov.primenumberapi.metrics.SegmentCacheMetrics;
+import com.nikolaynikolov.primenumberapi.prime.LazyPrimeIndex;
+import com.nikolaynikolov.primenumberapi.prime.PrimeIndex;
+import com.nikolaynikolov.primenumberapi.prime.PrimeIndexSnapshot;
+import com.nikolaynikolov.primenumberapi.prime.SegmentedSieve;
+import com.nikolaynikolov.primenumberapi.prime.SieveSegment;
+import com.nikolaynikolov.primenumberapi.prime.SmallestPrimeFactors;
 import com.nikolaynikolov.primenumberapi.service.CacheService;
+import com.nikolaynikolov.primenumberapi.service.PrimeNumberPublisher;
 import io.micrometer.core.instrument.Metrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.Duration;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 
 /**
  * The {@link PrimeNumberCalculationRunner#run(ApplicationArguments)} method is executed on application start.
- * It will then start calculating all prime numbers in the range between 2 and 10_000_000.
+ * It will then start calculating all prime numbers in the range between 2 and prime.max (10_000_000 by default).
  * <p>
- * The logic will split the number to several parts and utilize the configured {@link ThreadPoolTaskExecutor} in
- * {@link com.nikolaynikolov.primenumberapi.configuration.AsyncConfig} to calculate the prime numbers in parallel.
- * That way it's more likely for the API to respond correctly if the user asks to check a larger number.
+ * The calculation is a single {@link SegmentedSieve}. The odd numbers are split to segments of prime.segmentSize bytes
+ * (32 kb ~ the L1 cache, or 524_288 numbers by default) which are sieved in parallel on the {@link ForkJoinPool}
+ * configured in {@link com.nikolaynikolov.primenumberapi.configuration.AsyncConfig}, sized to the available cores.
+ * The calculation itself is started from the taskExecutor, so it doesn't block the start of the application.
  * <p>
  * Complexity:
- * O(N/2(√N) + N/4(√N) + N/4(√N)) = O((√N) * (N/2 + 2(N/4)) = O(N(√N)) = O(√N)
- * The work is split between the 3 threads, but still we are calling the isPrime(int) method which will loop from 2 to √N
- * for every single passed integer - this is also decisive for the complexity of the algorithm.
- * We are processing only odd integers as an optimisation, but still this does not reduce the worst level of complexity
- * which remains the same (O(N/4(√N) + N/8(√N) + N/8(√N)) is still O(√N))
- * <p>
- * There is the famous solution known as the Sieve of Eratosthenes for calculating all prime numbers from 2 to N (also provided
- * below). As an algorithm it's almost two times faster (O(Nlog(logN)) than the multi-thread solution. There are even solutions
- * of the Sieve of Eratosthenes with linear complexity O(N).
+ * O(N log(logN)) for the whole range, split between the cores. Every segment is only crossed off by the base primes up
+ * to √N and the crossing off happens in memory which is already in the cache.
  * <p>
  * Memory:
- * There are 3 auxiliary array lists (one for each thread) in the code which won't exceed 100 elements in any given moment.
- * After reaching 100 elements the array lists are flushed to cache then disposed.
- * This would mean that there are ~ 2,5 kb of memory needed to store the calculated prime numbers.
- * 3 x (100 elements * 4 bytes) = 3 x 400 bytes = 1200 bytes = 1,2 kb
+ * Only primitive arrays are used for the calculation.
+ * odd-only bitset - 10_000_000 / 2 x 1 bit ~ 625 kb, which becomes the {@link PrimeIndex} once all segments are done
+ * rank directory of the index - 4 bytes for every 512 bits of the bitset ~ 39 kb
+ * base primes - 446 primes up to √10_000_000 x 4 bytes ~ 1,8 kb
+ * smallest prime factor table - 8 of every 30 numbers x 2 bytes ~ 5,3 mb, see {@link SmallestPrimeFactors}
+ * <p>
+ * With prime.publish.enabled=true every finished segment is pushed to the cache as well through the
+ * {@link PrimeNumberPublisher}, which writes the segments in pipelined batches from its own thread, so the sieve
+ * doesn't wait for the network. Nothing in the API reads them, so this is off by default. With the default bitmap
+ * storage every segment is a single SETRANGE and the cache needs the same ~ 625 kb as the bitset to keep the prime
+ * numbers from 2 to 10_000_000, see {@link com.nikolaynikolov.primenumberapi.service.PrimeNumberStore}.
+ * <p>
+ * Requests don't wait for the whole calculation. The numbers in the finished segments are answered from the sieve
+ * itself through its {@link com.nikolaynikolov.primenumberapi.prime.SieveProgress} and the rest with Miller-Rabin, while
+ * the segments which receive lookups are sieved first.
  * <p>
- * If we choose the Sieve of Eratosthenes solution then the memory calculations will be as follows:
- * boolean[] - 10_000_000 x 1 bit ~ 1250 kb
- * auxiliary arrayList - 100 x 4 bytes = 400 bytes, or ~ 1,3 Mb in total
+ * The finished index is written to a {@link PrimeIndexSnapshot} at prime.snapshotPath. On the next start the snapshot is
+ * memory-mapped instead of sieving again, as long as prime.max and the format version didn't change. The primes are
+ * not pushed to the cache in this case - the index answers everything right away.
  * <p>
- * All of the calculated prime numbers are kept in cache. All the needed memory to keep the prime numbers from 2 to 10_000_000
- * are:
- * ~ 665k primes x 4 bytes(int) = 2_660_000 bytes ~ 2,66 Mb
+ * Once the index is published the {@link SmallestPrimeFactors} table is built on the same pool for the factorization
+ * endpoint. It's not part of the snapshot - it's 8 times bigger than the bitset and rebuilding it only takes about
+ * twice as long as the sieve. It's only built up to prime.factorTableMax, the bigger numbers are factorized with Pollard's
+ * rho.
  * <p>
+ * With prime.sieveMode=lazy nothing is sieved on start. A {@link LazyPrimeIndex} is published right away and sieves
+ * every segment on its first lookup into a cache of prime.segmentCacheBytes, which evicts the least recently used
+ * segments, so prime.max can go up to Integer.MAX_VALUE with bounded memory. The segments are only counted in the
+ * background afterwards, so counting and the n-th prime don't sieve the whole range on the first request. There is no
+ * snapshot and nothing is pushed to the cache in this mode.
  */
+@Slf4j
 @Component
 public class PrimeNumberCalculationRunner implements ApplicationRunner {
 
-  private final ThreadPoolTaskExecutor executor;
+  private final TaskExecutor executor;
+  private final ForkJoinPool sieveForkJoinPool;
   private final CacheService cacheService;
+  private final PrimeNumberPublisher primeNumberPublisher;
   private final PrimeCalculationConfig primeCalculationConfig;
 
   @Autowired
-  public PrimeNumberCalculationRunner(@Qualifier("threadPoolTaskExecutor") ThreadPoolTaskExecutor executor,
+  public PrimeNumberCalculationRunner(@Qualifier("taskExecutor") TaskExecutor executor,
+                                      @Qualifier("sieveForkJoinPool") ForkJoinPool sieveForkJoinPool,
                                       CacheService cacheService,
+                                      PrimeNumberPublisher primeNumberPublisher,
                                       PrimeCalculationConfig primeCalculationConfig) {
     this.executor = executor;
+    this.sieveForkJoinPool = sieveForkJoinPool;
     this.cacheService = cacheService;
+    this.primeNumberPublisher = primeNumberPublisher;
     this.primeCalculationConfig = primeCalculationConfig;
   }
 
   @Override
   public void run(ApplicationArguments args) {
+    executor.execute(this::calculate);
+  }
+
+  private void calculate() {
     int maxPrime = primeCalculationConfig.getMax();
+    if (primeCalculationConfig.isLazy()) {
+      startLazily(maxPrime);
+      return;
+    }
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    Optional<PrimeIndex> snapshot = loadSnapshot(maxPrime);
+    if (snapshot.isPresent()) {
+      cacheService.publishPrimeIndex(snapshot.get());
+      recordCalculation("snapshot", maxPrime, stopwatch);
+      log.info("Prime numbers loaded from snapshot: 2 to " + maxPrime);
+      buildSmallestPrimeFactors(maxPrime);
+      return;
+    }
 
-    executor.execute(new SieveOfEratosthenesRunnable(cacheService, 2, maxPrime));
+    var range = 2 + " to " + maxPrime;
+    var sieve = new SegmentedSieve(maxPrime, primeCalculationConfig.getSegmentSize());
 
-    executor.execute(new PrimeNumberCalculatorRunnable(cacheService, 2, maxPrime / 2));
-    executor.execute(new PrimeNumberCalculatorRunnable(cacheService, (maxPrime / 2 + 1), (maxPrime / 2 + 1) + (maxPrime / 4)));
-    executor.execute(new PrimeNumberCalculatorRunnable(cacheService, (maxPrime / 2 + 1) + (maxPrime / 4) + 1, maxPrime));
+    log.info("Starting prime numbers pre-calculation: " + range + " in " + sieve.getSegmentCount() + " segments");
+    // The finished segments are served right away, the rest of the numbers with Miller-Rabin until the index is ready
+    cacheService.publishSieveProgress(sieve.getProgress());
+    PrimeIndex index = sieve.run(sieveForkJoinPool, this::onSegmentComplete);
+    // The index is complete at this point and from now on all lookups are answered from it
+    cacheService.publishPrimeIndex(index);
+
+    recordCalculation("segmentedSieve", maxPrime, stopwatch);
+    log.info("Prime numbers pre-calculation finished: " + range);
+    writeSnapshot(index);
+    buildSmallestPrimeFactors(maxPrime);
   }
 
-  @Slf4j
-  private static class PrimeNumberCalculatorRunnable implements Runnable {
+  private void startLazily(int maxPrime) {
+    var index = new LazyPrimeIndex(maxPrime, primeCalculationConfig.getSegmentSize(),
+        primeCalculationConfig.getSegmentCacheBytes(), primeCalculationConfig.getSegmentCacheOffHeap());
+    SegmentCacheMetrics.monitor(Metrics.globalRegistry, index.getCache(), "segments");
+    cacheService.publishPrimeIndex(index);
+    log.info("Prime numbers are sieved on demand: 2 to " + maxPrime + " in " + index.getSegmentCount() + " segments, "
+        + index.getCache().getCapacity() + " of them cached");
+
+    // counted first, the count and n-th prime endpoints answer 503 until then while factorization has a fallback
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    int primeCount = index.getPrimeCount();
+    recordCalculation("segmentCounts", maxPrime, stopwatch);
+    log.info("Prime numbers counted: " + primeCount + " from 2 to " + maxPrime);
+    buildSmallestPrimeFactors(maxPrime);
+  }
 
-    protected final CacheService cacheService;
-    protected final int start;
-    protected final int end;
+  private void buildSmallestPrimeFactors(int maxPrime) {
+    int tableMax = Math.min(maxPrime, primeCalculationConfig.getFactorTableMax());
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    cacheService.publishSmallestPrimeFactors(SmallestPrimeFactors.build(tableMax, sieveForkJoinPool));
+    recordCalculation("smallestPrimeFactors", tableMax, stopwatch);
+    log.info("Smallest prime factors calculated: 2 to " + tableMax);
+  }
 
-    protected PrimeNumberCalculatorRunnable(CacheService cacheService, int start, int end) {
-      this.cacheService = cacheService;
-      this.start = start;
-      this.end = end;
+  private Optional<PrimeIndex> loadSnapshot(int maxPrime) {
+    Path path = getSnapshotPath();
+    if (path == null) {
+      return Optional.empty();
     }
-
-    @Override
-    public void run() {
-      Stopwatch stopwatch = Stopwatch.createStarted();
-      // Maintaining the primes array list is considered thread safe as each of the 3 threads
-      // instantiates it's own instance in heap
-      var primes = new ArrayList<Integer>();
-      var range = start + " to " + end;
-
-      log.info("Starting prime numbers pre-calculation: " + range);
-      for (int i = start; i < end; i++) {
-        if (i != 2 && i % 2 == 0) {
-          continue;
-        }
-
-        isPrime(2, i, primes);
-        if (primes.size() == 100) {
-          cacheService.setPrimeNumbers(primes);
-          primes.clear();
-        }
-      }
-      cacheService.setPrimeNumbers(primes);
-
-      Metrics.timer("primenumber.calculation",
-          "type", "multiThread",
-          "rangeStart", String.valueOf(start),
-          "rangeEnd", String.valueOf(end))
-          .record(Duration.ofNanos(stopwatch.stop().elapsed(TimeUnit.NANOSECONDS)));
-      log.info("Prime numbers pre-calculation finished: " + range);
+    try {
+      return PrimeIndexSnapshot.load(path, maxPrime);
+    } catch (IOException | RuntimeException e) {
+      log.warn("Couldn't load prime index snapshot " + path, e);
+      return Optional.empty();
     }
+  }
 
-    private void isPrime(int start, int check, List<Integer> primes) {
-      while (start * start <= check) {
-        if (check % start == 0) {
-          return;
-        }
-        start++;
-      }
-      primes.add(check);
+  private void writeSnapshot(PrimeIndex index) {
+    Path path = getSnapshotPath();
+    if (path == null) {
+      return;
+    }
+    try {
+      PrimeIndexSnapshot.write(path, index);
+      log.info("Prime index snapshot written to " + path);
+    } catch (IOException | RuntimeException e) {
+      log.warn("Couldn't write prime index snapshot " + path, e);
     }
   }
 
-  @Slf4j
-  private static class SieveOfEratosthenesRunnable extends PrimeNumberCalculatorRunnable {
+  private Path getSnapshotPath() {
+    String snapshotPath = primeCalculationConfig.getSnapshotPath();
+    return snapshotPath == null || snapshotPath.isBlank() ? null : Path.of(snapshotPath);
+  }
 
-    protected SieveOfEratosthenesRunnable(CacheService cacheService, int start, int end) {
-      super(cacheService, start, end);
-    }
+  private void recordCalculation(String type, int maxPrime, Stopwatch stopwatch) {
+    Metrics.timer("primenumber.calculation",
+        "type", type,
+        "rangeStart", "2",
+        "rangeEnd", String.valueOf(maxPrime))
+        .record(Duration.ofNanos(stopwatch.stop().elapsed(TimeUnit.NANOSECONDS)));
+  }
 
-    @Override
-    public void run() {
-      Stopwatch stopwatch = Stopwatch.createStarted();
-      var range = start + " to " + end;
-
-      log.info("Starting prime numbers pre-calculation: " + range);
-      boolean[] prime = new boolean[end + 1];
-      for (int i = 0; i < end; i++) {
-        prime[i] = true;
-      }
-
-      for (int p = 2; p * p <= end; p++) {
-        if (prime[p]) {
-          for (int i = p * p; i <= end; i += p)
-            prime[i] = false;
-        }
-      }
-
-      var primes = new ArrayList<Integer>();
-      for (int i = 2; i <= end; i++) {
-        if (prime[i]) {
-          primes.add(i);
-        }
-
-        if (primes.size() == 100) {
-          cacheService.setPrimeNumbers(primes);
-          primes.clear();
-        }
-      }
-      cacheService.setPrimeNumbers(primes);
-
-      Metrics.timer("primenumber.calculation",
-          "type", "sieveOfEratosthenes",
-          "rangeStart", String.valueOf(start),
-          "rangeEnd", String.valueOf(end))
-          .record(Duration.ofNanos(stopwatch.stop().elapsed(TimeUnit.NANOSECONDS)));
-      log.info("Prime numbers pre-calculation finished: " + range);
-    }
+  private void onSegmentComplete(SieveSegment segment) {
+    Metrics.counter("primenumber.calculation.segments").increment();
+    log.debug("Prime numbers segment " + segment.getIndex() + " finished: " + segment.getFrom() + " to " + segment.getTo());
+    primeNumberPublisher.publish(segment);
   }
 }
@@ -5,7 +5,29 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
 public class TooManyRequestsException extends RuntimeException {
+
+  private final long retryAfterMillis;
+
   public TooManyRequestsException() {
+    this(0);
+  }
+
+  /**
+   * @param retryAfterMillis how long the client should wait before it tries again, 0 if not known
+   */
+  public TooManyRequestsException(long retryAfterMillis) {
     super("You have exceeded your rate limits for the API");
+    this.retryAfterMillis = retryAfterMillis;
+  }
+
+  public long getRetryAfterMillis() {
+    return retryAfterMillis;
+  }
+
+  /**
+   * @return the wait for the Retry-After header, in whole seconds rounded up so the client doesn't come back too early
+   */
+  public long getRetryAfterSeconds() {
+    return (retryAfterMillis + 999) / 1000;
   }
 }
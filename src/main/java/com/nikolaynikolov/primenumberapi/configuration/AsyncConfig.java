@@ -1,15 +1,20 @@
 package com.nikolaynikolov.primenumberapi.configuration;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import java.util.concurrent.ForkJoinPool;
+
 @Configuration
 @EnableAsync
 public class AsyncConfig {
 
-  @Bean(name = "threadPoolTaskExecutor")
+  // replaced by VirtualThreadConfig with threads.virtual=true
+  @Bean(name = "taskExecutor")
+  @ConditionalOnProperty(prefix = "threads", name = "virtual", havingValue = "false", matchIfMissing = true)
   public ThreadPoolTaskExecutor executorService() {
     var executor = new ThreadPoolTaskExecutor();
     executor.setMaxPoolSize(5);
@@ -19,4 +24,9 @@ public class AsyncConfig {
 
     return executor;
   }
+
+  @Bean(name = "sieveForkJoinPool", destroyMethod = "shutdownNow")
+  public ForkJoinPool sieveForkJoinPool() {
+    return new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+  }
 }
@@ -0,0 +1,17 @@
+package com.nikolaynikolov.primenumberapi.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "hotkeys")
+public class HotKeysConfig {
+  // Counters in every row of the Count-Min sketches, the error of the counts is about e / width of all requests
+  private int width = 2048;
+  // Rows of the Count-Min sketches, the counts are within the error with probability 1 - e^-depth
+  private int depth = 4;
+  // Most frequent numbers and clients which are reported
+  private int topK = 20;
+}
@@ -8,5 +8,24 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 @ConfigurationProperties(prefix = "prime")
 public class PrimeCalculationConfig {
+  // Up to Integer.MAX_VALUE, the lazy sieve mode keeps the memory bounded for the bigger ones
   private Integer max;
+  // "eager" sieves the whole range on start, "lazy" sieves every segment on first access and keeps it in a segment cache
+  private String sieveMode = "eager";
+  // Bytes of the odd-only bitset sieved at once - should fit in the L1 or L2 cache
+  private Integer segmentSize = 32 * 1024;
+  // File with the finished sieve which is memory-mapped on the next start, no snapshot is used when it's empty
+  private String snapshotPath;
+  // How the copy of the primes for other redis clients is kept - "bitmap" or "set", see PrimeNumberStore
+  private String redisStorage = "bitmap";
+  // Memory for the sieved segments in the lazy mode, segments are evicted with the CLOCK algorithm above it
+  private Long segmentCacheBytes = 64L * 1024 * 1024;
+  // Keeps the segment cache in a direct buffer outside of the heap
+  private Boolean segmentCacheOffHeap = false;
+  // The smallest prime factor table takes ~ 0,53 bytes per number, the numbers above it are factorized with Pollard's rho
+  private Integer factorTableMax = 100_000_000;
+
+  public boolean isLazy() {
+    return "lazy".equals(sieveMode);
+  }
 }
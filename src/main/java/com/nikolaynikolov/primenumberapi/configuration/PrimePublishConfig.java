@@ -0,0 +1,19 @@
+package com.nikolaynikolov.primenumberapi.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "prime.publish")
+public class PrimePublishConfig {
+  // Copies the sieved prime numbers to redis for its other clients - the API never reads the copy
+  private boolean enabled = false;
+  // Finished segments waiting for redis - the sieve blocks when the queue is full
+  private int queueCapacity = 64;
+  // Segments written to redis in a single pipelined batch
+  private int batchSize = 16;
+  // Batches sent to redis before waiting for the first one to complete
+  private int maxInFlight = 4;
+}
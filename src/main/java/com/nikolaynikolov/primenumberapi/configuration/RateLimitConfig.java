@@ -11,4 +11,20 @@ public class RateLimitConfig {
 
   private int maxPerMinute;
   private int maxPerSecond;
+  // A batch request counts as one request for every batchNumbersPerPermit numbers in it
+  private int batchNumbersPerPermit = 1000;
+  // "leasing" keeps the buckets in memory and leases permits from redis, "slidingWindow" checks maxPerSecond and
+  // maxPerMinute with one lua script call per request, "redis" asks the redis rate limiter on every request
+  private String mode = "leasing";
+  // Most permits leased from redis at once, a lease never takes more than half of what is left of the limit
+  private int leaseSize = 5;
+  // Buckets of clients without requests in this time are removed
+  private long idleEvictionSeconds = 60;
+
+  /**
+   * @return the biggest batch which can still fit in the limit of a single second
+   */
+  public int getMaxBatchSize() {
+    return maxPerSecond * batchNumbersPerPermit;
+  }
 }
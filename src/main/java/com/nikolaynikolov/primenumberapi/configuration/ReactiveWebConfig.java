@@ -0,0 +1,52 @@
+package com.nikolaynikolov.primenumberapi.configuration;
+
+import com.nikolaynikolov.primenumberapi.metrics.RequestMetrics;
+import com.nikolaynikolov.primenumberapi.metrics.RequestTimingWebFilter;
+import com.nikolaynikolov.primenumberapi.rest.PrimeBinaryEncoder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+/**
+ * The reactive stack, used with spring.main.web-application-type=reactive instead of the servlet one. The endpoints
+ * run on the netty event loop and never block it, so the concurrency is limited by the CPUs and redis instead of the
+ * tomcat threads.
+ */
+@Configuration
+@EnableWebFluxSecurity
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveWebConfig implements WebFluxConfigurer {
+
+  // tomcat is on the classpath as well and would be picked first
+  @Bean
+  public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+    return new NettyReactiveWebServerFactory();
+  }
+
+  @Bean
+  public RequestTimingWebFilter requestTimingWebFilter(RequestMetrics requestMetrics) {
+    return new RequestTimingWebFilter(requestMetrics);
+  }
+
+  // same rules as SecurityConfig
+  @Bean
+  public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+    return http.csrf().disable()
+        .httpBasic().disable()
+        .authorizeExchange()
+        .anyExchange().permitAll()
+        .and()
+        .build();
+  }
+
+  @Override
+  public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+    configurer.customCodecs().register(new PrimeBinaryEncoder());
+  }
+}
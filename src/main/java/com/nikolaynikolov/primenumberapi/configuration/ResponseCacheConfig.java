@@ -0,0 +1,15 @@
+package com.nikolaynikolov.primenumberapi.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "response.cache")
+public class ResponseCacheConfig {
+  // Serialized answers kept in memory on every instance, the most requested ones are kept
+  private long maximumSize = 100_000;
+  // max-age of the answers for the clients and the CDN in front of the API
+  private long maxAgeSeconds = 31_536_000;
+}
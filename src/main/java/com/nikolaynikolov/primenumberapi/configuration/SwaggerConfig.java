@@ -1,16 +1,24 @@
 package com.nikolaynikolov.primenumberapi.configuration;
 
 
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfoHandlerMapping;
 import springfox.documentation.builders.RequestHandlerSelectors;
 import springfox.documentation.spi.DocumentationType;
 import springfox.documentation.spring.web.plugins.Docket;
+import springfox.documentation.spring.web.plugins.WebMvcRequestHandlerProvider;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
+import java.util.List;
+
 import static springfox.documentation.builders.PathSelectors.regex;
 
 @Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @EnableSwagger2
 public class SwaggerConfig {
 
@@ -22,4 +30,25 @@ public class SwaggerConfig {
         .paths(regex("/primes/api/v1/.*"))
         .build();
   }
+
+  /**
+   * Springfox reads the ant patterns of every request mapping, but the actuator endpoints are always mapped with a
+   * PathPatternParser and have none, so it only gets the mappings of the controllers.
+   */
+  @Bean
+  public static BeanPostProcessor springfoxHandlerMappingsPostProcessor() {
+    return new BeanPostProcessor() {
+      @Override
+      @SuppressWarnings("unchecked")
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof WebMvcRequestHandlerProvider) {
+          var field = ReflectionUtils.findField(WebMvcRequestHandlerProvider.class, "handlerMappings");
+          ReflectionUtils.makeAccessible(field);
+          var handlerMappings = (List<RequestMappingInfoHandlerMapping>) ReflectionUtils.getField(field, bean);
+          handlerMappings.removeIf(handlerMapping -> handlerMapping.getPatternParser() != null);
+        }
+        return bean;
+      }
+    };
+  }
 }
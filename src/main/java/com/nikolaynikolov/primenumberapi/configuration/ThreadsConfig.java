@@ -0,0 +1,17 @@
+package com.nikolaynikolov.primenumberapi.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "threads")
+public class ThreadsConfig {
+  // Runs the servlet requests and the async tasks on virtual threads
+  private boolean virtual = false;
+  // Virtual threads pinned to their carrier for longer than this are counted and logged
+  private long pinnedThresholdMillis = 20;
+  // How often a probe task measures how long a new virtual thread waits for a carrier
+  private long schedulingProbeMillis = 1000;
+}
@@ -0,0 +1,17 @@
+package com.nikolaynikolov.primenumberapi.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "user.cache")
+public class UserCacheConfig {
+  // Users kept in memory on every instance, the least used ones are evicted first
+  private long maximumSize = 10_000;
+  // A user is dropped from memory this long after it was loaded
+  private long expireAfterWriteSeconds = 600;
+  // A user requested this long after it was loaded is reloaded in the background, the cached one is returned meanwhile
+  private long refreshAfterWriteSeconds = 60;
+}
@@ -0,0 +1,43 @@
+package com.nikolaynikolov.primenumberapi.configuration;
+
+import com.nikolaynikolov.primenumberapi.metrics.VirtualThreadMetrics;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * With threads.virtual=true the tomcat requests and the async tasks run on a new virtual thread each, instead of the
+ * server.tomcat.threads.max request threads and the pool of {@link AsyncConfig}. A request which waits for redis or
+ * the database then only holds a virtual thread, so thousands of them can wait at the same time. The sieve still runs
+ * on the platform threads of the sieveForkJoinPool, it's CPU bound and would only keep the carriers busy.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "threads", name = "virtual", havingValue = "true")
+public class VirtualThreadConfig {
+
+  @Bean(destroyMethod = "shutdown")
+  public ExecutorService virtualThreadExecutor(VirtualThreadMetrics virtualThreadMetrics) {
+    var threadFactory = Thread.ofVirtual().name("primeapi-", 0).factory();
+    return Executors.newThreadPerTaskExecutor(virtualThreadMetrics.track(threadFactory));
+  }
+
+  @Bean(name = "taskExecutor")
+  public TaskExecutor virtualThreadTaskExecutor(ExecutorService virtualThreadExecutor) {
+    return new TaskExecutorAdapter(virtualThreadExecutor);
+  }
+
+  @Bean
+  @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+  public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer(
+      ExecutorService virtualThreadExecutor) {
+    return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+  }
+}
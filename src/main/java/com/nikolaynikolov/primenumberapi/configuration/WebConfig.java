@@ -0,0 +1,35 @@
+package com.nikolaynikolov.primenumberapi.configuration;
+
+import com.nikolaynikolov.primenumberapi.metrics.RequestMetrics;
+import com.nikolaynikolov.primenumberapi.metrics.RequestTimingInterceptor;
+import com.nikolaynikolov.primenumberapi.rest.PrimeBinaryHttpMessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class WebConfig implements WebMvcConfigurer {
+
+  private final RequestMetrics requestMetrics;
+
+  @Autowired
+  public WebConfig(RequestMetrics requestMetrics) {
+    this.requestMetrics = requestMetrics;
+  }
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(new RequestTimingInterceptor(requestMetrics)).addPathPatterns("/primes/**");
+  }
+
+  @Override
+  public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+    converters.add(new PrimeBinaryHttpMessageConverter());
+  }
+}
@@ -0,0 +1,80 @@
+package com.nikolaynikolov.primenumberapi.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-Min sketch - estimates how many times every key was added in a fixed amount of memory, no matter how many
+ * distinct keys there are.
+ * <p>
+ * There are depth rows of width counters. A key is counted in one counter of every row and its estimate is the
+ * smallest of them. The estimate is never lower than the real count and with N added keys it is higher by at most
+ * e * N / width with probability 1 - e^-depth. The counters are updated with atomic adds only, nothing is allocated.
+ */
+public final class CountMinSketch {
+
+  private final int depth;
+  private final int mask;
+  private final AtomicLongArray counters;
+
+  /**
+   * @param width counters in every row, rounded up to a power of two
+   * @param depth rows, each one with an independent hash
+   */
+  public CountMinSketch(int width, int depth) {
+    if (width < 1 || depth < 1) {
+      throw new IllegalArgumentException("The width and the depth must be positive");
+    }
+    int roundedWidth = width == 1 ? 1 : Integer.highestOneBit(width - 1) << 1;
+    this.depth = depth;
+    this.mask = roundedWidth - 1;
+    this.counters = new AtomicLongArray(roundedWidth * depth);
+  }
+
+  /**
+   * @return the estimate of the key after adding it
+   */
+  public long add(long key, long count) {
+    long hash = mix(key);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32) | 1;
+    long estimate = Long.MAX_VALUE;
+    for (int row = 0; row < depth; row++) {
+      int column = (h1 + row * h2) & mask;
+      estimate = Math.min(estimate, counters.addAndGet(row * (mask + 1) + column, count));
+    }
+    return estimate;
+  }
+
+  public long estimate(long key) {
+    long hash = mix(key);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32) | 1;
+    long estimate = Long.MAX_VALUE;
+    for (int row = 0; row < depth; row++) {
+      estimate = Math.min(estimate, counters.get(row * (mask + 1) + ((h1 + row * h2) & mask)));
+    }
+    return estimate;
+  }
+
+  public void clear() {
+    for (int i = 0; i < counters.length(); i++) {
+      counters.set(i, 0);
+    }
+  }
+
+  public int getWidth() {
+    return mask + 1;
+  }
+
+  public int getDepth() {
+    return depth;
+  }
+
+  // the finalizer of SplitMix64, so close keys like consecutive numbers end up in unrelated counters
+  static long mix(long key) {
+    long z = key + 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
@@ -0,0 +1,191 @@
+package com.nikolaynikolov.primenumberapi.metrics;
+
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The most frequent keys of an unbounded stream - a {@link CountMinSketch} for the counts and a min-heap of the k keys
+ * with the highest estimates.
+ * <p>
+ * Adding a key only updates the sketch, unless its estimate is higher than the smallest count in the heap and the key
+ * isn't in the heap yet. The heap is locked only then, so after the heap is filled neither the keys which aren't heavy
+ * hitters nor the heavy hitters themselves take the lock or allocate - the hottest keys are added most often and would
+ * otherwise all wait for the same lock. The counts in the heap are refreshed from the sketch instead, whenever a new key
+ * tries to get in and when the heap is read.
+ * <p>
+ * The keys are either numbers or strings, an instance should only be used with one of them. Strings are counted by
+ * their hash code, so two strings with the same hash code share their count and only the first one is listed.
+ */
+public final class HeavyHitters {
+
+  private final CountMinSketch sketch;
+  private final int k;
+  // min-heap on the counts, guarded by this
+  private final long[] ids;
+  private final Object[] keys;
+  private final long[] counts;
+  private int size;
+  // the smallest count in the heap once it's full, keys below it can't get in
+  private volatile long threshold;
+  // copy of the ids in the heap, replaced whenever a key gets in, so the adds can check it without the lock
+  private volatile long[] trackedIds = new long[0];
+
+  public HeavyHitters(int width, int depth, int k) {
+    if (k < 1) {
+      throw new IllegalArgumentException("k must be positive");
+    }
+    this.sketch = new CountMinSketch(width, depth);
+    this.k = k;
+    this.ids = new long[k];
+    this.keys = new Object[k];
+    this.counts = new long[k];
+  }
+
+  public void add(long number) {
+    long estimate = sketch.add(number, 1);
+    if (estimate > threshold && !isTracked(number)) {
+      offer(number, null, estimate);
+    }
+  }
+
+  public void add(String key) {
+    // String caches its hash code, so this doesn't allocate either
+    long id = key.hashCode();
+    long estimate = sketch.add(id, 1);
+    if (estimate > threshold && !isTracked(id)) {
+      offer(id, key, estimate);
+    }
+  }
+
+  /**
+   * @return the heavy hitters, the most frequent first
+   */
+  public synchronized List<Entry> getTop() {
+    refreshCounts();
+    updateThreshold();
+    var top = new ArrayList<Entry>(size);
+    for (int i = 0; i < size; i++) {
+      top.add(new Entry(keys[i], counts[i]));
+    }
+    top.sort(Comparator.comparingLong(Entry::getCount).reversed());
+    return top;
+  }
+
+  public synchronized void clear() {
+    sketch.clear();
+    for (int i = 0; i < size; i++) {
+      keys[i] = null;
+    }
+    size = 0;
+    threshold = 0;
+    trackedIds = new long[0];
+  }
+
+  public int getK() {
+    return k;
+  }
+
+  private boolean isTracked(long id) {
+    for (long trackedId : trackedIds) {
+      if (trackedId == id) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private synchronized void offer(long id, String key, long estimate) {
+    // another thread may have added the same key meanwhile
+    if (isTracked(id)) {
+      return;
+    }
+    if (size < k) {
+      ids[size] = id;
+      keys[size] = key != null ? key : Long.valueOf(id);
+      counts[size] = estimate;
+      siftUp(size++);
+    } else {
+      // the tracked keys were counted without updating the heap, so the smallest count is refreshed first
+      refreshCounts();
+      if (estimate <= counts[0]) {
+        updateThreshold();
+        return;
+      }
+      ids[0] = id;
+      keys[0] = key != null ? key : Long.valueOf(id);
+      counts[0] = estimate;
+      siftDown(0);
+    }
+    trackedIds = Arrays.copyOf(ids, size);
+    updateThreshold();
+  }
+
+  /**
+   * Sets the counts in the heap to the current estimates and restores the heap order.
+   */
+  private void refreshCounts() {
+    for (int i = 0; i < size; i++) {
+      counts[i] = sketch.estimate(ids[i]);
+    }
+    for (int i = (size >>> 1) - 1; i >= 0; i--) {
+      siftDown(i);
+    }
+  }
+
+  private void updateThreshold() {
+    threshold = size == k ? counts[0] : 0;
+  }
+
+  private void siftUp(int i) {
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (counts[parent] <= counts[i]) {
+        return;
+      }
+      swap(i, parent);
+      i = parent;
+    }
+  }
+
+  private void siftDown(int i) {
+    while (true) {
+      int smallest = i;
+      int left = 2 * i + 1;
+      int right = left + 1;
+      if (left < size && counts[left] < counts[smallest]) {
+        smallest = left;
+      }
+      if (right < size && counts[right] < counts[smallest]) {
+        smallest = right;
+      }
+      if (smallest == i) {
+        return;
+      }
+      swap(i, smallest);
+      i = smallest;
+    }
+  }
+
+  private void swap(int a, int b) {
+    long id = ids[a];
+    ids[a] = ids[b];
+    ids[b] = id;
+    Object key = keys[a];
+    keys[a] = keys[b];
+    keys[b] = key;
+    long count = counts[a];
+    counts[a] = counts[b];
+    counts[b] = count;
+  }
+
+  @Value
+  public static class Entry {
+    Object key;
+    // an estimate, it can be higher than the real count but never lower
+    long count;
+  }
+}
@@ -0,0 +1,39 @@
+package com.nikolaynikolov.primenumberapi.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Actuator endpoint /actuator/hotkeys with the most requested numbers and the clients with the most requests since
+ * the start or the last reset. DELETE /actuator/hotkeys resets the counts.
+ */
+@Component
+@Endpoint(id = "hotkeys")
+public class HotKeysEndpoint {
+
+  private final RequestMetrics requestMetrics;
+
+  @Autowired
+  public HotKeysEndpoint(RequestMetrics requestMetrics) {
+    this.requestMetrics = requestMetrics;
+  }
+
+  @ReadOperation
+  public Map<String, List<HeavyHitters.Entry>> hotKeys() {
+    return Map.of(
+        "numbers", requestMetrics.getNumbers().getTop(),
+        "clients", requestMetrics.getClients().getTop());
+  }
+
+  @DeleteOperation
+  public void reset() {
+    requestMetrics.getNumbers().clear();
+    requestMetrics.getClients().clear();
+  }
+}
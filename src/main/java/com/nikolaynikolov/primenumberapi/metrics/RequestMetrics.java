@@ -0,0 +1,158 @@
+package com.nikolaynikolov.primenumberapi.metrics;
+
+import com.nikolaynikolov.primenumberapi.configuration.HotKeysConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request metrics of the API with a fixed number of meters.
+ * <p>
+ * All counters are registered up front, tagged only with the endpoint and the status code, and looked up by index on
+ * every request, so recording a request doesn't allocate. The numbers and the clients are unbounded, they are counted
+ * in {@link HeavyHitters} instead and only the most frequent ones are reported by the hotkeys actuator endpoint.
+ * <p>
+ * The latency of every endpoint is recorded in primenumber.request and split into the phases of {@link Phase} in
+ * primenumber.request.phase. The histogram buckets of both are set with the management.metrics.distribution
+ * properties.
+ */
+@Component
+public class RequestMetrics {
+
+  static final String REQUEST_COUNTER = "request_counter";
+  static final String NUMBER_INPUT_COUNTER = "number_input_counter";
+  static final String REQUEST_TIMER = "primenumber.request";
+  static final String PHASE_TIMER = "primenumber.request.phase";
+  private static final String PHASE_TAG = "phase";
+  private static final String ENDPOINT_NAME_TAG = "endpoint_name";
+  private static final String STATUS_CODE_TAG = "status_code";
+  private static final int[] STATUS_CODES = {200, 304, 400, 429, 503};
+
+  public enum Endpoint {
+    CHECK_IF_PRIME("checkIfPrimeNumber"),
+    NEXT_PRIME("nextPrimeNumber"),
+    BATCH("batchCheckIfPrimeNumbers"),
+    RANGE("primeNumbersInRange"),
+    COUNT("countPrimeNumbers"),
+    NTH_PRIME("nthPrimeNumber"),
+    FACTOR("factorNumber");
+
+    private final String tag;
+
+    Endpoint(String tag) {
+      this.tag = tag;
+    }
+
+    public String getTag() {
+      return tag;
+    }
+  }
+
+  public enum Phase {
+    // reading the request until the controller is called, for the batch endpoint that's parsing the numbers
+    ARGUMENTS("arguments"),
+    RATE_LIMIT("rateLimit"),
+    VALIDATION("validation"),
+    LOOKUP("lookup"),
+    // from the controller returning until the response is written, for the range endpoints that's the whole stream
+    SERIALIZATION("serialization");
+
+    private final String tag;
+
+    Phase(String tag) {
+      this.tag = tag;
+    }
+  }
+
+  private final Counter[][] requests = new Counter[Endpoint.values().length][STATUS_CODES.length];
+  private final Counter[] numberInputs = new Counter[Endpoint.values().length];
+  private final Timer[] latencies = new Timer[Endpoint.values().length];
+  private final Timer[][] phaseLatencies = new Timer[Endpoint.values().length][Phase.values().length];
+  private final HeavyHitters numbers;
+  private final HeavyHitters clients;
+
+  @Autowired
+  public RequestMetrics(MeterRegistry meterRegistry, HotKeysConfig hotKeysConfig) {
+    for (Endpoint endpoint : Endpoint.values()) {
+      for (int i = 0; i < STATUS_CODES.length; i++) {
+        requests[endpoint.ordinal()][i] = meterRegistry.counter(REQUEST_COUNTER,
+            ENDPOINT_NAME_TAG, endpoint.tag, STATUS_CODE_TAG, String.valueOf(STATUS_CODES[i]));
+      }
+      numberInputs[endpoint.ordinal()] = meterRegistry.counter(NUMBER_INPUT_COUNTER, ENDPOINT_NAME_TAG, endpoint.tag);
+      latencies[endpoint.ordinal()] = meterRegistry.timer(REQUEST_TIMER, ENDPOINT_NAME_TAG, endpoint.tag);
+      for (Phase phase : Phase.values()) {
+        phaseLatencies[endpoint.ordinal()][phase.ordinal()] = meterRegistry.timer(PHASE_TIMER,
+            ENDPOINT_NAME_TAG, endpoint.tag, PHASE_TAG, phase.tag);
+      }
+    }
+    this.numbers = new HeavyHitters(hotKeysConfig.getWidth(), hotKeysConfig.getDepth(), hotKeysConfig.getTopK());
+    this.clients = new HeavyHitters(hotKeysConfig.getWidth(), hotKeysConfig.getDepth(), hotKeysConfig.getTopK());
+  }
+
+  public void recordRequest(Endpoint endpoint, int statusCode, String userKey) {
+    requests[endpoint.ordinal()][statusIndex(statusCode)].increment();
+    clients.add(userKey);
+  }
+
+  public void recordNumber(Endpoint endpoint, long number) {
+    numberInputs[endpoint.ordinal()].increment();
+    numbers.add(number);
+  }
+
+  /**
+   * @return the timing of the request, started when the request reached the dispatcher
+   */
+  public RequestTiming startTiming(HttpServletRequest request, Endpoint endpoint) {
+    var timing = RequestTiming.get(request);
+    if (timing == null) {
+      timing = RequestTiming.start(request, this);
+    }
+    timing.setEndpoint(endpoint);
+    timing.mark(Phase.ARGUMENTS);
+    return timing;
+  }
+
+  /**
+   * @return the timing of the request, started by {@link RequestTimingWebFilter}
+   */
+  public RequestTiming startTiming(ServerWebExchange exchange, Endpoint endpoint) {
+    var timing = RequestTiming.get(exchange);
+    if (timing == null) {
+      timing = RequestTiming.start(exchange, this);
+    }
+    timing.setEndpoint(endpoint);
+    timing.mark(Phase.ARGUMENTS);
+    return timing;
+  }
+
+  void recordPhase(Endpoint endpoint, Phase phase, long nanos) {
+    phaseLatencies[endpoint.ordinal()][phase.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  void recordLatency(Endpoint endpoint, long nanos) {
+    latencies[endpoint.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  public HeavyHitters getNumbers() {
+    return numbers;
+  }
+
+  public HeavyHitters getClients() {
+    return clients;
+  }
+
+  private static int statusIndex(int statusCode) {
+    for (int i = 0; i < STATUS_CODES.length; i++) {
+      if (STATUS_CODES[i] == statusCode) {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException("Status code " + statusCode + " isn't counted");
+  }
+}
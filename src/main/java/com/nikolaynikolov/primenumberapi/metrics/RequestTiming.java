@@ -0,0 +1,77 @@
+package com.nikolaynikolov.primenumberapi.metrics;
+
+import com.nikolaynikolov.primenumberapi.metrics.RequestMetrics.Endpoint;
+import com.nikolaynikolov.primenumberapi.metrics.RequestMetrics.Phase;
+
+import org.springframework.web.server.ServerWebExchange;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * The latency of a single request. Every {@link #mark(Phase)} records the time since the previous mark as that phase,
+ * {@link #complete()} records the rest as serialization and the whole request.
+ * <p>
+ * It's kept in the request attributes (the exchange attributes on the reactive stack), so the request thread and the
+ * thread which finishes an async response see the same instance.
+ */
+public final class RequestTiming {
+
+  private static final String ATTRIBUTE = RequestTiming.class.getName();
+
+  private final RequestMetrics requestMetrics;
+  private final long start;
+  private long last;
+  private Endpoint endpoint;
+
+  private RequestTiming(RequestMetrics requestMetrics, long start) {
+    this.requestMetrics = requestMetrics;
+    this.start = start;
+    this.last = start;
+  }
+
+  static RequestTiming start(HttpServletRequest request, RequestMetrics requestMetrics) {
+    var timing = new RequestTiming(requestMetrics, System.nanoTime());
+    request.setAttribute(ATTRIBUTE, timing);
+    return timing;
+  }
+
+  static RequestTiming get(HttpServletRequest request) {
+    return (RequestTiming) request.getAttribute(ATTRIBUTE);
+  }
+
+  static RequestTiming start(ServerWebExchange exchange, RequestMetrics requestMetrics) {
+    var timing = new RequestTiming(requestMetrics, System.nanoTime());
+    exchange.getAttributes().put(ATTRIBUTE, timing);
+    return timing;
+  }
+
+  static RequestTiming get(ServerWebExchange exchange) {
+    return exchange.getAttribute(ATTRIBUTE);
+  }
+
+  public void mark(Phase phase) {
+    long now = System.nanoTime();
+    requestMetrics.recordPhase(endpoint, phase, now - last);
+    last = now;
+  }
+
+  public Endpoint getEndpoint() {
+    return endpoint;
+  }
+
+  void setEndpoint(Endpoint endpoint) {
+    this.endpoint = endpoint;
+  }
+
+  /**
+   * Only the requests which reached one of the endpoints are recorded.
+   */
+  void complete() {
+    if (endpoint == null) {
+      return;
+    }
+    mark(Phase.SERIALIZATION);
+    requestMetrics.recordLatency(endpoint, last - start);
+    endpoint = null;
+  }
+}
@@ -0,0 +1,35 @@
+package com.nikolaynikolov.primenumberapi.metrics;
+
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Starts the {@link RequestTiming} before the arguments of the controller are read and completes it once the response
+ * is written. Async responses pass through the interceptor twice, the timing is kept from the first time.
+ */
+public class RequestTimingInterceptor implements HandlerInterceptor {
+
+  private final RequestMetrics requestMetrics;
+
+  public RequestTimingInterceptor(RequestMetrics requestMetrics) {
+    this.requestMetrics = requestMetrics;
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+    if (RequestTiming.get(request) == null) {
+      RequestTiming.start(request, requestMetrics);
+    }
+    return true;
+  }
+
+  @Override
+  public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+    var timing = RequestTiming.get(request);
+    if (timing != null) {
+      timing.complete();
+    }
+  }
+}
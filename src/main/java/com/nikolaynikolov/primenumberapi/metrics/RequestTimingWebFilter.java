@@ -0,0 +1,30 @@
+package com.nikolaynikolov.primenumberapi.metrics;
+
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of {@link RequestTimingInterceptor} - starts the {@link RequestTiming} when the request arrives
+ * and completes it once the response is written or the client has gone away.
+ */
+public class RequestTimingWebFilter implements WebFilter {
+
+  private static final String PATH_PREFIX = "/primes/";
+
+  private final RequestMetrics requestMetrics;
+
+  public RequestTimingWebFilter(RequestMetrics requestMetrics) {
+    this.requestMetrics = requestMetrics;
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    if (!exchange.getRequest().getPath().pathWithinApplication().value().startsWith(PATH_PREFIX)) {
+      return chain.filter(exchange);
+    }
+    var timing = RequestTiming.start(exchange, requestMetrics);
+    return chain.filter(exchange).doFinally(signal -> timing.complete());
+  }
+}
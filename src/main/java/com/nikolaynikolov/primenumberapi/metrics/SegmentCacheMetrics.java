@@ -0,0 +1,63 @@
+package com.nikolaynikolov.primenumberapi.metrics;
+
+import com.nikolaynikolov.primenumberapi.prime.SegmentCache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+
+/**
+ * Metrics of the {@link SegmentCache} under the same names as the caffeine caches - cache.gets with hit and miss,
+ * cache.evictions and cache.size - together with the memory reserved for the segments.
+ */
+public class SegmentCacheMetrics extends CacheMeterBinder {
+
+  private final SegmentCache cache;
+
+  public SegmentCacheMetrics(SegmentCache cache, String cacheName, Iterable<Tag> tags) {
+    super(cache, cacheName, tags);
+    this.cache = cache;
+  }
+
+  public static SegmentCache monitor(MeterRegistry registry, SegmentCache cache, String cacheName) {
+    new SegmentCacheMetrics(cache, cacheName, Tags.empty()).bindTo(registry);
+    return cache;
+  }
+
+  @Override
+  protected Long size() {
+    return (long) cache.size();
+  }
+
+  @Override
+  protected long hitCount() {
+    return cache.getHitCount();
+  }
+
+  @Override
+  protected Long missCount() {
+    return cache.getMissCount();
+  }
+
+  @Override
+  protected Long evictionCount() {
+    return cache.getEvictionCount();
+  }
+
+  @Override
+  protected long putCount() {
+    // every miss puts the loaded segment
+    return cache.getMissCount();
+  }
+
+  @Override
+  protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+    Gauge.builder("cache.capacity", cache, SegmentCache::getCapacityBytes)
+        .tags(getTagsWithCacheName())
+        .tag("memory", cache.isOffHeap() ? "offHeap" : "heap")
+        .baseUnit("bytes")
+        .description("Memory reserved for the cached segments")
+        .register(registry);
+  }
+}
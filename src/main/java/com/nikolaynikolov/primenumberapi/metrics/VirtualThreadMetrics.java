@@ -0,0 +1,132 @@
+package com.nikolaynikolov.primenumberapi.metrics;
+
+import com.nikolaynikolov.primenumberapi.configuration.ThreadsConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Metrics of the virtual threads, used with threads.virtual=true.
+ * <p>
+ * The carriers of the virtual threads are a fixed pool of platform threads, one per core. When all of them are busy,
+ * or blocked by virtual threads pinned to them, new virtual threads wait to be mounted. A probe task is started on a
+ * new virtual thread every threads.schedulingProbeMillis and threads.virtual.scheduling.delay records how long it
+ * waited, so the saturation of the carriers shows up as a growing delay - their number is fixed, so it isn't a metric
+ * of its own. Pinning is counted from the jdk.VirtualThreadPinned JFR events in threads.virtual.pinned, and the frames
+ * where it happened are logged.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "threads", name = "virtual", havingValue = "true")
+public class VirtualThreadMetrics {
+
+  private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+  private static final int LOGGED_FRAMES = 8;
+
+  private final ThreadsConfig threadsConfig;
+  private final ThreadFactory probeThreadFactory;
+  private final AtomicInteger active = new AtomicInteger();
+  private final Counter started;
+  private final Timer schedulingDelay;
+  private final Timer pinned;
+  private ScheduledExecutorService probeScheduler;
+  private RecordingStream pinnedEvents;
+
+  @Autowired
+  public VirtualThreadMetrics(MeterRegistry meterRegistry, ThreadsConfig threadsConfig) {
+    this.threadsConfig = threadsConfig;
+    this.probeThreadFactory = Thread.ofVirtual().name("virtual-thread-probe-", 0).factory();
+    this.started = meterRegistry.counter("threads.virtual.started");
+    this.schedulingDelay = meterRegistry.timer("threads.virtual.scheduling.delay");
+    this.pinned = meterRegistry.timer("threads.virtual.pinned");
+    meterRegistry.gauge("threads.virtual.active", active);
+  }
+
+  /**
+   * @return a factory which counts the threads of the given one while they run
+   */
+  public ThreadFactory track(ThreadFactory threadFactory) {
+    return task -> threadFactory.newThread(() -> {
+      started.increment();
+      active.incrementAndGet();
+      try {
+        task.run();
+      } finally {
+        active.decrementAndGet();
+      }
+    });
+  }
+
+  @PostConstruct
+  public void start() {
+    probeScheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+      var thread = new Thread(task, "virtual-thread-probe-scheduler");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long period = threadsConfig.getSchedulingProbeMillis();
+    probeScheduler.scheduleAtFixedRate(this::probe, period, period, TimeUnit.MILLISECONDS);
+    pinnedEvents = streamPinnedEvents();
+  }
+
+  @PreDestroy
+  public void stop() {
+    probeScheduler.shutdownNow();
+    if (pinnedEvents != null) {
+      pinnedEvents.close();
+    }
+  }
+
+  private void probe() {
+    long submitted = System.nanoTime();
+    probeThreadFactory.newThread(() -> schedulingDelay.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS))
+        .start();
+  }
+
+  private RecordingStream streamPinnedEvents() {
+    try {
+      var stream = new RecordingStream();
+      stream.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(threadsConfig.getPinnedThresholdMillis()));
+      stream.onEvent(PINNED_EVENT, this::onPinned);
+      stream.startAsync();
+      return stream;
+    } catch (IllegalStateException | SecurityException e) {
+      // JFR isn't available in this JVM
+      log.warn("Pinned virtual threads can't be recorded", e);
+      return null;
+    }
+  }
+
+  private void onPinned(RecordedEvent event) {
+    pinned.record(event.getDuration());
+    if (event.getStackTrace() != null) {
+      log.warn("Virtual thread pinned for " + event.getDuration().toMillis() + " ms at\n" +
+          event.getStackTrace().getFrames().stream()
+              .limit(LOGGED_FRAMES)
+              .map(VirtualThreadMetrics::format)
+              .collect(Collectors.joining("\n")));
+    }
+  }
+
+  private static String format(RecordedFrame frame) {
+    return "  " + frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" +
+        frame.getLineNumber();
+  }
+}
@@ -0,0 +1,268 @@
+package com.nikolaynikolov.primenumberapi.prime;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link PrimeLookup} which sieves the segments of the range on first access instead of all at once on start, so the max
+ * can go up to Integer.MAX_VALUE without keeping the whole bitset in memory (2^31 / 16 bytes ~ 128 mb).
+ * <p>
+ * The odd-only bitset is split into segments the same way as in {@link SegmentedSieve}. The base primes up to √max are
+ * found once and shared by all segments (4792 primes ~ 19 kb for Integer.MAX_VALUE). A segment is sieved by the first
+ * lookup which needs it and kept in a {@link SegmentCache}, which evicts the segments with the CLOCK algorithm once its
+ * budget is full.
+ * <p>
+ * Counting the primes and finding the n-th one needs the number of primes before a segment. The segments are counted
+ * in ascending order the first time they are needed and only the count is kept (4 bytes per segment), so π(x) sieves
+ * every segment up to x once, without putting them in the cache, and takes constant time afterwards. The counting lock
+ * is held for a single segment at a time and callers which must not wait for the counting check
+ * {@link #isCounted(long)} first.
+ */
+public final class LazyPrimeIndex implements PrimeLookup {
+
+  private final int max;
+  private final int wordCount;
+  private final int wordsPerSegment;
+  private final int segmentCount;
+  private final int[] basePrimes;
+  private final SegmentCache cache;
+  // cumulative[i] is the number of odd primes in the first i segments, set for every i up to countedSegments
+  private final int[] cumulative;
+  private volatile int countedSegments;
+  // a lock instead of synchronized, so a virtual thread waiting for the counting doesn't pin its carrier
+  private final ReentrantLock countLock = new ReentrantLock();
+  private final long[] countWords;
+
+  /**
+   * @param max          the biggest number covered by the index, at least 2
+   * @param segmentBytes the size of a segment, rounded down to whole 64 bit words
+   * @param cacheBytes   memory for the cached segments
+   * @param offHeap      whether the cached segments are kept outside of the heap
+   */
+  public LazyPrimeIndex(int max, int segmentBytes, long cacheBytes, boolean offHeap) {
+    if (max < 2) {
+      throw new IllegalArgumentException("Max must be at least 2: " + max);
+    }
+    this.max = max;
+    this.wordCount = PrimeIndex.wordCount(max);
+    this.wordsPerSegment = Math.max(1, segmentBytes / Long.BYTES);
+    this.segmentCount = (wordCount + wordsPerSegment - 1) / wordsPerSegment;
+    this.basePrimes = SegmentedSieve.oddPrimesUpTo((int) Math.sqrt(max));
+    this.cache = new SegmentCache(segmentCount, wordsPerSegment, cacheBytes, offHeap, this::sieveSegment);
+    this.cumulative = new int[segmentCount + 1];
+    this.countWords = new long[wordsPerSegment];
+  }
+
+  public SegmentCache getCache() {
+    return cache;
+  }
+
+  public int getSegmentCount() {
+    return segmentCount;
+  }
+
+  @Override
+  public int getMax() {
+    return max;
+  }
+
+  /**
+   * Counts all segments which haven't been counted yet, the first call takes as long as sieving the whole range.
+   */
+  @Override
+  public int getPrimeCount() {
+    countSegments(segmentCount, Long.MAX_VALUE);
+    return cumulative[segmentCount] + 1;
+  }
+
+  /**
+   * The segment with the number has been counted, which is one more than {@link #countPrimes(long)} needs, so all
+   * segments are counted once this is true for the max.
+   */
+  @Override
+  public boolean isCounted(long number) {
+    int segment = (int) (Math.max(0, Math.min(number, max)) >>> 7) / wordsPerSegment;
+    return countedSegments > segment;
+  }
+
+  @Override
+  public boolean covers(long number) {
+    return number <= max;
+  }
+
+  @Override
+  public boolean isPrime(long number) {
+    if (number < 2 || number > max) {
+      return false;
+    }
+    if ((number & 1) == 0) {
+      return number == 2;
+    }
+    int bit = (int) (number >>> 1);
+    int word = bit >>> 6;
+    int segment = word / wordsPerSegment;
+    int offset = word - segment * wordsPerSegment;
+    return cache.read(segment, (words, from) -> words.get(from + offset) >>> bit & 1) != 0;
+  }
+
+  /**
+   * Scans the cached segments a whole word at a time like {@link PrimeIndex#nextPrime(long)}. The biggest gap between
+   * primes below Integer.MAX_VALUE is 292, so this touches a second segment only at its end.
+   */
+  @Override
+  public int nextPrime(long number) {
+    if (number < 2) {
+      return 2;
+    }
+    if (number >= max) {
+      return -1;
+    }
+    // bit of the smallest odd number bigger than the given one
+    int bit = (int) ((number + 1) >>> 1);
+    int word = bit >>> 6;
+    long mask = -1L << bit;
+    for (int segment = word / wordsPerSegment; segment < segmentCount; segment++) {
+      int fromWord = Math.max(word, segment * wordsPerSegment);
+      long found = nextSetBit(segment, fromWord, fromWord == word ? mask : -1L);
+      if (found != -1) {
+        long next = found * 2 + 1;
+        return next <= max ? (int) next : -1;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public int countPrimes(long number) {
+    if (number > max) {
+      throw new IllegalArgumentException("Number is bigger than the max of the index: " + number);
+    }
+    if (number < 2) {
+      return 0;
+    }
+    // bits of all odd numbers up to the given one, 1 is not marked as prime and 2 is added separately
+    int bits = (int) ((number + 1) >>> 1);
+    int word = bits >>> 6;
+    int segment = word / wordsPerSegment;
+    countSegments(segment, Long.MAX_VALUE);
+    int count = cumulative[segment];
+    if (segment < segmentCount) {
+      int segmentStart = segment * wordsPerSegment;
+      count += (int) cache.read(segment, (words, from) -> {
+        int inSegment = 0;
+        for (int i = segmentStart; i < word; i++) {
+          inSegment += Long.bitCount(words.get(from + i - segmentStart));
+        }
+        if ((bits & 63) != 0) {
+          inSegment += Long.bitCount(words.get(from + word - segmentStart) & ((1L << bits) - 1));
+        }
+        return inSegment;
+      });
+    }
+    return count + 1;
+  }
+
+  /**
+   * Counts the segments until the one with the n-th prime, then finds the prime inside it with popcounts.
+   */
+  @Override
+  public int nthPrime(long n) {
+    if (n < 1) {
+      throw new IllegalArgumentException("N must be positive: " + n);
+    }
+    if (n == 1) {
+      return 2;
+    }
+    // 0 based rank of the odd prime
+    long rank = n - 2;
+    countSegments(segmentCount, rank);
+    int counted = countedSegments;
+    if (cumulative[counted] <= rank) {
+      return -1;
+    }
+    // the last segment which starts with at most rank primes before it
+    int low = 0;
+    int high = counted - 1;
+    while (low < high) {
+      int middle = (low + high + 1) >>> 1;
+      if (cumulative[middle] <= rank) {
+        low = middle;
+      } else {
+        high = middle - 1;
+      }
+    }
+
+    int segment = low;
+    int segmentStart = segment * wordsPerSegment;
+    int segmentEnd = Math.min(segmentStart + wordsPerSegment, wordCount);
+    long inSegment = rank - cumulative[segment];
+    long bit = cache.read(segment, (words, from) -> {
+      long remaining = inSegment;
+      for (int word = segmentStart; word < segmentEnd; word++) {
+        long w = words.get(from + word - segmentStart);
+        if (Long.bitCount(w) > remaining) {
+          for (long i = 0; i < remaining; i++) {
+            w &= w - 1;
+          }
+          return ((long) word << 6) + Long.numberOfTrailingZeros(w);
+        }
+        remaining -= Long.bitCount(w);
+      }
+      return -1;
+    });
+    return (int) (bit * 2 + 1);
+  }
+
+  /**
+   * @return the first set bit in the segment starting from the given word, or -1 if there is none
+   */
+  private long nextSetBit(int segment, int fromWord, long firstMask) {
+    int segmentStart = segment * wordsPerSegment;
+    int segmentEnd = Math.min(segmentStart + wordsPerSegment, wordCount);
+    return cache.read(segment, (words, from) -> {
+      long w = words.get(from + fromWord - segmentStart) & firstMask;
+      int word = fromWord;
+      while (w == 0) {
+        if (++word == segmentEnd) {
+          return -1;
+        }
+        w = words.get(from + word - segmentStart);
+      }
+      return ((long) word << 6) + Long.numberOfTrailingZeros(w);
+    });
+  }
+
+  /**
+   * Counts the segments in ascending order until the first given ones are counted, or until they contain more than the
+   * given number of odd primes.
+   */
+  private void countSegments(int segments, long rank) {
+    for (int segment = countedSegments; segment < segments && cumulative[segment] <= rank; segment = countedSegments) {
+      // locked for a single segment, so a caller which needs only the first segments waits for one segment at most
+      countLock.lock();
+      try {
+        if (segment == countedSegments) {
+          sieveSegment(segment, countWords);
+          int count = 0;
+          for (long word : countWords) {
+            count += Long.bitCount(word);
+          }
+          cumulative[segment + 1] = cumulative[segment] + count;
+          // the count is written before the segment is published as counted
+          countedSegments = segment + 1;
+        }
+      } finally {
+        countLock.unlock();
+      }
+    }
+  }
+
+  private void sieveSegment(int segment, long[] words) {
+    int fromWord = segment * wordsPerSegment;
+    int toWord = Math.min(fromWord + wordsPerSegment, wordCount);
+    SegmentedSieve.sieveWords(basePrimes, max, words, fromWord, fromWord, toWord);
+    // the last segment may be shorter, the rest of the words must not be counted
+    for (int i = toWord - fromWord; i < words.length; i++) {
+      words[i] = 0;
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package com.nikolaynikolov.primenumberapi.prime;
+
+/**
+ * Deterministic Miller-Rabin primality test for any positive long, without any precomputed table.
+ * <p>
+ * The witnesses 2, 325, 9375, 28178, 450775, 9780504, 1795265022 (Jim Sinclair) are known to give the correct answer
+ * for every number below 2^64. All modular multiplications are done in Montgomery form with R = 2^64, so there are no
+ * 128 bit divisions and no allocations - a single check takes a few microseconds.
+ */
+public final class MillerRabin {
+
+  private static final long[] WITNESSES = {2, 325, 9375, 28178, 450775, 9780504, 1795265022};
+  private static final int[] SMALL_PRIMES = {2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37};
+
+  private MillerRabin() {
+  }
+
+  public static boolean isPrime(long number) {
+    if (number < 2) {
+      return false;
+    }
+    for (int p : SMALL_PRIMES) {
+      if (number % p == 0) {
+        return number == p;
+      }
+    }
+    if (number < 37 * 37) {
+      return true;
+    }
+
+    long d = number - 1;
+    int s = Long.numberOfTrailingZeros(d);
+    d >>>= s;
+
+    long inverse = Montgomery.inverse(number);
+    long one = Montgomery.one(number);
+    long minusOne = number - one;
+    long rSquared = Montgomery.rSquared(number, one);
+
+    for (long witness : WITNESSES) {
+      long a = witness % number;
+      if (a == 0) {
+        continue;
+      }
+      long x = Montgomery.pow(Montgomery.toMontgomery(a, rSquared, number, inverse), d, one, number, inverse);
+      if (x == one || x == minusOne) {
+        continue;
+      }
+      boolean composite = true;
+      for (int i = 1; i < s; i++) {
+        x = Montgomery.multiply(x, x, number, inverse);
+        if (x == minusOne) {
+          composite = false;
+          break;
+        }
+      }
+      if (composite) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the smallest prime number bigger than the given one or -1 if it doesn't fit in a long
+   */
+  public static long nextPrime(long number) {
+    if (number < 2) {
+      return 2;
+    }
+    // the candidates are the odd numbers bigger than the given one
+    for (long candidate = (number + 1) | 1; candidate > 0; candidate += 2) {
+      if (isPrime(candidate)) {
+        return candidate;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Montgomery arithmetic modulo an odd number below 2^63 with R = 2^64.
+   */
+  static final class Montgomery {
+
+    private Montgomery() {
+    }
+
+    /**
+     * @return n^-1 mod 2^64 with Newton's iteration, every step doubles the correct low bits (3, 6, 12, 24, 48, 96)
+     */
+    static long inverse(long n) {
+      long x = n;
+      for (int i = 0; i < 5; i++) {
+        x *= 2 - n * x;
+      }
+      return x;
+    }
+
+    /**
+     * @return R mod n, which is 1 in Montgomery form
+     */
+    static long one(long n) {
+      return Long.remainderUnsigned(-n, n);
+    }
+
+    /**
+     * @return R^2 mod n, used to convert numbers to Montgomery form
+     */
+    static long rSquared(long n, long one) {
+      long r = one;
+      for (int i = 0; i < 64; i++) {
+        r <<= 1;
+        if (r < 0 || r >= n) {
+          r -= n;
+        }
+      }
+      return r;
+    }
+
+    static long toMontgomery(long a, long rSquared, long n, long inverse) {
+      return multiply(a, rSquared, n, inverse);
+    }
+
+    /**
+     * @return a * b * R^-1 mod n for a and b smaller than n
+     */
+    static long multiply(long a, long b, long n, long inverse) {
+      long low = a * b;
+      long high = Math.multiplyHigh(a, b);
+      long m = low * inverse;
+      long mnHigh = Math.multiplyHigh(m, n) + ((m >> 63) & n);
+      // low - m * n is 0 for the low word by construction, so only the high words are left
+      long result = high - mnHigh;
+      return result < 0 ? result + n : result;
+    }
+
+    static long pow(long base, long exponent, long one, long n, long inverse) {
+      long result = one;
+      while (exponent != 0) {
+        if ((exponent & 1) != 0) {
+          result = multiply(result, base, n, inverse);
+        }
+        base = multiply(base, base, n, inverse);
+        exponent >>>= 1;
+      }
+      return result;
+    }
+  }
+}
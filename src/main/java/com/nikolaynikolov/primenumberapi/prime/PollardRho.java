@@ -0,0 +1,152 @@
+package com.nikolaynikolov.primenumberapi.prime;
+
+import com.nikolaynikolov.primenumberapi.prime.MillerRabin.Montgomery;
+
+import java.util.Arrays;
+
+/**
+ * Factorization of any positive long with Pollard's rho in Brent's variant, for the numbers above the
+ * {@link SmallestPrimeFactors} table.
+ * <p>
+ * The factors below 1024 are found with trial division first. Every remaining part is checked with {@link MillerRabin}
+ * and the composite ones are split with Pollard-Brent, which needs about the fourth root of the number of steps - a few
+ * thousand Montgomery multiplications even for a product of two 31 bit primes. The differences of the sequence are
+ * multiplied together and only every {@value #GCD_BATCH}-th product goes to a gcd, so the gcds don't dominate.
+ */
+public final class PollardRho {
+
+  private static final int GCD_BATCH = 128;
+  private static final int[] SMALL_PRIMES = smallPrimes();
+
+  private PollardRho() {
+  }
+
+  /**
+   * @param number a number which is at least 2
+   * @return the prime factors in ascending order, every one repeated by its multiplicity
+   */
+  public static long[] factorize(long number) {
+    if (number < 2) {
+      throw new IllegalArgumentException("Number must be at least 2: " + number);
+    }
+    var factors = new long[Long.SIZE];
+    int count = 0;
+    long n = number;
+    for (int p : SMALL_PRIMES) {
+      if ((long) p * p > n) {
+        break;
+      }
+      while (n % p == 0) {
+        factors[count++] = p;
+        n /= p;
+      }
+    }
+    if (n > 1) {
+      count = split(n, factors, count);
+    }
+    Arrays.sort(factors, 0, count);
+    return Arrays.copyOf(factors, count);
+  }
+
+  /**
+   * Adds the prime factors of n, which has no factors below 1024.
+   */
+  private static int split(long n, long[] factors, int count) {
+    if (MillerRabin.isPrime(n)) {
+      factors[count++] = n;
+      return count;
+    }
+    long divisor = findDivisor(n);
+    count = split(divisor, factors, count);
+    return split(n / divisor, factors, count);
+  }
+
+  /**
+   * @return a non-trivial divisor of the odd composite n
+   */
+  static long findDivisor(long n) {
+    long inverse = Montgomery.inverse(n);
+    long one = Montgomery.one(n);
+    // a polynomial which only cycles back to n is retried with the next constant
+    for (long c = 1; ; c++) {
+      long divisor = brent(n, c, one, inverse);
+      if (divisor != n) {
+        return divisor;
+      }
+    }
+  }
+
+  /**
+   * Walks y = y^2 + c mod n in Montgomery form. The cycle is found by comparing every value with the one at the last
+   * power of two, and gcd(x - y, n) reveals a factor once the sequence cycles modulo it.
+   *
+   * @return a divisor of n, which is n itself if the whole sequence cycled at once
+   */
+  private static long brent(long n, long c, long one, long inverse) {
+    long x;
+    long y = 2;
+    long saved = y;
+    long product = one;
+    long divisor = 1;
+    for (long length = 1; divisor == 1; length <<= 1) {
+      x = y;
+      for (long i = 0; i < length; i++) {
+        y = step(y, c, n, inverse);
+      }
+      for (long done = 0; done < length && divisor == 1; done += GCD_BATCH) {
+        saved = y;
+        long batch = Math.min(GCD_BATCH, length - done);
+        for (long i = 0; i < batch; i++) {
+          y = step(y, c, n, inverse);
+          product = Montgomery.multiply(product, Math.abs(x - y), n, inverse);
+        }
+        divisor = gcd(product, n);
+      }
+      if (divisor == n) {
+        // the batch overshot, repeat it one step at a time
+        do {
+          saved = step(saved, c, n, inverse);
+          divisor = gcd(Math.abs(x - saved), n);
+        } while (divisor == 1);
+      }
+    }
+    return divisor;
+  }
+
+  private static long step(long y, long c, long n, long inverse) {
+    long next = Montgomery.multiply(y, y, n, inverse) + c;
+    return Long.compareUnsigned(next, n) >= 0 ? next - n : next;
+  }
+
+  /**
+   * Binary gcd of two non-negative numbers.
+   */
+  static long gcd(long a, long b) {
+    if (a == 0) {
+      return b;
+    }
+    if (b == 0) {
+      return a;
+    }
+    int shift = Long.numberOfTrailingZeros(a | b);
+    a >>>= Long.numberOfTrailingZeros(a);
+    do {
+      b >>>= Long.numberOfTrailingZeros(b);
+      if (a > b) {
+        long t = a;
+        a = b;
+        b = t;
+      }
+      b -= a;
+    } while (b != 0);
+    return a << shift;
+  }
+
+  private static int[] smallPrimes() {
+    int[] oddPrimes = SegmentedSieve.oddPrimesUpTo(1024);
+    var primes = new int[oddPrimes.length + 1];
+    primes[0] = 2;
+    System.arraycopy(oddPrimes, 0, primes, 1, oddPrimes.length);
+    return primes;
+  }
+}
@@ -0,0 +1,252 @@
+package com.nikolaynikolov.primenumberapi.prime;
+
+import java.nio.LongBuffer;
+
+/**
+ * Immutable, in-process index of all prime numbers in range between 2 and {@link #getMax()}.
+ * <p>
+ * Only odd numbers are stored - bit {@code i} is set when {@code 2 * i + 1} is prime, 2 is handled separately.
+ * For a max of 10_000_000 that is 5_000_000 bits ~ 625 kb. The bitset is either on the heap (right after the sieve) or
+ * memory-mapped from a {@link PrimeIndexSnapshot} file, which is why it is kept in a {@link LongBuffer}.
+ * <p>
+ * Next to the bitset there is a rank directory with the cumulative number of primes for every block of 512 bits
+ * (4 bytes per 64 bytes of the bitset, ~ 39 kb), so counting the primes up to a number takes constant time. Every 512-th
+ * prime is also sampled in a select directory (~ 5 kb), so finding the n-th prime doesn't need any scanning.
+ * <p>
+ * An instance is never modified after it has been created, so it can be safely shared between the request threads
+ * without any locking once it has been published.
+ */
+public final class PrimeIndex implements PrimeLookup {
+
+  private static final int WORDS_PER_BLOCK = 8;
+  private static final int SELECT_SAMPLE_RATE = 512;
+
+  private final LongBuffer words;
+  private final int wordCount;
+  private final int max;
+  // rank directory - ranks[i] is the number of odd primes in the first i blocks of 512 bits
+  private final int[] ranks;
+  // select samples - selectSamples[i] is the block which contains the (i * 512)-th odd prime
+  private final int[] selectSamples;
+
+  /**
+   * @param words odd-only bitset of the primes, see {@link #wordsFor(int)}. The array is owned by the index afterwards.
+   * @param max   the biggest number covered by the index
+   */
+  public PrimeIndex(long[] words, int max) {
+    this(LongBuffer.wrap(words), max);
+  }
+
+  /**
+   * @param words odd-only bitset of the primes from the position to the limit of the buffer, it must not be modified
+   *              afterwards
+   * @param max   the biggest number covered by the index
+   */
+  public PrimeIndex(LongBuffer words, int max) {
+    if (words.remaining() < wordCount(max)) {
+      throw new IllegalArgumentException("Bitset is too small for max " + max);
+    }
+    this.words = words.slice();
+    this.wordCount = this.words.limit();
+    this.max = max;
+    this.ranks = buildRanks(this.words);
+    this.selectSamples = buildSelectSamples(ranks);
+  }
+
+  /**
+   * Allocates an empty odd-only bitset big enough to hold all numbers up to the given max.
+   */
+  public static long[] wordsFor(int max) {
+    return new long[wordCount(max)];
+  }
+
+  /**
+   * @return the number of words in an odd-only bitset for the given max
+   */
+  public static int wordCount(int max) {
+    return ((max >>> 1) >>> 6) + 1;
+  }
+
+  /**
+   * Marks the given odd number as prime in a bitset allocated with {@link #wordsFor(int)}.
+   */
+  public static void setOdd(long[] words, int oddNumber) {
+    int bit = oddNumber >>> 1;
+    words[bit >>> 6] |= 1L << bit;
+  }
+
+  @Override
+  public int getMax() {
+    return max;
+  }
+
+  /**
+   * @return the number of all primes in the index
+   */
+  @Override
+  public int getPrimeCount() {
+    return max >= 2 ? ranks[ranks.length - 1] + 1 : 0;
+  }
+
+  /**
+   * @return true if the number is in the range of the index and the index can answer for it
+   */
+  @Override
+  public boolean covers(long number) {
+    return number <= max;
+  }
+
+  @Override
+  public boolean isPrime(long number) {
+    if (number < 2 || number > max) {
+      return false;
+    }
+    if ((number & 1) == 0) {
+      return number == 2;
+    }
+    int bit = (int) (number >>> 1);
+    return (words.get(bit >>> 6) & (1L << bit)) != 0;
+  }
+
+  /**
+   * Finds the smallest prime number bigger than the given one by scanning the bitset a whole word at a time.
+   * The biggest gap between primes below 10_000_000 is 154, so this touches at most 2 words.
+   *
+   * @return the next prime number or -1 if it's bigger than {@link #getMax()}
+   */
+  @Override
+  public int nextPrime(long number) {
+    if (number < 2) {
+      return max >= 2 ? 2 : -1;
+    }
+    if (number >= max) {
+      return -1;
+    }
+    // bit of the smallest odd number bigger than the given one
+    int bit = (int) ((number + 1) >>> 1);
+    int word = bit >>> 6;
+    if (word >= wordCount) {
+      return -1;
+    }
+    long w = words.get(word) & (-1L << bit);
+    while (w == 0) {
+      if (++word == wordCount) {
+        return -1;
+      }
+      w = words.get(word);
+    }
+    long next = ((((long) word) << 6) + Long.numberOfTrailingZeros(w)) * 2 + 1;
+    return next <= max ? (int) next : -1;
+  }
+
+  /**
+   * Prime-counting function π(x) - the number of primes which are not bigger than x, answered from the rank directory
+   * and the popcount of at most 8 words.
+   *
+   * @param number the upper bound, it must not be bigger than {@link #getMax()}
+   */
+  @Override
+  public int countPrimes(long number) {
+    if (number > max) {
+      throw new IllegalArgumentException("Number is bigger than the max of the index: " + number);
+    }
+    if (number < 2) {
+      return 0;
+    }
+    // bits of all odd numbers up to the given one, 1 is not marked as prime and 2 is added separately
+    int bits = (int) ((number + 1) >>> 1);
+    int word = bits >>> 6;
+    int block = word / WORDS_PER_BLOCK;
+    int count = ranks[block];
+    for (int i = block * WORDS_PER_BLOCK; i < word; i++) {
+      count += Long.bitCount(words.get(i));
+    }
+    if ((bits & 63) != 0) {
+      count += Long.bitCount(words.get(word) & ((1L << bits) - 1));
+    }
+    return count + 1;
+  }
+
+  /**
+   * Finds the n-th prime number (the first one is 2). The sampled select directory points to a few blocks around it,
+   * the block itself is found with a binary search over the rank directory and the number inside the block with the
+   * popcount of at most 8 words.
+   *
+   * @return the n-th prime number or -1 if it's bigger than {@link #getMax()}
+   */
+  @Override
+  public int nthPrime(long n) {
+    if (n < 1) {
+      throw new IllegalArgumentException("N must be positive: " + n);
+    }
+    if (n == 1) {
+      return max >= 2 ? 2 : -1;
+    }
+    if (n - 2 >= ranks[ranks.length - 1]) {
+      return -1;
+    }
+    // 0 based rank of the odd prime
+    int rank = (int) (n - 2);
+    int sample = rank / SELECT_SAMPLE_RATE;
+    int low = selectSamples[sample];
+    int high = sample + 1 < selectSamples.length ? selectSamples[sample + 1] : ranks.length - 1;
+    // the last block in [low, high] which starts with at most rank primes before it
+    while (low < high) {
+      int middle = (low + high + 1) >>> 1;
+      if (ranks[middle] <= rank) {
+        low = middle;
+      } else {
+        high = middle - 1;
+      }
+    }
+
+    int remaining = rank - ranks[low];
+    int word = low * WORDS_PER_BLOCK;
+    long w = words.get(word);
+    while (Long.bitCount(w) <= remaining) {
+      remaining -= Long.bitCount(w);
+      w = words.get(++word);
+    }
+    for (int i = 0; i < remaining; i++) {
+      w &= w - 1;
+    }
+    return ((word << 6) + Long.numberOfTrailingZeros(w)) * 2 + 1;
+  }
+
+  private static int[] buildRanks(LongBuffer words) {
+    int wordCount = words.limit();
+    int blocks = (wordCount + WORDS_PER_BLOCK - 1) / WORDS_PER_BLOCK;
+    // one more entry with the total, so every block has an end
+    var ranks = new int[blocks + 1];
+    int count = 0;
+    for (int i = 0; i < wordCount; i++) {
+      if (i % WORDS_PER_BLOCK == 0) {
+        ranks[i / WORDS_PER_BLOCK] = count;
+      }
+      count += Long.bitCount(words.get(i));
+    }
+    ranks[blocks] = count;
+    return ranks;
+  }
+
+  private static int[] buildSelectSamples(int[] ranks) {
+    int total = ranks[ranks.length - 1];
+    var samples = new int[(total + SELECT_SAMPLE_RATE - 1) / SELECT_SAMPLE_RATE];
+    int block = 0;
+    for (int i = 0; i < samples.length; i++) {
+      int rank = i * SELECT_SAMPLE_RATE;
+      while (ranks[block + 1] <= rank) {
+        block++;
+      }
+      samples[i] = block;
+    }
+    return samples;
+  }
+
+  /**
+   * @return read-only view of the bitset, used to write the snapshot
+   */
+  LongBuffer words() {
+    return words.asReadOnlyBuffer();
+  }
+}
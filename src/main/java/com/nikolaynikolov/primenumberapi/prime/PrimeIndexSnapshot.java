@@ -0,0 +1,123 @@
+package com.nikolaynikolov.primenumberapi.prime;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of a finished {@link PrimeIndex}, so a restart doesn't have to sieve again.
+ * <p>
+ * Layout, all values are little-endian:
+ * <pre>
+ * 0  int  magic "PRIM"
+ * 4  int  format version
+ * 8  int  max of the index
+ * 12 int  number of words in the bitset
+ * 16 long CRC32 of the bitset
+ * 24      the odd-only bitset, 8 bytes per word
+ * </pre>
+ * The file is memory-mapped on load, so the bitset is never copied to the heap and the pages are shared through the
+ * page cache between all JVMs on the same host. Only the rank and select directories are rebuilt (~ 40 kb). A snapshot
+ * with another max or format version is ignored and replaced by the next calculation.
+ */
+@Slf4j
+public final class PrimeIndexSnapshot {
+
+  static final int MAGIC = 0x4D495250;
+  static final int FORMAT_VERSION = 1;
+  static final int HEADER_BYTES = 24;
+
+  private PrimeIndexSnapshot() {
+  }
+
+  /**
+   * @return the index from the snapshot or empty if there is no usable snapshot for the given max
+   */
+  public static Optional<PrimeIndex> load(Path path, int max) throws IOException {
+    if (!Files.isRegularFile(path)) {
+      return Optional.empty();
+    }
+    ByteBuffer buffer;
+    try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() < HEADER_BYTES) {
+        log.warn("Prime index snapshot " + path + " is truncated");
+        return Optional.empty();
+      }
+      // the mapping stays valid after the channel is closed
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    int magic = buffer.getInt(0);
+    int version = buffer.getInt(4);
+    int snapshotMax = buffer.getInt(8);
+    int wordCount = buffer.getInt(12);
+    long checksum = buffer.getLong(16);
+    if (magic != MAGIC || version != FORMAT_VERSION) {
+      log.info("Prime index snapshot " + path + " has an unsupported format version " + version);
+      return Optional.empty();
+    }
+    if (snapshotMax != max || wordCount != PrimeIndex.wordCount(max)) {
+      log.info("Prime index snapshot " + path + " was calculated up to " + snapshotMax + " instead of " + max);
+      return Optional.empty();
+    }
+    if (buffer.capacity() != HEADER_BYTES + (long) wordCount * Long.BYTES) {
+      log.warn("Prime index snapshot " + path + " has a wrong size");
+      return Optional.empty();
+    }
+
+    ByteBuffer bitset = buffer.position(HEADER_BYTES).slice().order(ByteOrder.LITTLE_ENDIAN);
+    var crc = new CRC32();
+    crc.update(bitset.duplicate());
+    if (crc.getValue() != checksum) {
+      log.warn("Prime index snapshot " + path + " is corrupted");
+      return Optional.empty();
+    }
+    return Optional.of(new PrimeIndex(bitset.asLongBuffer(), max));
+  }
+
+  /**
+   * Writes the index to a temporary file next to the given path and moves it in place, so a concurrent reader never
+   * sees a half written snapshot.
+   */
+  public static void write(Path path, PrimeIndex index) throws IOException {
+    LongBuffer words = index.words();
+    var bitset = ByteBuffer.allocate(words.remaining() * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    bitset.asLongBuffer().put(words);
+    var crc = new CRC32();
+    crc.update(bitset.duplicate());
+
+    var header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN)
+        .putInt(MAGIC)
+        .putInt(FORMAT_VERSION)
+        .putInt(index.getMax())
+        .putInt(bitset.capacity() / Long.BYTES)
+        .putLong(crc.getValue())
+        .flip();
+
+    Path directory = path.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+    try {
+      try (var channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+        var buffers = new ByteBuffer[]{header, bitset};
+        while (bitset.hasRemaining()) {
+          channel.write(buffers);
+        }
+        channel.force(true);
+      }
+      Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+}
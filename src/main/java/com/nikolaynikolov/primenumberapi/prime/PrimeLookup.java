@@ -0,0 +1,59 @@
+package com.nikolaynikolov.primenumberapi.prime;
+
+/**
+ * Answers for the prime numbers in range between 2 and {@link #getMax()}, either from the complete {@link PrimeIndex}
+ * or from the segments sieved on demand by {@link LazyPrimeIndex}.
+ * <p>
+ * Implementations are safe to share between the request threads once they have been published.
+ */
+public interface PrimeLookup {
+
+  int getMax();
+
+  /**
+   * @return the number of all primes up to {@link #getMax()}
+   */
+  int getPrimeCount();
+
+  /**
+   * @return true if the number is in range and can be answered
+   */
+  boolean covers(long number);
+
+  boolean isPrime(long number);
+
+  /**
+   * @return the smallest prime number bigger than the given one or -1 if it's bigger than {@link #getMax()}
+   */
+  int nextPrime(long number);
+
+  /**
+   * Prime-counting function π(x) - the number of primes which are not bigger than x.
+   *
+   * @param number the upper bound, it must not be bigger than {@link #getMax()}
+   */
+  int countPrimes(long number);
+
+  /**
+   * @return true if the primes up to the number have been counted, so {@link #countPrimes(long)} and
+   * {@link #nthPrime(long)} for them answer without sieving the range first
+   */
+  default boolean isCounted(long number) {
+    return true;
+  }
+
+  /**
+   * @return the number of primes in range between from and to, both inclusive
+   */
+  default int countPrimes(long from, long to) {
+    if (from > to) {
+      return 0;
+    }
+    return countPrimes(to) - countPrimes(Math.max(0, from - 1));
+  }
+
+  /**
+   * @return the n-th prime number (the first one is 2) or -1 if it's bigger than {@link #getMax()}
+   */
+  int nthPrime(long n);
+}
@@ -0,0 +1,192 @@
+package com.nikolaynikolov.primenumberapi.prime;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Memory-bounded cache of the sieved segments of a {@link LazyPrimeIndex}.
+ * <p>
+ * The segments are kept in fixed slots of a single buffer, allocated once for the whole budget either on the heap or as
+ * a direct buffer outside of it, so the slots are never allocated or freed - only a miss allocates a temporary array of
+ * a single segment to load it into. When all slots are used a segment is evicted with the CLOCK algorithm - every hit
+ * marks its slot as referenced and the hand clears the marks until it finds a slot which wasn't used since its last
+ * pass. That approximates LRU without reordering anything on a hit.
+ * <p>
+ * Lookups don't take a lock. The slot is read optimistically with a {@link StampedLock} and only read again under the
+ * read lock if a segment was installed meanwhile, so a {@link SegmentReader} must finish and must not fail for any
+ * content of the words. A missing segment is loaded by the calling thread outside of the lock and only copied to its
+ * slot under the write lock. Two threads which miss the same segment at once both load it, the later one finds it
+ * installed already.
+ */
+public final class SegmentCache {
+
+  @FunctionalInterface
+  public interface SegmentLoader {
+    /**
+     * Writes the words of the segment from the start of the given array.
+     */
+    void load(int segment, long[] words);
+  }
+
+  @FunctionalInterface
+  public interface SegmentReader {
+    /**
+     * @param words buffer with the words of the segment
+     * @param from  position of the first word of the segment in the buffer
+     */
+    long read(LongBuffer words, int from);
+  }
+
+  private final int wordsPerSegment;
+  private final int capacity;
+  private final boolean offHeap;
+  private final SegmentLoader loader;
+  private final LongBuffer slots;
+  // slotOf[segment] is the slot of a cached segment, -1 for the rest
+  private final int[] slotOf;
+  // segmentIn[slot] is the segment kept in the slot
+  private final int[] segmentIn;
+  // set by the hits without any lock - a lost update only makes the eviction a bit less accurate
+  private final boolean[] referenced;
+  private final StampedLock lock = new StampedLock();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private volatile int size;
+  private int hand;
+
+  /**
+   * @param segmentCount    the number of segments which can be requested
+   * @param wordsPerSegment the words of every segment
+   * @param maxBytes        memory for the segments, at least one segment is always kept
+   * @param offHeap         whether the segments are kept in a direct buffer instead of the heap
+   * @param loader          called on a miss to fill the words of the segment
+   */
+  public SegmentCache(int segmentCount, int wordsPerSegment, long maxBytes, boolean offHeap, SegmentLoader loader) {
+    long segmentBytes = (long) wordsPerSegment * Long.BYTES;
+    // a single buffer can't be bigger than 2 gb, which is already 16 times the whole bitset up to Integer.MAX_VALUE
+    long slotLimit = Math.min(segmentCount, Integer.MAX_VALUE / segmentBytes);
+    this.capacity = (int) Math.max(1, Math.min(slotLimit, maxBytes / segmentBytes));
+    this.wordsPerSegment = wordsPerSegment;
+    this.offHeap = offHeap;
+    this.loader = loader;
+    int words = capacity * wordsPerSegment;
+    this.slots = offHeap
+        ? ByteBuffer.allocateDirect(words * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer()
+        : LongBuffer.wrap(new long[words]);
+    this.slotOf = new int[segmentCount];
+    Arrays.fill(slotOf, -1);
+    this.segmentIn = new int[capacity];
+    this.referenced = new boolean[capacity];
+  }
+
+  /**
+   * Calls the reader with the words of the segment, which is loaded first if it isn't in the cache.
+   *
+   * @return the result of the reader
+   */
+  public long read(int segment, SegmentReader reader) {
+    long stamp = lock.tryOptimisticRead();
+    int slot = slotOf[segment];
+    if (slot != -1) {
+      long result = reader.read(slots, slot * wordsPerSegment);
+      if (!lock.validate(stamp)) {
+        stamp = lock.readLock();
+        try {
+          slot = slotOf[segment];
+          result = slot != -1 ? reader.read(slots, slot * wordsPerSegment) : 0;
+        } finally {
+          lock.unlockRead(stamp);
+        }
+      }
+      if (slot != -1) {
+        referenced[slot] = true;
+        hits.increment();
+        return result;
+      }
+    }
+
+    misses.increment();
+    var words = new long[wordsPerSegment];
+    loader.load(segment, words);
+    install(segment, words);
+    return reader.read(LongBuffer.wrap(words), 0);
+  }
+
+  public boolean contains(int segment) {
+    long stamp = lock.readLock();
+    try {
+      return slotOf[segment] != -1;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * @return the number of segments which fit in the budget
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public long getCapacityBytes() {
+    return (long) capacity * wordsPerSegment * Long.BYTES;
+  }
+
+  public boolean isOffHeap() {
+    return offHeap;
+  }
+
+  /**
+   * @return the number of cached segments
+   */
+  public int size() {
+    return size;
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  private void install(int segment, long[] words) {
+    long stamp = lock.writeLock();
+    try {
+      if (slotOf[segment] != -1) {
+        return;
+      }
+      int slot = size < capacity ? size++ : evict();
+      LongBuffer target = slots.duplicate();
+      target.position(slot * wordsPerSegment);
+      target.put(words);
+      slotOf[segment] = slot;
+      segmentIn[slot] = segment;
+      referenced[slot] = true;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  private int evict() {
+    while (referenced[hand]) {
+      referenced[hand] = false;
+      hand = (hand + 1) % capacity;
+    }
+    int slot = hand;
+    hand = (hand + 1) % capacity;
+    slotOf[segmentIn[slot]] = -1;
+    evictions.increment();
+    return slot;
+  }
+}
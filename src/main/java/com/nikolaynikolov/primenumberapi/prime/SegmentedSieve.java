@@ -0,0 +1,163 @@
+package com.nikolaynikolov.primenumberapi.prime;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Segmented Sieve of Eratosthenes over the odd numbers in range between 2 and max.
+ * <p>
+ * The odd-only bitset of the whole range is split to segments of a fixed number of bytes, which should fit in the L1 or
+ * L2 cache of the CPU. First all base primes up to √max are found with a plain sieve. Then every segment is sieved on its
+ * own with the base primes, so all the crossing off happens in memory which is already in the cache. The segments don't
+ * share any words, so they are processed in parallel on a {@link ForkJoinPool} without any synchronisation.
+ * Every worker claims the next segment from the {@link SieveProgress}, which also lets the finished segments be used
+ * while the rest of the range is still being sieved.
+ * <p>
+ * Complexity: O(N log(log N)) operations in total and O(√N) for the base primes.
+ * Memory: N / 16 bytes for the bitset, which becomes the {@link PrimeIndex}, and √N / 2 ints for the base primes.
+ */
+public class SegmentedSieve {
+
+  /**
+   * Called from the worker threads as soon as a segment is done.
+   */
+  @FunctionalInterface
+  public interface SegmentListener {
+    void onSegmentComplete(SieveSegment segment);
+  }
+
+  private final int max;
+  private final int wordsPerSegment;
+  private final long[] words;
+  private final int segmentCount;
+  private final SieveProgress progress;
+
+  /**
+   * @param max          the biggest number to sieve, at least 2
+   * @param segmentBytes the size of the bitset processed at once, rounded down to whole 64 bit words
+   */
+  public SegmentedSieve(int max, int segmentBytes) {
+    if (max < 2) {
+      throw new IllegalArgumentException("Max must be at least 2: " + max);
+    }
+    this.max = max;
+    this.wordsPerSegment = Math.max(1, segmentBytes / Long.BYTES);
+    this.words = PrimeIndex.wordsFor(max);
+    this.segmentCount = (words.length + wordsPerSegment - 1) / wordsPerSegment;
+    this.progress = new SieveProgress(words, max, wordsPerSegment, segmentCount);
+  }
+
+  public int getSegmentCount() {
+    return segmentCount;
+  }
+
+  public SieveProgress getProgress() {
+    return progress;
+  }
+
+  /**
+   * Sieves all segments on the given pool and blocks until they are done. A sieve can only be run once.
+   *
+   * @return the index with all prime numbers up to max
+   */
+  public PrimeIndex run(ForkJoinPool pool, SegmentListener listener) {
+    int[] basePrimes = oddPrimesUpTo((int) Math.sqrt(max));
+    var workers = new ArrayList<Callable<Void>>();
+    for (int i = 0; i < Math.min(pool.getParallelism(), segmentCount); i++) {
+      workers.add(() -> {
+        sieveSegments(basePrimes, listener);
+        return null;
+      });
+    }
+    for (var result : pool.invokeAll(workers)) {
+      try {
+        result.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while sieving", e);
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Sieving failed", e.getCause());
+      }
+    }
+    return new PrimeIndex(words, max);
+  }
+
+  /**
+   * Plain Sieve of Eratosthenes for the small base primes.
+   */
+  static int[] oddPrimesUpTo(int limit) {
+    var composite = new boolean[limit + 1];
+    var primes = new int[Math.max(0, limit / 2)];
+    int count = 0;
+    for (int i = 3; i <= limit; i += 2) {
+      if (!composite[i]) {
+        primes[count++] = i;
+        for (long j = (long) i * i; j <= limit; j += 2L * i) {
+          composite[(int) j] = true;
+        }
+      }
+    }
+    var result = new int[count];
+    System.arraycopy(primes, 0, result, 0, count);
+    return result;
+  }
+
+  private void sieveSegments(int[] basePrimes, SegmentListener listener) {
+    int segment;
+    while ((segment = progress.claimNext()) != -1) {
+      sieveSegment(basePrimes, segment);
+      progress.markDone(segment);
+      int fromWord = segment * wordsPerSegment;
+      listener.onSegmentComplete(new SieveSegment(segment, words, fromWord,
+          Math.min(fromWord + wordsPerSegment, words.length), max));
+    }
+  }
+
+  private void sieveSegment(int[] basePrimes, int segment) {
+    int fromWord = segment * wordsPerSegment;
+    sieveWords(basePrimes, max, words, 0, fromWord, Math.min(fromWord + wordsPerSegment, words.length));
+  }
+
+  /**
+   * Sieves the words in range between fromWord (inclusive) and toWord (exclusive) of the odd-only bitset up to max.
+   * Word {@code i} of the bitset is written to {@code words[i - offset]}, so a single segment can be sieved into an
+   * array of its own as well.
+   */
+  static void sieveWords(int[] basePrimes, int max, long[] words, int offset, int fromWord, int toWord) {
+    long fromBit = (long) fromWord << 6;
+    // bit of the last odd number which is not bigger than max
+    long toBit = Math.min((long) toWord << 6, (max - 1L) / 2 + 1);
+
+    for (int word = fromWord; word < toWord; word++) {
+      words[word - offset] = -1L;
+    }
+    if (fromWord == 0) {
+      // 1 is not a prime number
+      words[-offset] &= ~1L;
+    }
+
+    for (int p : basePrimes) {
+      long square = (long) p * p;
+      if (square > max) {
+        break;
+      }
+      // first odd multiple of p inside the segment, but not smaller than p * p
+      long fromNumber = fromBit * 2 + 1;
+      long multiple = Math.max(square, (fromNumber + p - 1) / p * p);
+      if ((multiple & 1) == 0) {
+        multiple += p;
+      }
+      // in the odd-only bitset consecutive odd multiples are p bits apart
+      for (long bit = multiple >>> 1; bit < toBit; bit += p) {
+        words[(int) (bit >>> 6) - offset] &= ~(1L << bit);
+      }
+    }
+
+    // clear the tail of the last word which is above max
+    for (long bit = Math.max(toBit, fromBit); bit < (long) toWord << 6; bit++) {
+      words[(int) (bit >>> 6) - offset] &= ~(1L << bit);
+    }
+  }
+}
@@ -0,0 +1,137 @@
+package com.nikolaynikolov.primenumberapi.prime;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Live view over a running {@link SegmentedSieve}, so the prime numbers can be served before the whole range is done.
+ * <p>
+ * Every segment is pending, being sieved or done. The words of a segment are written before it is marked as done, so a
+ * reader which sees the done state also sees the final words of the segment and can answer from the shared bitset.
+ * <p>
+ * Every lookup in a segment which is not done yet is counted. The sieve takes the pending segment with the most lookups
+ * first and only then continues in ascending order, so the numbers which receive traffic are served locally sooner.
+ */
+public final class SieveProgress {
+
+  private static final int PENDING = 0;
+  private static final int SIEVING = 1;
+  private static final int DONE = 2;
+
+  private final long[] words;
+  private final int max;
+  private final int wordsPerSegment;
+  private final int segmentCount;
+  private final AtomicIntegerArray states;
+  private final AtomicIntegerArray demand;
+  private final Set<Integer> requested = ConcurrentHashMap.newKeySet();
+  private final AtomicInteger nextInOrder = new AtomicInteger();
+  private final AtomicInteger doneCount = new AtomicInteger();
+
+  SieveProgress(long[] words, int max, int wordsPerSegment, int segmentCount) {
+    this.words = words;
+    this.max = max;
+    this.wordsPerSegment = wordsPerSegment;
+    this.segmentCount = segmentCount;
+    this.states = new AtomicIntegerArray(segmentCount);
+    this.demand = new AtomicIntegerArray(segmentCount);
+  }
+
+  public int getMax() {
+    return max;
+  }
+
+  public int getSegmentCount() {
+    return segmentCount;
+  }
+
+  public int getDoneSegmentCount() {
+    return doneCount.get();
+  }
+
+  /**
+   * @return true if the number is in range and its segment is already sieved, otherwise the lookup is counted towards
+   * the priority of the segment
+   */
+  public boolean isSieved(long number) {
+    if (number < 0 || number > max) {
+      return false;
+    }
+    int segment = segmentOf(number);
+    if (states.get(segment) == DONE) {
+      return true;
+    }
+    if (demand.getAndIncrement(segment) == 0) {
+      requested.add(segment);
+    }
+    return false;
+  }
+
+  /**
+   * Only valid for numbers for which {@link #isSieved(long)} has returned true.
+   */
+  public boolean isPrime(long number) {
+    if (number < 2) {
+      return false;
+    }
+    if ((number & 1) == 0) {
+      return number == 2;
+    }
+    int bit = (int) (number >>> 1);
+    return (words[bit >>> 6] & (1L << bit)) != 0;
+  }
+
+  /**
+   * Claims the next segment to be sieved - the pending segment with the most lookups or the next one in order.
+   *
+   * @return the segment or -1 if all segments are claimed
+   */
+  int claimNext() {
+    int segment = claimMostRequested();
+    if (segment != -1) {
+      return segment;
+    }
+    while (true) {
+      segment = nextInOrder.getAndIncrement();
+      if (segment >= segmentCount) {
+        return -1;
+      }
+      if (states.compareAndSet(segment, PENDING, SIEVING)) {
+        return segment;
+      }
+    }
+  }
+
+  void markDone(int segment) {
+    states.set(segment, DONE);
+    doneCount.incrementAndGet();
+  }
+
+  private int claimMostRequested() {
+    while (!requested.isEmpty()) {
+      int best = -1;
+      int bestDemand = 0;
+      for (int segment : requested) {
+        int segmentDemand = demand.get(segment);
+        if (segmentDemand > bestDemand) {
+          best = segment;
+          bestDemand = segmentDemand;
+        }
+      }
+      if (best == -1) {
+        return -1;
+      }
+      requested.remove(best);
+      if (states.compareAndSet(best, PENDING, SIEVING)) {
+        return best;
+      }
+    }
+    return -1;
+  }
+
+  private int segmentOf(long number) {
+    return (int) ((number >>> 1) >>> 6) / wordsPerSegment;
+  }
+}
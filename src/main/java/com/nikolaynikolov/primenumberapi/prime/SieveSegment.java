@@ -0,0 +1,81 @@
+package com.nikolaynikolov.primenumberapi.prime;
+
+import java.util.function.IntConsumer;
+
+/**
+ * A finished, word aligned part of the odd-only bitset produced by {@link SegmentedSieve}.
+ * The segment only gives a view over the shared bitset, the words in it are not modified anymore.
+ */
+public final class SieveSegment {
+
+  private final int index;
+  private final long[] words;
+  private final int fromWord;
+  private final int toWord;
+  private final int max;
+
+  SieveSegment(int index, long[] words, int fromWord, int toWord, int max) {
+    this.index = index;
+    this.words = words;
+    this.fromWord = fromWord;
+    this.toWord = toWord;
+    this.max = max;
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  /**
+   * @return the first number covered by the segment
+   */
+  public int getFrom() {
+    return fromWord == 0 ? 2 : fromWord * 128 + 1;
+  }
+
+  /**
+   * @return the last number covered by the segment
+   */
+  public int getTo() {
+    return (int) Math.min(toWord * 128L - 1, max);
+  }
+
+  public long[] getWords() {
+    return words;
+  }
+
+  public int getFromWord() {
+    return fromWord;
+  }
+
+  public int getToWord() {
+    return toWord;
+  }
+
+  /**
+   * @return the number of primes in the segment, including 2 for the first one
+   */
+  public int getPrimeCount() {
+    int count = fromWord == 0 && max >= 2 ? 1 : 0;
+    for (int word = fromWord; word < toWord; word++) {
+      count += Long.bitCount(words[word]);
+    }
+    return count;
+  }
+
+  /**
+   * Calls the consumer with every prime number of the segment in ascending order, including 2 for the first one.
+   */
+  public void forEachPrime(IntConsumer consumer) {
+    if (fromWord == 0 && max >= 2) {
+      consumer.accept(2);
+    }
+    for (int word = fromWord; word < toWord; word++) {
+      long w = words[word];
+      while (w != 0) {
+        consumer.accept(((word << 6) + Long.numberOfTrailingZeros(w)) * 2 + 1);
+        w &= w - 1;
+      }
+    }
+  }
+}
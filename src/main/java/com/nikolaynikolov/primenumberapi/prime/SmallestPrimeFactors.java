@@ -0,0 +1,154 @@
+package com.nikolaynikolov.primenumberapi.prime;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Table of the smallest prime factor of every number up to {@link #getMax()}, so a number is factorized with one lookup
+ * per prime factor - O(log N).
+ * <p>
+ * The table is wheel compressed. Factors 2, 3 and 5 are divided out directly, so only the 8 of every 30 numbers which
+ * are coprime to 30 are stored. The smallest prime factor of a composite number is at most √N, which fits in a char for
+ * any int N, and 0 marks the prime numbers. For a max of 10_000_000 that is 2_666_672 chars ~ 5,3 mb.
+ * <p>
+ * The table is filled in blocks on a {@link ForkJoinPool}, every block is crossed off by the base primes in ascending
+ * order, so the first prime which reaches a number is its smallest prime factor. An instance is never modified after
+ * {@link #build(int, ForkJoinPool)} has returned.
+ */
+public final class SmallestPrimeFactors {
+
+  private static final int WHEEL = 30;
+  private static final int[] RESIDUES = {1, 7, 11, 13, 17, 19, 23, 29};
+  // RESIDUE_INDEX[n % 30] is the position of n in its wheel turn, -1 if n is not coprime to 30
+  private static final int[] RESIDUE_INDEX = new int[WHEEL];
+  // numbers crossed off at once, 32_768 wheel turns ~ 512 kb of the table
+  private static final int BLOCK_SIZE = WHEEL * 32 * 1024;
+
+  static {
+    Arrays.fill(RESIDUE_INDEX, -1);
+    for (int i = 0; i < RESIDUES.length; i++) {
+      RESIDUE_INDEX[RESIDUES[i]] = i;
+    }
+  }
+
+  private final char[] factors;
+  private final int max;
+
+  private SmallestPrimeFactors(char[] factors, int max) {
+    this.factors = factors;
+    this.max = max;
+  }
+
+  /**
+   * Builds the table on the given pool and blocks until it's done.
+   *
+   * @param max the biggest number in the table, at least 2
+   */
+  public static SmallestPrimeFactors build(int max, ForkJoinPool pool) {
+    if (max < 2) {
+      throw new IllegalArgumentException("Max must be at least 2: " + max);
+    }
+    var factors = new char[(max / WHEEL + 1) * RESIDUES.length];
+    int[] basePrimes = SegmentedSieve.oddPrimesUpTo((int) Math.sqrt(max));
+    int blockCount = (int) ((max + (long) BLOCK_SIZE) / BLOCK_SIZE);
+    var nextBlock = new AtomicInteger();
+    var workers = new ArrayList<Callable<Void>>();
+    for (int i = 0; i < Math.min(pool.getParallelism(), blockCount); i++) {
+      workers.add(() -> {
+        int block;
+        while ((block = nextBlock.getAndIncrement()) < blockCount) {
+          long from = (long) block * BLOCK_SIZE;
+          fillBlock(factors, basePrimes, from, Math.min(from + BLOCK_SIZE - 1, max));
+        }
+        return null;
+      });
+    }
+    for (var result : pool.invokeAll(workers)) {
+      try {
+        result.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while building the smallest prime factors", e);
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Building the smallest prime factors failed", e.getCause());
+      }
+    }
+    return new SmallestPrimeFactors(factors, max);
+  }
+
+  public int getMax() {
+    return max;
+  }
+
+  public boolean covers(long number) {
+    return number >= 2 && number <= max;
+  }
+
+  /**
+   * @param number a number in range between 2 and {@link #getMax()}
+   * @return the prime factors in ascending order, every one repeated by its multiplicity
+   */
+  public long[] factorize(long number) {
+    if (!covers(number)) {
+      throw new IllegalArgumentException("Number is not in range between 2 and " + max + ": " + number);
+    }
+    var result = new long[Long.SIZE];
+    int count = 0;
+    int n = (int) number;
+    while ((n & 1) == 0) {
+      result[count++] = 2;
+      n >>>= 1;
+    }
+    while (n % 3 == 0) {
+      result[count++] = 3;
+      n /= 3;
+    }
+    while (n % 5 == 0) {
+      result[count++] = 5;
+      n /= 5;
+    }
+    while (n > 1) {
+      int factor = factors[indexOf(n)];
+      if (factor == 0) {
+        factor = n;
+      }
+      result[count++] = factor;
+      n /= factor;
+    }
+    return Arrays.copyOf(result, count);
+  }
+
+  private static void fillBlock(char[] factors, int[] basePrimes, long from, long to) {
+    for (int p : basePrimes) {
+      long square = (long) p * p;
+      if (square > to) {
+        break;
+      }
+      // 3 and 5 are divided out before the table is used
+      if (p < 7) {
+        continue;
+      }
+      long multiple = Math.max(square, (from + p - 1) / p * p);
+      if ((multiple & 1) == 0) {
+        multiple += p;
+      }
+      for (; multiple <= to; multiple += 2L * p) {
+        int residue = RESIDUE_INDEX[(int) (multiple % WHEEL)];
+        if (residue != -1) {
+          int index = (int) (multiple / WHEEL) * RESIDUES.length + residue;
+          if (factors[index] == 0) {
+            factors[index] = (char) p;
+          }
+        }
+      }
+    }
+  }
+
+  private static int indexOf(int number) {
+    return number / WHEEL * RESIDUES.length + RESIDUE_INDEX[number % WHEEL];
+  }
+}
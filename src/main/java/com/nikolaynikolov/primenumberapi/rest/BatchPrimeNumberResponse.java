@@ -0,0 +1,18 @@
+package com.nikolaynikolov.primenumberapi.rest;
+
+import lombok.Data;
+
+@Data
+public class BatchPrimeNumberResponse {
+
+  // primes[i] is the answer for the i-th number of the request
+  private boolean[] primes;
+
+  public BatchPrimeNumberResponse(boolean[] primes) {
+    this.primes = primes;
+  }
+
+  public BatchPrimeNumberResponse() {
+    // Jackson serialization constructor
+  }
+}
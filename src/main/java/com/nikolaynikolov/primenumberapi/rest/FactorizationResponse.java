@@ -0,0 +1,20 @@
+package com.nikolaynikolov.primenumberapi.rest;
+
+import lombok.Data;
+
+@Data
+public class FactorizationResponse {
+
+  private Long number;
+  // the prime factors in ascending order, every one repeated by its multiplicity
+  private long[] factors;
+
+  public FactorizationResponse(Long number, long[] factors) {
+    this.number = number;
+    this.factors = factors;
+  }
+
+  public FactorizationResponse() {
+    // Jackson serialization constructor
+  }
+}
@@ -5,10 +5,10 @@ import lombok.Data;
 @Data
 public class NextPrimeNumberResponse {
 
-  private Integer nextPrime;
-  private Integer number;
+  private Long nextPrime;
+  private Long number;
 
-  public NextPrimeNumberResponse(Integer nextPrime, Integer number) {
+  public NextPrimeNumberResponse(Long nextPrime, Long number) {
     this.nextPrime = nextPrime;
     this.number = number;
   }
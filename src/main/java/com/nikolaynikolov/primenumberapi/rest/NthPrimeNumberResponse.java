@@ -0,0 +1,19 @@
+package com.nikolaynikolov.primenumberapi.rest;
+
+import lombok.Data;
+
+@Data
+public class NthPrimeNumberResponse {
+
+  private Integer prime;
+  private Integer n;
+
+  public NthPrimeNumberResponse(Integer prime, Integer n) {
+    this.prime = prime;
+    this.n = n;
+  }
+
+  public NthPrimeNumberResponse() {
+    // Jackson serialization constructor
+  }
+}
@@ -0,0 +1,65 @@
+package com.nikolaynikolov.primenumberapi.rest;
+
+import com.nikolaynikolov.primenumberapi.NotSupportedNumberException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Parsing and validation of the path and query arguments, shared by the servlet and the reactive controllers.
+ */
+@Slf4j
+final class NumberArguments {
+
+  private NumberArguments() {
+  }
+
+  static long validateNumber(String number) {
+    try {
+      long num = Long.parseLong(number);
+      if (num < 2) {
+        log.info("The passed number is not in the valid bounds");
+        throw new NotSupportedNumberException("The provided number is invalid. Please provide a number between 2 and " + Long.MAX_VALUE);
+      }
+      return num;
+    } catch (NumberFormatException e) {
+      log.error("Passed number is invalid", e);
+      throw new NotSupportedNumberException("Invalid number: " + number);
+    }
+  }
+
+  static int parseNth(String n, int primeCount) {
+    try {
+      int num = Integer.parseInt(n);
+      if (num < 1 || num > primeCount) {
+        log.info("The passed n is not in the valid bounds");
+        throw new NotSupportedNumberException("The provided n is invalid. Please provide a number between 1 and " + primeCount);
+      }
+      return num;
+    } catch (NumberFormatException e) {
+      log.error("Passed number is invalid", e);
+      throw new NotSupportedNumberException("Invalid number: " + n);
+    }
+  }
+
+  static int validateRangeBound(String number, int max) {
+    try {
+      int num = Integer.parseInt(number);
+      if (num < 2 || num > max) {
+        log.info("The passed range is not in the valid bounds");
+        throw new NotSupportedNumberException("The provided range is invalid. Please provide numbers between 2 and " + max);
+      }
+      return num;
+    } catch (NumberFormatException e) {
+      log.error("Passed number is invalid", e);
+      throw new NotSupportedNumberException("Invalid number: " + number);
+    }
+  }
+
+  static void validateBatch(long[] numbers) {
+    for (int i = 0; i < numbers.length; i++) {
+      if (numbers[i] < 2) {
+        throw new NotSupportedNumberException("The provided number at position " + i + " is invalid. " +
+            "Please provide numbers between 2 and " + Long.MAX_VALUE);
+      }
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package com.nikolaynikolov.primenumberapi.rest;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractEncoder;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Writes the responses in the {@link PrimeBinaryFormat} on the reactive stack, every response into a buffer of its
+ * exact size.
+ */
+public class PrimeBinaryEncoder extends AbstractEncoder<Object> {
+
+  public PrimeBinaryEncoder() {
+    super(MimeType.valueOf(PrimeBinaryFormat.MEDIA_TYPE));
+  }
+
+  @Override
+  public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+    return super.canEncode(elementType, mimeType) && PrimeBinaryFormat.supports(elementType.toClass());
+  }
+
+  @Override
+  public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory, ResolvableType elementType,
+                                 MimeType mimeType, Map<String, Object> hints) {
+    return Flux.from(inputStream).map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints));
+  }
+
+  @Override
+  public DataBuffer encodeValue(Object value, DataBufferFactory bufferFactory, ResolvableType valueType,
+                                MimeType mimeType, Map<String, Object> hints) {
+    DataBuffer buffer = bufferFactory.allocateBuffer(PrimeBinaryFormat.sizeOf(value));
+    try {
+      PrimeBinaryFormat.write(value, buffer.asOutputStream());
+      return buffer;
+    } catch (IOException | RuntimeException e) {
+      DataBufferUtils.release(buffer);
+      throw new EncodingException("Couldn't write " + value + " as " + PrimeBinaryFormat.MEDIA_TYPE, e);
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package com.nikolaynikolov.primenumberapi.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary layout of the single number responses, for callers which don't need JSON. It's selected with
+ * Accept: application/x-prime-binary and all numbers are little-endian:
+ * <ul>
+ * <li>{@link PrimeNumberResponse} - the number as 8 bytes, then 1 byte, 1 if it's prime and 0 otherwise</li>
+ * <li>{@link NextPrimeNumberResponse} - the number as 8 bytes, then the next prime number as 8 bytes</li>
+ * <li>{@link FactorizationResponse} - the number as 8 bytes, then every prime factor as 8 bytes until the end of the
+ * body</li>
+ * <li>{@link ApiError} - the status as 4 bytes, then the message in UTF-8 until the end of the body</li>
+ * </ul>
+ * The bytes are written one at a time straight into the output, so a response doesn't allocate anything on top of the
+ * buffer of the output.
+ */
+public final class PrimeBinaryFormat {
+
+  public static final String MEDIA_TYPE = "application/x-prime-binary";
+
+  static final int PRIME_NUMBER_SIZE = Long.BYTES + 1;
+  static final int NEXT_PRIME_NUMBER_SIZE = Long.BYTES * 2;
+
+  private PrimeBinaryFormat() {
+  }
+
+  static boolean supports(Class<?> type) {
+    return type == PrimeNumberResponse.class || type == NextPrimeNumberResponse.class
+        || type == FactorizationResponse.class || type == ApiError.class;
+  }
+
+  static int sizeOf(Object value) {
+    if (value instanceof PrimeNumberResponse) {
+      return PRIME_NUMBER_SIZE;
+    }
+    if (value instanceof NextPrimeNumberResponse) {
+      return NEXT_PRIME_NUMBER_SIZE;
+    }
+    if (value instanceof FactorizationResponse) {
+      return Long.BYTES * (1 + ((FactorizationResponse) value).getFactors().length);
+    }
+    return Integer.BYTES + messageOf((ApiError) value).length;
+  }
+
+  static void write(Object value, OutputStream out) throws IOException {
+    if (value instanceof PrimeNumberResponse) {
+      var response = (PrimeNumberResponse) value;
+      writeLong(out, response.getNumber());
+      out.write(response.isPrime() ? 1 : 0);
+    } else if (value instanceof NextPrimeNumberResponse) {
+      var response = (NextPrimeNumberResponse) value;
+      writeLong(out, response.getNumber());
+      writeLong(out, response.getNextPrime());
+    } else if (value instanceof FactorizationResponse) {
+      var response = (FactorizationResponse) value;
+      writeLong(out, response.getNumber());
+      for (long factor : response.getFactors()) {
+        writeLong(out, factor);
+      }
+    } else {
+      var error = (ApiError) value;
+      writeInt(out, error.getStatus());
+      out.write(messageOf(error));
+    }
+  }
+
+  private static void writeLong(OutputStream out, long value) throws IOException {
+    for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+      out.write((int) (value >>> shift));
+    }
+  }
+
+  private static void writeInt(OutputStream out, int value) throws IOException {
+    for (int shift = 0; shift < Integer.SIZE; shift += Byte.SIZE) {
+      out.write(value >>> shift);
+    }
+  }
+
+  private static byte[] messageOf(ApiError error) {
+    return error.getMessage() == null ? new byte[0] : error.getMessage().getBytes(StandardCharsets.UTF_8);
+  }
+}
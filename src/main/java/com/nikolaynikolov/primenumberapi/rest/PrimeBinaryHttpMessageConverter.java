@@ -0,0 +1,46 @@
+package com.nikolaynikolov.primenumberapi.rest;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+
+/**
+ * Writes the responses in the {@link PrimeBinaryFormat} on the servlet stack. The format is only used for responses,
+ * so nothing is read with it.
+ */
+public class PrimeBinaryHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+  public PrimeBinaryHttpMessageConverter() {
+    super(MediaType.parseMediaType(PrimeBinaryFormat.MEDIA_TYPE));
+  }
+
+  @Override
+  protected boolean supports(Class<?> clazz) {
+    return PrimeBinaryFormat.supports(clazz);
+  }
+
+  @Override
+  public boolean canRead(Class<?> clazz, MediaType mediaType) {
+    return false;
+  }
+
+  @Override
+  protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+    throw new HttpMessageNotReadableException("Request bodies can't be read as " + PrimeBinaryFormat.MEDIA_TYPE,
+        inputMessage);
+  }
+
+  @Override
+  protected Long getContentLength(Object value, MediaType contentType) {
+    return (long) PrimeBinaryFormat.sizeOf(value);
+  }
+
+  @Override
+  protected void writeInternal(Object value, HttpOutputMessage outputMessage) throws IOException {
+    PrimeBinaryFormat.write(value, outputMessage.getBody());
+  }
+}
@@ -0,0 +1,21 @@
+package com.nikolaynikolov.primenumberapi.rest;
+
+import lombok.Data;
+
+@Data
+public class PrimeCountResponse {
+
+  private Integer count;
+  private Integer from;
+  private Integer to;
+
+  public PrimeCountResponse(Integer count, Integer from, Integer to) {
+    this.count = count;
+    this.from = from;
+    this.to = to;
+  }
+
+  public PrimeCountResponse() {
+    // Jackson serialization constructor
+  }
+}
@@ -1,137 +1,467 @@
 package com.nikolaynikolov.primenumberapi.rest;
 
 import com.nikolaynikolov.primenumberapi.NotSupportedNumberException;
+import com.nikolaynikolov.primenumberapi.PrimeIndexNotReadyException;
 import com.nikolaynikolov.primenumberapi.TooManyRequestsException;
-import com.nikolaynikolov.primenumberapi.configuration.PrimeCalculationConfig;
+import com.nikolaynikolov.primenumberapi.configuration.RateLimitConfig;
+import com.nikolaynikolov.primenumberapi.metrics.RequestMetrics;
+import com.nikolaynikolov.primenumberapi.metrics.RequestMetrics.Endpoint;
+import com.nikolaynikolov.primenumberapi.metrics.RequestMetrics.Phase;
+import com.nikolaynikolov.primenumberapi.metrics.RequestTiming;
 import com.nikolaynikolov.primenumberapi.service.CacheService;
+import com.nikolaynikolov.primenumberapi.service.RateLimitResult;
 import com.nikolaynikolov.primenumberapi.service.RateLimitService;
-import io.micrometer.core.instrument.MeterRegistry;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
-import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
-import java.util.concurrent.ExecutionException;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.function.LongFunction;
+
+import static com.nikolaynikolov.primenumberapi.rest.NumberArguments.parseNth;
+import static com.nikolaynikolov.primenumberapi.rest.NumberArguments.validateBatch;
+import static com.nikolaynikolov.primenumberapi.rest.NumberArguments.validateNumber;
+import static com.nikolaynikolov.primenumberapi.rest.NumberArguments.validateRangeBound;
 
-@Slf4j
 @RestController
 @RequestMapping("primes/api/v1")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @Api(value = "prime-number-api")
 public class PrimeNumberApiController {
 
-  private static final String NUMBER_INPUT_COUNTER = "number_input_counter";
-  private static final String NUMBER_INPUT_TAG = "number_input";
-  private static final String REQUEST_COUNTER = "request_counter";
-  private static final String ENDPOINT_NAME_TAG = "endpoint_name";
-  private static final String ENDPOINT_NAME_IF_PRIME_VALUE = "checkIfPrimeNumber";
-  private static final String ENDPOINT_NAME_NEXT_PRIME_VALUE = "nextPrimeNumber";
-  private static final String STATUS_CODE_TAG = "status_code";
-  private static final String USER_KEY_TAG = "user_key";
+  private static final int RANGE_BUFFER_SIZE = 8 * 1024;
+  private static final String RATE_LIMIT_LIMIT_HEADER = "X-RateLimit-Limit";
+  private static final String RATE_LIMIT_REMAINING_HEADER = "X-RateLimit-Remaining";
 
   private final CacheService cacheService;
   private final RateLimitService rateLimitService;
-  private final PrimeCalculationConfig primeCalculationConfig;
-  private final MeterRegistry meterRegistry;
+  private final RateLimitConfig rateLimitConfig;
+  private final RequestMetrics requestMetrics;
+  private final ResponseCache responseCache;
 
   @Autowired
   public PrimeNumberApiController(CacheService cacheService,
                                   RateLimitService rateLimitService,
-                                  PrimeCalculationConfig primeCalculationConfig,
-                                  MeterRegistry meterRegistry) {
+                                  RateLimitConfig rateLimitConfig,
+                                  RequestMetrics requestMetrics,
+                                  ResponseCache responseCache) {
     this.cacheService = cacheService;
     this.rateLimitService = rateLimitService;
-    this.primeCalculationConfig = primeCalculationConfig;
-    this.meterRegistry = meterRegistry;
+    this.rateLimitConfig = rateLimitConfig;
+    this.requestMetrics = requestMetrics;
+    this.responseCache = responseCache;
   }
 
   @ApiOperation(
-      value = "Endpoint will check if a given number is a prime number in range between 2 and 10 000 000",
+      value = "Endpoint will check if a given number is a prime number in range between 2 and 9 223 372 036 854 775 807",
+      notes = "Numbers up to prime.max (10 000 000) are looked up in the precomputed table, bigger numbers are checked with " +
+          "a deterministic Miller-Rabin test. With Accept: application/x-prime-binary the response is the number as 8 " +
+          "little-endian bytes followed by 1 byte, 1 for prime numbers and 0 otherwise.",
       response = PrimeNumberResponse.class)
   @ApiResponses(value = {
       @ApiResponse(code = 200, message = "Check for prime number was successful"),
+      @ApiResponse(code = 304, message = "The answer with the ETag from If-None-Match is still valid"),
       @ApiResponse(code = 400, message = "The provided number string contains invalid characters or is not in range between 2 " +
-          "and 10 000 000"),
+          "and 9 223 372 036 854 775 807"),
+      @ApiResponse(code = 429, message = "Rate limits were exceeded")
+  })
+  @RequestMapping(path = "/{number}", method = RequestMethod.GET,
+      produces = {MediaType.APPLICATION_JSON, PrimeBinaryFormat.MEDIA_TYPE})
+  public ResponseEntity<byte[]> checkIfPrimeNumber(@PathVariable String number,
+                                                   @Context HttpServletRequest request) {
+    var timing = requestMetrics.startTiming(request, Endpoint.CHECK_IF_PRIME);
+    return immutableAnswer(number, request, timing, num -> new PrimeNumberResponse(cacheService.checkIfPrimeNumber(num), num));
+  }
+
+  @ApiOperation(
+      value = "Endpoint will return next prime number in range between 2 and 9 223 372 036 854 775 807",
+      notes = "With Accept: application/x-prime-binary the response is the number followed by the next prime number, " +
+          "both as 8 little-endian bytes.",
+      response = NextPrimeNumberResponse.class)
+  @ApiResponses(value = {
+      @ApiResponse(code = 200, message = "Check for next prime number was successful"),
+      @ApiResponse(code = 304, message = "The answer with the ETag from If-None-Match is still valid"),
+      @ApiResponse(code = 400,
+          message = "The provided number string contains invalid characters, is not in range between 2 and " +
+              "9 223 372 036 854 775 807 or there is no bigger prime number in that range"),
+      @ApiResponse(code = 429, message = "Rate limits were exceeded")
+  })
+  @RequestMapping(path = "/next/{number}", method = RequestMethod.GET,
+      produces = {MediaType.APPLICATION_JSON, PrimeBinaryFormat.MEDIA_TYPE})
+  public ResponseEntity<byte[]> getNextPrimeNumber(@PathVariable String number,
+                                                   @Context HttpServletRequest request) {
+    var timing = requestMetrics.startTiming(request, Endpoint.NEXT_PRIME);
+    return immutableAnswer(number, request, timing, num -> {
+      var nextPrime = cacheService.getNextPrimeNumber(num);
+      if (nextPrime == null) {
+        throw new NotSupportedNumberException("There is no prime number bigger than " + num + " up to " + Long.MAX_VALUE);
+      }
+      return new NextPrimeNumberResponse(nextPrime, num);
+    });
+  }
+
+  @ApiOperation(
+      value = "Endpoint will check if each of the given numbers is a prime number in range between 2 and " +
+          "9 223 372 036 854 775 807",
+      notes = "Accepts a JSON array of numbers and responds with an array of answers in the same order. " +
+          "Every 1000 numbers (rl.batchNumbersPerPermit) count as one request for the rate limits.",
+      response = BatchPrimeNumberResponse.class)
+  @ApiResponses(value = {
+      @ApiResponse(code = 200, message = "Check for prime numbers was successful"),
+      @ApiResponse(code = 400, message = "Some of the provided numbers are not in range between 2 and " +
+          "9 223 372 036 854 775 807 or there are too many numbers"),
       @ApiResponse(code = 429, message = "Rate limits were exceeded")
   })
-  @RequestMapping(path = "/{number}", method = RequestMethod.GET, produces = {MediaType.APPLICATION_JSON})
-  public PrimeNumberResponse checkIfPrimeNumber(@PathVariable String number,
-                                                @Context HttpServletRequest request) throws ExecutionException, InterruptedException {
+  @RequestMapping(path = "/batch", method = RequestMethod.POST,
+      consumes = {MediaType.APPLICATION_JSON}, produces = {MediaType.APPLICATION_JSON})
+  public BatchPrimeNumberResponse batchCheckIfPrimeNumbers(@RequestBody long[] numbers,
+                                                           @Context HttpServletRequest request) {
+    var timing = requestMetrics.startTiming(request, Endpoint.BATCH);
+    return new BatchPrimeNumberResponse(checkIfPrimeNumbers(numbers, getUserKey(request), timing));
+  }
+
+  @ApiOperation(
+      value = "Binary version of the batch check - the request body is a sequence of 8 byte big-endian numbers, " +
+          "the response body has one byte for each of them, 1 for prime numbers and 0 otherwise")
+  @ApiResponses(value = {
+      @ApiResponse(code = 200, message = "Check for prime numbers was successful"),
+      @ApiResponse(code = 400, message = "The body is not a sequence of 8 byte numbers, some of the provided numbers are " +
+          "not in range between 2 and 9 223 372 036 854 775 807 or there are too many numbers"),
+      @ApiResponse(code = 429, message = "Rate limits were exceeded")
+  })
+  @RequestMapping(path = "/batch", method = RequestMethod.POST,
+      consumes = {MediaType.APPLICATION_OCTET_STREAM}, produces = {MediaType.APPLICATION_OCTET_STREAM})
+  public byte[] batchCheckIfPrimeNumbersBinary(@RequestBody byte[] body,
+                                               @Context HttpServletRequest request) {
+    var timing = requestMetrics.startTiming(request, Endpoint.BATCH);
+    String userKey = getUserKey(request);
+    if (body.length % Long.BYTES != 0) {
+      sendRequestMetric(userKey, 400, Endpoint.BATCH);
+      throw new NotSupportedNumberException("The body length must be a multiple of " + Long.BYTES + " bytes");
+    }
+    var numbers = new long[body.length / Long.BYTES];
+    ByteBuffer.wrap(body).asLongBuffer().get(numbers);
+
+    var primes = checkIfPrimeNumbers(numbers, userKey, timing);
+    var result = new byte[primes.length];
+    for (int i = 0; i < primes.length; i++) {
+      result[i] = (byte) (primes[i] ? 1 : 0);
+    }
+    return result;
+  }
+
+  @ApiOperation(
+      value = "Endpoint will stream all prime numbers in range between from and to (both inclusive) as new line " +
+          "delimited JSON",
+      notes = "The range must be between 2 and prime.max (10 000 000). The prime numbers are read one by one from the " +
+          "precomputed table as the client consumes them.")
+  @ApiResponses(value = {
+      @ApiResponse(code = 200, message = "Streaming of the prime numbers has started"),
+      @ApiResponse(code = 400, message = "The provided range contains invalid characters or is not in range between 2 " +
+          "and 10 000 000"),
+      @ApiResponse(code = 429, message = "Rate limits were exceeded"),
+      @ApiResponse(code = 503, message = "The prime numbers are still being calculated")
+  })
+  @RequestMapping(path = "/range", method = RequestMethod.GET,
+      produces = {org.springframework.http.MediaType.APPLICATION_STREAM_JSON_VALUE})
+  public ResponseEntity<StreamingResponseBody> getPrimeNumbersInRange(@RequestParam String from,
+                                                                      @RequestParam String to,
+                                                                      @Context HttpServletRequest request) {
+    var timing = requestMetrics.startTiming(request, Endpoint.RANGE);
+    var range = validateRange(from, to, false, getUserKey(request), timing);
+    var index = range.getIndex();
+    int end = range.getTo();
+    // a single async task writes the whole range through a buffer like the binary range, a Flux would be handed to
+    // the async executor and flushed once for every prime number
+    StreamingResponseBody body = outputStream -> {
+      var out = new BufferedOutputStream(outputStream, RANGE_BUFFER_SIZE);
+      var line = new byte[12];
+      for (int next = index.nextPrime(range.getFrom() - 1); next != -1 && next <= end; next = index.nextPrime(next)) {
+        writeLine(out, line, next);
+      }
+      out.flush();
+    };
+    return ResponseEntity.ok()
+        .contentType(org.springframework.http.MediaType.APPLICATION_STREAM_JSON)
+        .body(body);
+  }
+
+  @ApiOperation(
+      value = "Binary version of the range endpoint - streams the prime numbers as 4 byte big-endian integers")
+  @ApiResponses(value = {
+      @ApiResponse(code = 200, message = "Streaming of the prime numbers has started"),
+      @ApiResponse(code = 400, message = "The provided range contains invalid characters or is not in range between 2 " +
+          "and 10 000 000"),
+      @ApiResponse(code = 429, message = "Rate limits were exceeded"),
+      @ApiResponse(code = 503, message = "The prime numbers are still being calculated")
+  })
+  @RequestMapping(path = "/range", method = RequestMethod.GET, produces = {MediaType.APPLICATION_OCTET_STREAM})
+  public StreamingResponseBody getPrimeNumbersInRangeBinary(@RequestParam String from,
+                                                            @RequestParam String to,
+                                                            @Context HttpServletRequest request) {
+    var timing = requestMetrics.startTiming(request, Endpoint.RANGE);
+    var range = validateRange(from, to, false, getUserKey(request), timing);
+    var index = range.getIndex();
+    int end = range.getTo();
+    return outputStream -> {
+      // the writes block when the client is slower, so only the buffer is kept in memory
+      var out = new DataOutputStream(new BufferedOutputStream(outputStream, RANGE_BUFFER_SIZE));
+      for (int next = index.nextPrime(range.getFrom() - 1); next != -1 && next <= end; next = index.nextPrime(next)) {
+        out.writeInt(next);
+      }
+      out.flush();
+    };
+  }
+
+  @ApiOperation(
+      value = "Endpoint will count the prime numbers which are not bigger than a given number - π(x)",
+      notes = "The number must be between 2 and prime.max (10 000 000)",
+      response = PrimeCountResponse.class)
+  @ApiResponses(value = {
+      @ApiResponse(code = 200, message = "Counting of the prime numbers was successful"),
+      @ApiResponse(code = 400, message = "The provided number string contains invalid characters or is not in range " +
+          "between 2 and 10 000 000"),
+      @ApiResponse(code = 429, message = "Rate limits were exceeded"),
+      @ApiResponse(code = 503, message = "The prime numbers are still being calculated")
+  })
+  @RequestMapping(path = "/count/{number}", method = RequestMethod.GET, produces = {MediaType.APPLICATION_JSON})
+  public PrimeCountResponse countPrimeNumbers(@PathVariable String number,
+                                              @Context HttpServletRequest request) {
+    var timing = requestMetrics.startTiming(request, Endpoint.COUNT);
+    var range = validateRange("2", number, true, getUserKey(request), timing);
+    int count = range.getIndex().countPrimes(range.getTo());
+    timing.mark(Phase.LOOKUP);
+    return new PrimeCountResponse(count, range.getFrom(), range.getTo());
+  }
+
+  @ApiOperation(
+      value = "Endpoint will count the prime numbers in range between from and to (both inclusive)",
+      notes = "The range must be between 2 and prime.max (10 000 000)",
+      response = PrimeCountResponse.class)
+  @ApiResponses(value = {
+      @ApiResponse(code = 200, message = "Counting of the prime numbers was successful"),
+      @ApiResponse(code = 400, message = "The provided range contains invalid characters or is not in range between 2 " +
+          "and 10 000 000"),
+      @ApiResponse(code = 429, message = "Rate limits were exceeded"),
+      @ApiResponse(code = 503, message = "The prime numbers are still being calculated")
+  })
+  @RequestMapping(path = "/count", method = RequestMethod.GET, produces = {MediaType.APPLICATION_JSON})
+  public PrimeCountResponse countPrimeNumbersInRange(@RequestParam String from,
+                                                     @RequestParam String to,
+                                                     @Context HttpServletRequest request) {
+    var timing = requestMetrics.startTiming(request, Endpoint.COUNT);
+    var range = validateRange(from, to, true, getUserKey(request), timing);
+    int count = range.getIndex().countPrimes(range.getFrom(), range.getTo());
+    timing.mark(Phase.LOOKUP);
+    return new PrimeCountResponse(count, range.getFrom(), range.getTo());
+  }
+
+  @ApiOperation(
+      value = "Endpoint will return the n-th prime number, starting from 2 as the first one",
+      notes = "Only the prime numbers up to prime.max (10 000 000) are indexed, which are the first 664 579",
+      response = NthPrimeNumberResponse.class)
+  @ApiResponses(value = {
+      @ApiResponse(code = 200, message = "Finding the n-th prime number was successful"),
+      @ApiResponse(code = 400, message = "The provided n contains invalid characters, is smaller than 1 or the n-th prime " +
+          "number is bigger than 10 000 000"),
+      @ApiResponse(code = 429, message = "Rate limits were exceeded"),
+      @ApiResponse(code = 503, message = "The prime numbers are still being calculated")
+  })
+  @RequestMapping(path = "/nth/{n}", method = RequestMethod.GET, produces = {MediaType.APPLICATION_JSON})
+  public NthPrimeNumberResponse getNthPrimeNumber(@PathVariable String n,
+                                                  @Context HttpServletRequest request) {
+    var timing = requestMetrics.startTiming(request, Endpoint.NTH_PRIME);
     String userKey = getUserKey(request);
     try {
-      applyRateLimit(userKey);
-      int num = validateNumber(number);
-      meterRegistry.counter(NUMBER_INPUT_COUNTER, NUMBER_INPUT_TAG, String.valueOf(num), ENDPOINT_NAME_TAG,
-          ENDPOINT_NAME_IF_PRIME_VALUE).increment();
-      sendRequestMetric(userKey, "200", ENDPOINT_NAME_IF_PRIME_VALUE);
-      return new PrimeNumberResponse(cacheService.checkIfPrimeNumber(num), num);
+      applyRateLimit(timing, userKey);
+      var index = cacheService.getCountedPrimeIndex(Long.MAX_VALUE);
+      int num = parseNth(n, index.getPrimeCount());
+      timing.mark(Phase.VALIDATION);
+      int nthPrime = index.nthPrime(num);
+      timing.mark(Phase.LOOKUP);
+      sendRequestMetric(userKey, 200, Endpoint.NTH_PRIME);
+      return new NthPrimeNumberResponse(nthPrime, num);
     } catch (NotSupportedNumberException e) {
-      sendRequestMetric(userKey, "400", ENDPOINT_NAME_IF_PRIME_VALUE);
+      sendRequestMetric(userKey, 400, Endpoint.NTH_PRIME);
       throw e;
     } catch (TooManyRequestsException e) {
-      sendRequestMetric(userKey, "429", ENDPOINT_NAME_IF_PRIME_VALUE);
+      sendRequestMetric(userKey, 429, Endpoint.NTH_PRIME);
+      throw e;
+    } catch (PrimeIndexNotReadyException e) {
+      sendRequestMetric(userKey, 503, Endpoint.NTH_PRIME);
       throw e;
     }
   }
 
   @ApiOperation(
-      value = "Endpoint will return next prime number in range between 2 and 10 000 000",
-      response = PrimeNumberResponse.class)
+      value = "Endpoint will return the prime factors of a number in range between 2 and 9 223 372 036 854 775 807",
+      notes = "The factors are in ascending order and every one is repeated by its multiplicity. Numbers up to prime.max " +
+          "(10 000 000) are factorized from a precomputed smallest prime factor table, bigger numbers with Pollard's " +
+          "rho. With Accept: application/x-prime-binary the response is the number followed by the factors, all as 8 " +
+          "little-endian bytes.",
+      response = FactorizationResponse.class)
   @ApiResponses(value = {
-      @ApiResponse(code = 200, message = "Check for next prime number was successful"),
-      @ApiResponse(code = 400,
-          message = "The provided number string contains invalid characters or is not in range between 2 and 10 000 000"),
+      @ApiResponse(code = 200, message = "Factorization was successful"),
+      @ApiResponse(code = 304, message = "The answer with the ETag from If-None-Match is still valid"),
+      @ApiResponse(code = 400, message = "The provided number string contains invalid characters or is not in range between 2 " +
+          "and 9 223 372 036 854 775 807"),
       @ApiResponse(code = 429, message = "Rate limits were exceeded")
   })
-  @RequestMapping(path = "/next/{number}", method = RequestMethod.GET, produces = {MediaType.APPLICATION_JSON})
-  public NextPrimeNumberResponse getNextPrimeNumber(@PathVariable String number,
-                                                    @Context HttpServletRequest request) throws ExecutionException, InterruptedException {
+  @RequestMapping(path = "/factor/{number}", method = RequestMethod.GET,
+      produces = {MediaType.APPLICATION_JSON, PrimeBinaryFormat.MEDIA_TYPE})
+  public ResponseEntity<byte[]> factorNumber(@PathVariable String number,
+                                             @Context HttpServletRequest request) {
+    var timing = requestMetrics.startTiming(request, Endpoint.FACTOR);
+    return immutableAnswer(number, request, timing, num -> new FactorizationResponse(num, cacheService.factorize(num)));
+  }
 
+  /**
+   * Validates the number and answers from the {@link ResponseCache}. A conditional request for an answer the client
+   * already has gets 304 before the rate limit.
+   */
+  private ResponseEntity<byte[]> immutableAnswer(String number, HttpServletRequest request, RequestTiming timing,
+                                                 LongFunction<Object> lookup) {
+    var endpoint = timing.getEndpoint();
     String userKey = getUserKey(request);
     try {
-      applyRateLimit(userKey);
-      int num = validateNumber(number);
-      var nextPrime = cacheService.getNextPrimeNumber(num);
-      meterRegistry.counter(NUMBER_INPUT_COUNTER, NUMBER_INPUT_TAG, String.valueOf(num), ENDPOINT_NAME_TAG,
-          ENDPOINT_NAME_NEXT_PRIME_VALUE).increment();
-      sendRequestMetric(userKey, "200", ENDPOINT_NAME_NEXT_PRIME_VALUE);
-      return new NextPrimeNumberResponse(nextPrime, num);
+      long num = validateNumber(number);
+      timing.mark(Phase.VALIDATION);
+      var mediaType = responseCache.negotiate(org.springframework.http.MediaType.parseMediaTypes(request.getHeader(HttpHeaders.ACCEPT)));
+      String etag = responseCache.etag(endpoint, num, mediaType);
+      if (responseCache.isNotModified(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+        sendRequestMetric(userKey, 304, endpoint);
+        return responseCache.notModified(etag);
+      }
+      applyRateLimit(timing, userKey);
+      byte[] body = responseCache.get(endpoint, num, mediaType, () -> lookup.apply(num));
+      timing.mark(Phase.LOOKUP);
+      requestMetrics.recordNumber(endpoint, num);
+      sendRequestMetric(userKey, 200, endpoint);
+      return responseCache.ok(etag, mediaType, body);
+    } catch (NotSupportedNumberException e) {
+      sendRequestMetric(userKey, 400, endpoint);
+      throw e;
     } catch (TooManyRequestsException e) {
-      sendRequestMetric(userKey, "429", ENDPOINT_NAME_NEXT_PRIME_VALUE);
+      sendRequestMetric(userKey, 429, endpoint);
       throw e;
+    }
+  }
+
+  /**
+   * Writes the number as a JSON line without allocating, the line buffer must fit 10 digits and the new line.
+   */
+  private static void writeLine(OutputStream out, byte[] line, int number) throws IOException {
+    int position = line.length;
+    line[--position] = '\n';
+    do {
+      line[--position] = (byte) ('0' + number % 10);
+      number /= 10;
+    } while (number != 0);
+    out.write(line, position, line.length - position);
+  }
+
+  /**
+   * @param counting whether the primes in the range will be counted, which is answered with 503 until the index has
+   *                 counted them, so the request never waits for the counting
+   */
+  private PrimeRange validateRange(String from, String to, boolean counting, String userKey,
+                                   RequestTiming timing) {
+    var endpoint = timing.getEndpoint();
+    try {
+      applyRateLimit(timing, userKey);
+      var index = cacheService.getPrimeIndex();
+      int fromNum = validateRangeBound(from, index.getMax());
+      int toNum = validateRangeBound(to, index.getMax());
+      if (fromNum > toNum) {
+        throw new NotSupportedNumberException("The provided range is invalid. From must not be bigger than to");
+      }
+      if (counting && !index.isCounted(toNum)) {
+        throw new PrimeIndexNotReadyException();
+      }
+      timing.mark(Phase.VALIDATION);
+      sendRequestMetric(userKey, 200, endpoint);
+      return new PrimeRange(index, fromNum, toNum);
     } catch (NotSupportedNumberException e) {
-      sendRequestMetric(userKey, "400", ENDPOINT_NAME_NEXT_PRIME_VALUE);
+      sendRequestMetric(userKey, 400, endpoint);
+      throw e;
+    } catch (TooManyRequestsException e) {
+      sendRequestMetric(userKey, 429, endpoint);
+      throw e;
+    } catch (PrimeIndexNotReadyException e) {
+      sendRequestMetric(userKey, 503, endpoint);
       throw e;
     }
   }
 
-  private int validateNumber(String number) {
-
+  private boolean[] checkIfPrimeNumbers(long[] numbers, String userKey, RequestTiming timing) {
     try {
-      int num = Integer.parseInt(number);
-      if (num < 2 || num > primeCalculationConfig.getMax()) {
-        log.info("The passed number is not in the valid bounds");
-        throw new NotSupportedNumberException("The provided number is invalid. Please provide a number between 2 and " + primeCalculationConfig.getMax());
+      if (numbers.length > rateLimitConfig.getMaxBatchSize()) {
+        throw new NotSupportedNumberException("Too many numbers. Please provide up to " + rateLimitConfig.getMaxBatchSize());
       }
-      return num;
-    } catch (NumberFormatException e) {
-      log.error("Passed number is invalid", e);
-      throw new NotSupportedNumberException("Invalid number: " + number);
+      int numbersPerPermit = rateLimitConfig.getBatchNumbersPerPermit();
+      applyRateLimit(timing, userKey, Math.max(1, (numbers.length + numbersPerPermit - 1) / numbersPerPermit));
+      validateBatch(numbers);
+      timing.mark(Phase.VALIDATION);
+      var primes = cacheService.checkIfPrimeNumbers(numbers);
+      timing.mark(Phase.LOOKUP);
+      for (long number : numbers) {
+        requestMetrics.recordNumber(Endpoint.BATCH, number);
+      }
+      sendRequestMetric(userKey, 200, Endpoint.BATCH);
+      return primes;
+    } catch (NotSupportedNumberException e) {
+      sendRequestMetric(userKey, 400, Endpoint.BATCH);
+      throw e;
+    } catch (TooManyRequestsException e) {
+      sendRequestMetric(userKey, 429, Endpoint.BATCH);
+      throw e;
     }
   }
 
-  private void applyRateLimit(String key) {
-    if (!rateLimitService.canProceed(key)) {
-      throw new TooManyRequestsException();
+  private void applyRateLimit(RequestTiming timing, String key) {
+    applyRateLimit(timing, key, 1);
+  }
+
+  private void applyRateLimit(RequestTiming timing, String key, int permits) {
+    RateLimitResult result;
+    try {
+      result = rateLimitService.acquire(key, permits);
+    } finally {
+      timing.mark(Phase.RATE_LIMIT);
+    }
+    var attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+    if (attributes != null && attributes.getResponse() != null) {
+      // set on the response directly, so they are sent with the error responses as well
+      var response = attributes.getResponse();
+      response.setHeader(RATE_LIMIT_LIMIT_HEADER, String.valueOf(result.getLimit()));
+      if (result.getRemaining() >= 0) {
+        response.setHeader(RATE_LIMIT_REMAINING_HEADER, String.valueOf(result.getRemaining()));
+      }
+    }
+    if (!result.isAllowed()) {
+      throw new TooManyRequestsException(result.getRetryAfterMillis());
     }
   }
 
@@ -140,8 +470,7 @@ public class PrimeNumberApiController {
     return !StringUtils.isEmpty(ipAddress) ? ipAddress : request.getRemoteAddr();
   }
 
-  private void sendRequestMetric(String userKey, String responseStatus, String endpointNameIfPrimeValue) {
-    meterRegistry.counter(REQUEST_COUNTER, ENDPOINT_NAME_TAG, endpointNameIfPrimeValue,
-        STATUS_CODE_TAG, responseStatus, USER_KEY_TAG, userKey).increment();
+  private void sendRequestMetric(String userKey, int responseStatus, Endpoint endpoint) {
+    requestMetrics.recordRequest(endpoint, responseStatus, userKey);
   }
 }
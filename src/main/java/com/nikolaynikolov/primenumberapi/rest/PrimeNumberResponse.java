@@ -8,9 +8,9 @@ import lombok.Data;
 public class PrimeNumberResponse {
 
   private boolean isPrime;
-  private Integer number;
+  private Long number;
 
-  public PrimeNumberResponse(boolean isPrime, Integer number) {
+  public PrimeNumberResponse(boolean isPrime, Long number) {
     this.isPrime = isPrime;
     this.number = number;
   }
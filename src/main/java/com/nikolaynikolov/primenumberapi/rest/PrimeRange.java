@@ -0,0 +1,14 @@
+package com.nikolaynikolov.primenumberapi.rest;
+
+import com.nikolaynikolov.primenumberapi.prime.PrimeLookup;
+import lombok.Value;
+
+/**
+ * A validated range of the prime index, both ends are inclusive.
+ */
+@Value
+class PrimeRange {
+  PrimeLookup index;
+  int from;
+  int to;
+}
@@ -0,0 +1,319 @@
+package com.nikolaynikolov.primenumberapi.rest;
+
+import com.nikolaynikolov.primenumberapi.NotSupportedNumberException;
+import com.nikolaynikolov.primenumberapi.PrimeIndexNotReadyException;
+import com.nikolaynikolov.primenumberapi.TooManyRequestsException;
+import com.nikolaynikolov.primenumberapi.configuration.RateLimitConfig;
+import com.nikolaynikolov.primenumberapi.metrics.RequestMetrics;
+import com.nikolaynikolov.primenumberapi.metrics.RequestMetrics.Endpoint;
+import com.nikolaynikolov.primenumberapi.metrics.RequestMetrics.Phase;
+import com.nikolaynikolov.primenumberapi.metrics.RequestTiming;
+import com.nikolaynikolov.primenumberapi.service.CacheService;
+import com.nikolaynikolov.primenumberapi.service.RateLimitService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+import static com.nikolaynikolov.primenumberapi.rest.NumberArguments.parseNth;
+import static com.nikolaynikolov.primenumberapi.rest.NumberArguments.validateBatch;
+import static com.nikolaynikolov.primenumberapi.rest.NumberArguments.validateNumber;
+import static com.nikolaynikolov.primenumberapi.rest.NumberArguments.validateRangeBound;
+
+/**
+ * The endpoints of {@link PrimeNumberApiController} on the reactive stack, see {@link
+ * com.nikolaynikolov.primenumberapi.configuration.ReactiveWebConfig}.
+ * <p>
+ * The only I/O of a request is the rate limit, which waits for redis without holding a thread. The lookups are in
+ * memory and run on the thread which completes the rate limit.
+ */
+@RestController
+@RequestMapping("primes/api/v1")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactivePrimeNumberApiController {
+
+  private static final int RANGE_BUFFER_SIZE = 8 * 1024;
+  private static final String RATE_LIMIT_LIMIT_HEADER = "X-RateLimit-Limit";
+  private static final String RATE_LIMIT_REMAINING_HEADER = "X-RateLimit-Remaining";
+
+  private final CacheService cacheService;
+  private final RateLimitService rateLimitService;
+  private final RateLimitConfig rateLimitConfig;
+  private final RequestMetrics requestMetrics;
+  private final ResponseCache responseCache;
+
+  @Autowired
+  public ReactivePrimeNumberApiController(CacheService cacheService,
+                                          RateLimitService rateLimitService,
+                                          RateLimitConfig rateLimitConfig,
+                                          RequestMetrics requestMetrics,
+                                          ResponseCache responseCache) {
+    this.cacheService = cacheService;
+    this.rateLimitService = rateLimitService;
+    this.rateLimitConfig = rateLimitConfig;
+    this.requestMetrics = requestMetrics;
+    this.responseCache = responseCache;
+  }
+
+  @RequestMapping(path = "/{number}", method = RequestMethod.GET,
+      produces = {MediaType.APPLICATION_JSON_VALUE, PrimeBinaryFormat.MEDIA_TYPE})
+  public Mono<ResponseEntity<byte[]>> checkIfPrimeNumber(@PathVariable String number, ServerWebExchange exchange) {
+    var timing = requestMetrics.startTiming(exchange, Endpoint.CHECK_IF_PRIME);
+    return immutableAnswer(number, exchange, timing, num -> new PrimeNumberResponse(cacheService.checkIfPrimeNumber(num), num));
+  }
+
+  @RequestMapping(path = "/next/{number}", method = RequestMethod.GET,
+      produces = {MediaType.APPLICATION_JSON_VALUE, PrimeBinaryFormat.MEDIA_TYPE})
+  public Mono<ResponseEntity<byte[]>> getNextPrimeNumber(@PathVariable String number, ServerWebExchange exchange) {
+    var timing = requestMetrics.startTiming(exchange, Endpoint.NEXT_PRIME);
+    return immutableAnswer(number, exchange, timing, num -> {
+      var nextPrime = cacheService.getNextPrimeNumber(num);
+      if (nextPrime == null) {
+        throw new NotSupportedNumberException("There is no prime number bigger than " + num + " up to " + Long.MAX_VALUE);
+      }
+      return new NextPrimeNumberResponse(nextPrime, num);
+    });
+  }
+
+  @RequestMapping(path = "/batch", method = RequestMethod.POST,
+      consumes = {MediaType.APPLICATION_JSON_VALUE}, produces = {MediaType.APPLICATION_JSON_VALUE})
+  public Mono<BatchPrimeNumberResponse> batchCheckIfPrimeNumbers(@RequestBody long[] numbers,
+                                                                 ServerWebExchange exchange) {
+    var timing = requestMetrics.startTiming(exchange, Endpoint.BATCH);
+    return checkIfPrimeNumbers(numbers, exchange, timing).map(BatchPrimeNumberResponse::new);
+  }
+
+  @RequestMapping(path = "/batch", method = RequestMethod.POST,
+      consumes = {MediaType.APPLICATION_OCTET_STREAM_VALUE}, produces = {MediaType.APPLICATION_OCTET_STREAM_VALUE})
+  public Mono<byte[]> batchCheckIfPrimeNumbersBinary(@RequestBody byte[] body, ServerWebExchange exchange) {
+    var timing = requestMetrics.startTiming(exchange, Endpoint.BATCH);
+    if (body.length % Long.BYTES != 0) {
+      return recorded(Mono.error(new NotSupportedNumberException(
+          "The body length must be a multiple of " + Long.BYTES + " bytes")), getUserKey(exchange.getRequest()), Endpoint.BATCH);
+    }
+    var numbers = new long[body.length / Long.BYTES];
+    ByteBuffer.wrap(body).asLongBuffer().get(numbers);
+
+    return checkIfPrimeNumbers(numbers, exchange, timing).map(primes -> {
+      var result = new byte[primes.length];
+      for (int i = 0; i < primes.length; i++) {
+        result[i] = (byte) (primes[i] ? 1 : 0);
+      }
+      return result;
+    });
+  }
+
+  @RequestMapping(path = "/range", method = RequestMethod.GET, produces = {MediaType.APPLICATION_STREAM_JSON_VALUE})
+  public Flux<Integer> getPrimeNumbersInRange(@RequestParam String from,
+                                              @RequestParam String to,
+                                              ServerWebExchange exchange) {
+    var timing = requestMetrics.startTiming(exchange, Endpoint.RANGE);
+    return validateRange(from, to, false, exchange, timing).flatMapMany(range -> {
+      var index = range.getIndex();
+      int end = range.getTo();
+      // Flux.generate emits only what is requested, so the prime numbers are never collected in memory
+      return Flux.generate(() -> range.getFrom() - 1, (previous, sink) -> {
+        int next = index.nextPrime(previous);
+        if (next == -1 || next > end) {
+          sink.complete();
+        } else {
+          sink.next(next);
+        }
+        return next;
+      });
+    });
+  }
+
+  @RequestMapping(path = "/range", method = RequestMethod.GET, produces = {MediaType.APPLICATION_OCTET_STREAM_VALUE})
+  public Flux<DataBuffer> getPrimeNumbersInRangeBinary(@RequestParam String from,
+                                                       @RequestParam String to,
+                                                       ServerWebExchange exchange) {
+    var timing = requestMetrics.startTiming(exchange, Endpoint.RANGE);
+    var bufferFactory = exchange.getResponse().bufferFactory();
+    return validateRange(from, to, false, exchange, timing).flatMapMany(range -> {
+      var index = range.getIndex();
+      int end = range.getTo();
+      // one buffer of prime numbers is generated for every buffer the client has requested
+      return Flux.generate(() -> index.nextPrime(range.getFrom() - 1), (next, sink) -> {
+        if (next == -1 || next > end) {
+          sink.complete();
+          return next;
+        }
+        var bytes = ByteBuffer.allocate(RANGE_BUFFER_SIZE);
+        for (; next != -1 && next <= end && bytes.remaining() >= Integer.BYTES; next = index.nextPrime(next)) {
+          bytes.putInt(next);
+        }
+        sink.next(bufferFactory.wrap(bytes.flip()));
+        return next;
+      });
+    });
+  }
+
+  @RequestMapping(path = "/count/{number}", method = RequestMethod.GET, produces = {MediaType.APPLICATION_JSON_VALUE})
+  public Mono<PrimeCountResponse> countPrimeNumbers(@PathVariable String number, ServerWebExchange exchange) {
+    var timing = requestMetrics.startTiming(exchange, Endpoint.COUNT);
+    return validateRange("2", number, true, exchange, timing).map(range -> {
+      int count = range.getIndex().countPrimes(range.getTo());
+      timing.mark(Phase.LOOKUP);
+      return new PrimeCountResponse(count, range.getFrom(), range.getTo());
+    });
+  }
+
+  @RequestMapping(path = "/count", method = RequestMethod.GET, produces = {MediaType.APPLICATION_JSON_VALUE})
+  public Mono<PrimeCountResponse> countPrimeNumbersInRange(@RequestParam String from,
+                                                           @RequestParam String to,
+                                                           ServerWebExchange exchange) {
+    var timing = requestMetrics.startTiming(exchange, Endpoint.COUNT);
+    return validateRange(from, to, true, exchange, timing).map(range -> {
+      int count = range.getIndex().countPrimes(range.getFrom(), range.getTo());
+      timing.mark(Phase.LOOKUP);
+      return new PrimeCountResponse(count, range.getFrom(), range.getTo());
+    });
+  }
+
+  @RequestMapping(path = "/nth/{n}", method = RequestMethod.GET, produces = {MediaType.APPLICATION_JSON_VALUE})
+  public Mono<NthPrimeNumberResponse> getNthPrimeNumber(@PathVariable String n, ServerWebExchange exchange) {
+    var timing = requestMetrics.startTiming(exchange, Endpoint.NTH_PRIME);
+    return handle(exchange, timing, 1, () -> {
+      var index = cacheService.getCountedPrimeIndex(Long.MAX_VALUE);
+      int num = parseNth(n, index.getPrimeCount());
+      timing.mark(Phase.VALIDATION);
+      int nthPrime = index.nthPrime(num);
+      timing.mark(Phase.LOOKUP);
+      return new NthPrimeNumberResponse(nthPrime, num);
+    });
+  }
+
+  @RequestMapping(path = "/factor/{number}", method = RequestMethod.GET,
+      produces = {MediaType.APPLICATION_JSON_VALUE, PrimeBinaryFormat.MEDIA_TYPE})
+  public Mono<ResponseEntity<byte[]>> factorNumber(@PathVariable String number, ServerWebExchange exchange) {
+    var timing = requestMetrics.startTiming(exchange, Endpoint.FACTOR);
+    return immutableAnswer(number, exchange, timing, num -> new FactorizationResponse(num, cacheService.factorize(num)));
+  }
+
+  /**
+   * Validates the number and answers from the {@link ResponseCache}. A conditional request for an answer the client
+   * already has gets 304 before the rate limit.
+   */
+  private Mono<ResponseEntity<byte[]>> immutableAnswer(String number, ServerWebExchange exchange, RequestTiming timing,
+                                                       LongFunction<Object> lookup) {
+    var endpoint = timing.getEndpoint();
+    var headers = exchange.getRequest().getHeaders();
+    long num;
+    try {
+      num = validateNumber(number);
+    } catch (NotSupportedNumberException e) {
+      return recorded(Mono.error(e), getUserKey(exchange.getRequest()), endpoint);
+    }
+    timing.mark(Phase.VALIDATION);
+    var mediaType = responseCache.negotiate(headers.getAccept());
+    String etag = responseCache.etag(endpoint, num, mediaType);
+    if (responseCache.isNotModified(headers.getFirst(HttpHeaders.IF_NONE_MATCH), etag)) {
+      requestMetrics.recordRequest(endpoint, 304, getUserKey(exchange.getRequest()));
+      return Mono.just(responseCache.notModified(etag));
+    }
+    return handle(exchange, timing, 1, () -> {
+      byte[] body = responseCache.get(endpoint, num, mediaType, () -> lookup.apply(num));
+      timing.mark(Phase.LOOKUP);
+      requestMetrics.recordNumber(endpoint, num);
+      return responseCache.ok(etag, mediaType, body);
+    });
+  }
+
+  /**
+   * @param counting whether the primes in the range will be counted, which is answered with 503 until the index has
+   *                 counted them, so the request never waits for the counting
+   */
+  private Mono<PrimeRange> validateRange(String from, String to, boolean counting, ServerWebExchange exchange,
+                                         RequestTiming timing) {
+    return handle(exchange, timing, 1, () -> {
+      var index = cacheService.getPrimeIndex();
+      int fromNum = validateRangeBound(from, index.getMax());
+      int toNum = validateRangeBound(to, index.getMax());
+      if (fromNum > toNum) {
+        throw new NotSupportedNumberException("The provided range is invalid. From must not be bigger than to");
+      }
+      if (counting && !index.isCounted(toNum)) {
+        throw new PrimeIndexNotReadyException();
+      }
+      timing.mark(Phase.VALIDATION);
+      return new PrimeRange(index, fromNum, toNum);
+    });
+  }
+
+  private Mono<boolean[]> checkIfPrimeNumbers(long[] numbers, ServerWebExchange exchange, RequestTiming timing) {
+    if (numbers.length > rateLimitConfig.getMaxBatchSize()) {
+      return recorded(Mono.error(new NotSupportedNumberException(
+          "Too many numbers. Please provide up to " + rateLimitConfig.getMaxBatchSize())), getUserKey(exchange.getRequest()), Endpoint.BATCH);
+    }
+    int numbersPerPermit = rateLimitConfig.getBatchNumbersPerPermit();
+    int permits = Math.max(1, (numbers.length + numbersPerPermit - 1) / numbersPerPermit);
+    return handle(exchange, timing, permits, () -> {
+      validateBatch(numbers);
+      timing.mark(Phase.VALIDATION);
+      var primes = cacheService.checkIfPrimeNumbers(numbers);
+      timing.mark(Phase.LOOKUP);
+      for (long number : numbers) {
+        requestMetrics.recordNumber(Endpoint.BATCH, number);
+      }
+      return primes;
+    });
+  }
+
+  /**
+   * Takes the permits of the client, then validates and looks up.
+   */
+  private <T> Mono<T> handle(ServerWebExchange exchange, RequestTiming timing, int permits, Supplier<T> lookup) {
+    String userKey = getUserKey(exchange.getRequest());
+    var result = rateLimitService.acquireAsync(userKey, permits)
+        .doOnError(e -> timing.mark(Phase.RATE_LIMIT))
+        .flatMap(rateLimit -> {
+          timing.mark(Phase.RATE_LIMIT);
+          // set on the response directly, so they are sent with the error responses as well
+          var headers = exchange.getResponse().getHeaders();
+          headers.set(RATE_LIMIT_LIMIT_HEADER, String.valueOf(rateLimit.getLimit()));
+          if (rateLimit.getRemaining() >= 0) {
+            headers.set(RATE_LIMIT_REMAINING_HEADER, String.valueOf(rateLimit.getRemaining()));
+          }
+          if (!rateLimit.isAllowed()) {
+            return Mono.error(new TooManyRequestsException(rateLimit.getRetryAfterMillis()));
+          }
+          return Mono.fromSupplier(lookup);
+        });
+    return recorded(result, userKey, timing.getEndpoint());
+  }
+
+  private <T> Mono<T> recorded(Mono<T> result, String userKey, Endpoint endpoint) {
+    return result
+        .doOnSuccess(value -> requestMetrics.recordRequest(endpoint, 200, userKey))
+        .doOnError(NotSupportedNumberException.class, e -> requestMetrics.recordRequest(endpoint, 400, userKey))
+        .doOnError(TooManyRequestsException.class, e -> requestMetrics.recordRequest(endpoint, 429, userKey))
+        .doOnError(PrimeIndexNotReadyException.class, e -> requestMetrics.recordRequest(endpoint, 503, userKey));
+  }
+
+  private static String getUserKey(ServerHttpRequest request) {
+    String ipAddress = request.getHeaders().getFirst("X-Forwarded-For");
+    if (!StringUtils.isEmpty(ipAddress)) {
+      return ipAddress;
+    }
+    var remoteAddress = request.getRemoteAddress();
+    return remoteAddress != null ? remoteAddress.getAddress().getHostAddress() : "unknown";
+  }
+}
@@ -0,0 +1,46 @@
+package com.nikolaynikolov.primenumberapi.rest;
+
+import com.nikolaynikolov.primenumberapi.NotSupportedNumberException;
+import com.nikolaynikolov.primenumberapi.PrimeIndexNotReadyException;
+import com.nikolaynikolov.primenumberapi.TooManyRequestsException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+/**
+ * Same responses as {@link RestExceptionHandler} for the reactive stack.
+ */
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveRestExceptionHandler {
+
+  @ExceptionHandler(NotSupportedNumberException.class)
+  protected ResponseEntity<ApiError> handleBadRequestError(NotSupportedNumberException ex) {
+    return buildResponseEntity(ex, HttpStatus.BAD_REQUEST, new HttpHeaders());
+  }
+
+  @ExceptionHandler(TooManyRequestsException.class)
+  protected ResponseEntity<ApiError> handleBadRequestError(TooManyRequestsException ex) {
+    var headers = new HttpHeaders();
+    if (ex.getRetryAfterMillis() > 0) {
+      headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()));
+    }
+    return buildResponseEntity(ex, HttpStatus.TOO_MANY_REQUESTS, headers);
+  }
+
+  @ExceptionHandler(PrimeIndexNotReadyException.class)
+  protected ResponseEntity<ApiError> handleServiceUnavailableError(PrimeIndexNotReadyException ex) {
+    return buildResponseEntity(ex, HttpStatus.SERVICE_UNAVAILABLE, new HttpHeaders());
+  }
+
+  private ResponseEntity<ApiError> buildResponseEntity(Exception error, HttpStatus status, HttpHeaders headers) {
+    ApiError ae = ApiError.builder().status(status.value()).reason(status.getReasonPhrase()).message(error.getMessage()).build();
+    return new ResponseEntity<>(ae, headers, status);
+  }
+}
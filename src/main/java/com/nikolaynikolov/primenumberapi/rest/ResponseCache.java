@@ -0,0 +1,157 @@
+package com.nikolaynikolov.primenumberapi.rest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nikolaynikolov.primenumberapi.configuration.PrimeCalculationConfig;
+import com.nikolaynikolov.primenumberapi.configuration.ResponseCacheConfig;
+import com.nikolaynikolov.primenumberapi.metrics.RequestMetrics.Endpoint;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Serialized answers of the single number endpoints, which never change for a given prime.max.
+ * <p>
+ * Every answer has a strong ETag made of the format version, prime.max, the endpoint, the number and the media type,
+ * and may be cached for response.cache.maxAgeSeconds as immutable, so the clients and the CDN revalidate rarely. A
+ * request with a matching If-None-Match is answered with 304 before the rate limit, so it never reaches redis.
+ * <p>
+ * The serialized bytes are kept in a Caffeine cache of response.cache.maximumSize answers. Its admission policy keeps
+ * the frequently requested numbers over the ones requested once, so the hot numbers skip the lookup and serialization.
+ */
+@Component
+public class ResponseCache {
+
+  // bumped when the layout of the answers changes, so the cached answers are not reused
+  private static final int FORMAT_VERSION = 1;
+  private static final MediaType BINARY = MediaType.parseMediaType(PrimeBinaryFormat.MEDIA_TYPE);
+  // in the order of preference, the same as the produces of the endpoints
+  private static final List<MediaType> PRODUCIBLE = List.of(MediaType.APPLICATION_JSON, BINARY);
+
+  private final ObjectMapper objectMapper;
+  private final String datasetVersion;
+  private final String cacheControl;
+  private final Cache<Key, byte[]> answers;
+
+  @Autowired
+  public ResponseCache(ObjectMapper objectMapper,
+                       PrimeCalculationConfig primeCalculationConfig,
+                       ResponseCacheConfig responseCacheConfig,
+                       MeterRegistry meterRegistry) {
+    this.objectMapper = objectMapper;
+    this.datasetVersion = "v" + FORMAT_VERSION + "-" + primeCalculationConfig.getMax();
+    // CacheControl of spring 5.2 has no immutable directive yet
+    this.cacheControl = CacheControl.maxAge(responseCacheConfig.getMaxAgeSeconds(), TimeUnit.SECONDS)
+        .cachePublic()
+        .getHeaderValue() + ", immutable";
+    this.answers = Caffeine.newBuilder()
+        .maximumSize(responseCacheConfig.getMaximumSize())
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, answers, "responses");
+  }
+
+  /**
+   * @return the first of the producible media types accepted by the client, JSON if it accepts any
+   */
+  public MediaType negotiate(List<MediaType> accept) {
+    if (accept.isEmpty()) {
+      return MediaType.APPLICATION_JSON;
+    }
+    MediaType.sortBySpecificityAndQuality(accept);
+    for (MediaType accepted : accept) {
+      for (MediaType producible : PRODUCIBLE) {
+        if (accepted.isCompatibleWith(producible)) {
+          return producible;
+        }
+      }
+    }
+    return MediaType.APPLICATION_JSON;
+  }
+
+  public String etag(Endpoint endpoint, long number, MediaType mediaType) {
+    return "\"" + datasetVersion + "-" + endpoint.getTag() + "-" + number + "-" + mediaType.getSubtype() + "\"";
+  }
+
+  /**
+   * @param ifNoneMatch the If-None-Match header of the request, may be null
+   */
+  public boolean isNotModified(String ifNoneMatch, String etag) {
+    if (StringUtils.isEmpty(ifNoneMatch)) {
+      return false;
+    }
+    for (String candidate : ifNoneMatch.split(",")) {
+      candidate = candidate.trim();
+      // If-None-Match uses the weak comparison
+      if (candidate.startsWith("W/")) {
+        candidate = candidate.substring(2);
+      }
+      if (candidate.equals("*") || candidate.equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the serialized answer, looked up and serialized only if it's not cached yet
+   */
+  public byte[] get(Endpoint endpoint, long number, MediaType mediaType, Supplier<Object> lookup) {
+    return answers.get(new Key(endpoint, number, BINARY.equals(mediaType)), key -> serialize(lookup.get(), key.binary));
+  }
+
+  public ResponseEntity<byte[]> ok(String etag, MediaType mediaType, byte[] body) {
+    return ResponseEntity.ok().headers(headers(etag)).contentType(mediaType).body(body);
+  }
+
+  public ResponseEntity<byte[]> notModified(String etag) {
+    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers(etag)).build();
+  }
+
+  private HttpHeaders headers(String etag) {
+    var headers = new HttpHeaders();
+    headers.setETag(etag);
+    headers.setCacheControl(cacheControl);
+    headers.setVary(List.of(HttpHeaders.ACCEPT));
+    return headers;
+  }
+
+  private byte[] serialize(Object answer, boolean binary) {
+    try {
+      if (!binary) {
+        return objectMapper.writeValueAsBytes(answer);
+      }
+      var out = new ByteArrayOutputStream(PrimeBinaryFormat.sizeOf(answer));
+      PrimeBinaryFormat.write(answer, out);
+      return out.toByteArray();
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Couldn't serialize " + answer, e);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Value
+  private static class Key {
+    Endpoint endpoint;
+    long number;
+    boolean binary;
+  }
+}
@@ -1,7 +1,9 @@
 package com.nikolaynikolov.primenumberapi.rest;
 
 import com.nikolaynikolov.primenumberapi.NotSupportedNumberException;
+import com.nikolaynikolov.primenumberapi.PrimeIndexNotReadyException;
 import com.nikolaynikolov.primenumberapi.TooManyRequestsException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpHeaders;
@@ -14,22 +16,34 @@ import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExcep
 
 @Order(Ordered.HIGHEST_PRECEDENCE)
 @ControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class RestExceptionHandler extends ResponseEntityExceptionHandler {
 
   @ExceptionHandler(NotSupportedNumberException.class)
   protected ResponseEntity<Object> handleBadRequestError(NotSupportedNumberException ex,
                                                          WebRequest request) {
-    return buildResponseEntity(ex, HttpStatus.BAD_REQUEST, request);
+    return buildResponseEntity(ex, HttpStatus.BAD_REQUEST, new HttpHeaders(), request);
   }
 
   @ExceptionHandler(TooManyRequestsException.class)
   protected ResponseEntity<Object> handleBadRequestError(TooManyRequestsException ex,
                                                          WebRequest request) {
-    return buildResponseEntity(ex, HttpStatus.TOO_MANY_REQUESTS, request);
+    var headers = new HttpHeaders();
+    if (ex.getRetryAfterMillis() > 0) {
+      headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()));
+    }
+    return buildResponseEntity(ex, HttpStatus.TOO_MANY_REQUESTS, headers, request);
   }
 
-  private ResponseEntity<Object> buildResponseEntity(Exception error, HttpStatus status, WebRequest request) {
+  @ExceptionHandler(PrimeIndexNotReadyException.class)
+  protected ResponseEntity<Object> handleServiceUnavailableError(PrimeIndexNotReadyException ex,
+                                                                 WebRequest request) {
+    return buildResponseEntity(ex, HttpStatus.SERVICE_UNAVAILABLE, new HttpHeaders(), request);
+  }
+
+  private ResponseEntity<Object> buildResponseEntity(Exception error, HttpStatus status, HttpHeaders headers,
+                                                     WebRequest request) {
     ApiError ae = ApiError.builder().status(status.value()).reason(status.getReasonPhrase()).message(error.getMessage()).build();
-    return handleExceptionInternal(error, ae, new HttpHeaders(), status, request);
+    return handleExceptionInternal(error, ae, headers, status, request);
   }
 }
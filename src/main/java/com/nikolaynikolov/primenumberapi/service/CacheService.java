@@ -1,70 +1,221 @@
 package com.nikolaynikolov.primenumberapi.service;
 
+import com.nikolaynikolov.primenumberapi.PrimeIndexNotReadyException;
+import com.nikolaynikolov.primenumberapi.configuration.PrimeCalculationConfig;
 import com.nikolaynikolov.primenumberapi.model.User;
-import org.redisson.RedissonShutdownException;
+import com.nikolaynikolov.primenumberapi.prime.MillerRabin;
+import com.nikolaynikolov.primenumberapi.prime.PollardRho;
+import com.nikolaynikolov.primenumberapi.prime.PrimeLookup;
+import com.nikolaynikolov.primenumberapi.prime.SieveProgress;
+import com.nikolaynikolov.primenumberapi.prime.SmallestPrimeFactors;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.redisson.api.RMapCache;
-import org.redisson.api.RSetCache;
+import org.redisson.api.RTopic;
 import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 @Service
 public class CacheService {
 
   private static final String USER_MAP = "userMap";
-  private static final String PRIME_NUMBER_SET = "primeNumberSet";
+  private static final String USER_INVALIDATION_TOPIC = "userMap:invalidations";
+  private static final String REDIS_TIMER = "primenumber.redis";
+  private static final String OPERATION_TAG = "operation";
 
   private final RedissonClient redissonClient;
+  private final PrimeNumberStore primeNumberStore;
+  private final PrimeCalculationConfig primeCalculationConfig;
+  private final Timer getUserTimer;
+  private final Timer setUserTimer;
+  private final Timer removeUserTimer;
+  private final Timer storePrimesTimer;
+  private final Timer clearPrimesTimer;
+
+  // Published once by PrimeNumberCalculationRunner - the complete PrimeIndex, or a LazyPrimeIndex right on start in the
+  // lazy sieve mode. Until then the lookups are answered while warming up.
+  private volatile PrimeLookup primeIndex;
+  // Published by PrimeNumberCalculationRunner when the sieve starts, the finished segments are answered from it
+  private volatile SieveProgress sieveProgress;
+  // Published by PrimeNumberCalculationRunner after the index, until then all numbers are factorized with Pollard's rho
+  private volatile SmallestPrimeFactors smallestPrimeFactors;
 
   @Autowired
-  public CacheService(RedissonClient redissonClient) {
+  public CacheService(RedissonClient redissonClient,
+                      PrimeNumberStore primeNumberStore,
+                      PrimeCalculationConfig primeCalculationConfig,
+                      MeterRegistry meterRegistry) {
     this.redissonClient = redissonClient;
+    this.primeNumberStore = primeNumberStore;
+    this.primeCalculationConfig = primeCalculationConfig;
+    this.getUserTimer = meterRegistry.timer(REDIS_TIMER, OPERATION_TAG, "getUser");
+    this.setUserTimer = meterRegistry.timer(REDIS_TIMER, OPERATION_TAG, "setUser");
+    this.removeUserTimer = meterRegistry.timer(REDIS_TIMER, OPERATION_TAG, "removeUser");
+    this.storePrimesTimer = meterRegistry.timer(REDIS_TIMER, OPERATION_TAG, "storePrimes");
+    this.clearPrimesTimer = meterRegistry.timer(REDIS_TIMER, OPERATION_TAG, "clearPrimes");
   }
 
   public User getUser(String key) {
     RMapCache<String, User> userMap = redissonClient.getMapCache(USER_MAP);
-    return userMap.get(key);
+    return getUserTimer.record(() -> userMap.get(key));
   }
 
   public void setUser(String key, User user) {
     RMapCache<String, User> userMap = redissonClient.getMapCache(USER_MAP);
-    userMap.put(key, user, 1, TimeUnit.HOURS);
+    setUserTimer.record(() -> userMap.put(key, user, 1, TimeUnit.HOURS));
+  }
+
+  /**
+   * Removes the user from redis and tells all instances to drop it from their memory.
+   */
+  public void invalidateUser(String key) {
+    RMapCache<String, User> userMap = redissonClient.getMapCache(USER_MAP);
+    removeUserTimer.record(() -> {
+      userMap.fastRemove(key);
+      userInvalidationTopic().publish(key);
+    });
+  }
+
+  /**
+   * @return the id of the listener, to remove it with {@link #removeUserInvalidationListener(int)}
+   */
+  public int addUserInvalidationListener(Consumer<String> listener) {
+    return userInvalidationTopic().addListener(String.class, (channel, key) -> listener.accept(key));
+  }
+
+  public void removeUserInvalidationListener(int listenerId) {
+    userInvalidationTopic().removeListener(listenerId);
+  }
+
+  private RTopic userInvalidationTopic() {
+    return redissonClient.getTopic(USER_INVALIDATION_TOPIC, StringCodec.INSTANCE);
   }
 
   public void setPrimeNumbers(List<Integer> numbers) {
-    if (!redissonClient.isShutdown()) {
-      RSetCache<Integer> primeNumberSet = redissonClient.getSetCache(PRIME_NUMBER_SET);
-      primeNumberSet.addAll(numbers);
+    storePrimesTimer.record(() -> primeNumberStore.storePrimes(numbers));
+  }
+
+  public void publishPrimeIndex(PrimeLookup primeIndex) {
+    this.primeIndex = primeIndex;
+  }
+
+  public void publishSmallestPrimeFactors(SmallestPrimeFactors smallestPrimeFactors) {
+    this.smallestPrimeFactors = smallestPrimeFactors;
+  }
+
+  public void publishSieveProgress(SieveProgress sieveProgress) {
+    this.sieveProgress = sieveProgress;
+  }
+
+  /**
+   * @return the complete prime index
+   * @throws PrimeIndexNotReadyException if the prime numbers are still being calculated
+   */
+  public PrimeLookup getPrimeIndex() {
+    PrimeLookup index = primeIndex;
+    if (index == null) {
+      throw new PrimeIndexNotReadyException();
+    }
+    return index;
+  }
+
+  /**
+   * @return the prime index once the primes up to the number have been counted
+   * @throws PrimeIndexNotReadyException if the prime numbers are still being calculated or counted
+   */
+  public PrimeLookup getCountedPrimeIndex(long number) {
+    PrimeLookup index = getPrimeIndex();
+    if (!index.isCounted(number)) {
+      throw new PrimeIndexNotReadyException();
+    }
+    return index;
+  }
+
+  /**
+   * The numbers up to prime.max are looked up in the prime index. While the index is still warming up they are looked
+   * up in the finished segments of the sieve, and the rest of the numbers are checked with {@link MillerRabin}, so the
+   * answer is always exact.
+   */
+  public boolean checkIfPrimeNumber(long number) {
+    PrimeLookup index = primeIndex;
+    if (index != null && index.covers(number)) {
+      return index.isPrime(number);
+    }
+    return checkWhileWarmingUp(number);
+  }
+
+  /**
+   * Checks all the numbers in one pass like {@link #checkIfPrimeNumber(long)}.
+   */
+  public boolean[] checkIfPrimeNumbers(long[] numbers) {
+    var result = new boolean[numbers.length];
+    PrimeLookup index = primeIndex;
+    for (int i = 0; i < numbers.length; i++) {
+      long number = numbers[i];
+      result[i] = index != null && index.covers(number) ? index.isPrime(number) : checkWhileWarmingUp(number);
     }
+    return result;
   }
 
-  public boolean checkIfPrimeNumber(Integer number) {
-    if (!redissonClient.isShutdown()) {
-      RSetCache<Integer> primeNumberSet = redissonClient.getSetCache(PRIME_NUMBER_SET);
-      return primeNumberSet.contains(number);
+  private boolean checkWhileWarmingUp(long number) {
+    SieveProgress progress = sieveProgress;
+    if (progress != null && progress.isSieved(number)) {
+      return progress.isPrime(number);
     }
-    throw new RedissonShutdownException("Can't check number - redisson is shutdown");
+    return MillerRabin.isPrime(number);
   }
 
-  public Integer getNextPrimeNumber(Integer number) {
+  /**
+   * @return the next prime number or null if it doesn't fit in a long
+   */
+  public Long getNextPrimeNumber(Long number) {
     if (number == null) {
       return null;
     }
-    for (int i = number + 1; i < number * 2; i++) {
-      if (checkIfPrimeNumber(i)) {
-        return i;
+    PrimeLookup index = primeIndex;
+    if (index != null && index.covers(number)) {
+      int nextPrime = index.nextPrime(number);
+      return nextPrime != -1 ? Long.valueOf(nextPrime) : findNextPrimeNumberAbove(index.getMax());
+    }
+
+    int max = primeCalculationConfig.getMax();
+    if (number < max) {
+      // The index is still warming up - the gaps between the primes are small, so the candidates are checked one by one
+      for (long candidate = Math.max(number + 1, 2); candidate <= max; candidate++) {
+        if (checkWhileWarmingUp(candidate)) {
+          return candidate;
+        }
       }
     }
-    return null;
+    return findNextPrimeNumberAbove(Math.max(number, max));
   }
 
-  public void disposeSetPrimeNumberCache() {
-    if (!redissonClient.isShutdown()) {
-      RSetCache<Integer> primeNumberSet = redissonClient.getSetCache(PRIME_NUMBER_SET);
-      primeNumberSet.clear();
+  private static Long findNextPrimeNumberAbove(long number) {
+    long nextPrime = MillerRabin.nextPrime(number);
+    return nextPrime != -1 ? nextPrime : null;
+  }
+
+  /**
+   * The numbers up to prime.factorTableMax are factorized from the {@link SmallestPrimeFactors} table once it's built,
+   * the rest of the numbers with {@link PollardRho}.
+   *
+   * @return the prime factors in ascending order, every one repeated by its multiplicity
+   */
+  public long[] factorize(long number) {
+    SmallestPrimeFactors table = smallestPrimeFactors;
+    if (table != null && table.covers(number)) {
+      return table.factorize(number);
     }
+    return PollardRho.factorize(number);
+  }
+
+  public void disposePrimeNumberCache() {
+    clearPrimesTimer.record(primeNumberStore::clear);
   }
 }
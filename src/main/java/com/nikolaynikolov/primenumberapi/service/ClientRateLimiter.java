@@ -0,0 +1,23 @@
+package com.nikolaynikolov.primenumberapi.service;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Limits the requests of every client. The implementation is selected with rl.mode - "leasing" (default),
+ * "slidingWindow" or "redis".
+ */
+public interface ClientRateLimiter {
+
+  /**
+   * @param key     the client
+   * @param permits how many requests the call counts for, it can't be more than rl.maxPerSecond
+   * @return if the client can proceed and how much of its limit is left
+   */
+  RateLimitResult tryAcquire(String key, int permits);
+
+  /**
+   * Non-blocking version of {@link #tryAcquire(String, int)} for the reactive endpoints - the redis calls go through the
+   * async API of redisson and complete on its netty threads, nothing waits for them.
+   */
+  Mono<RateLimitResult> tryAcquireAsync(String key, int permits);
+}
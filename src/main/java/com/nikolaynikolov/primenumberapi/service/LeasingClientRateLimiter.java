@@ -0,0 +1,265 @@
+package com.nikolaynikolov.primenumberapi.service;
+
+import com.nikolaynikolov.primenumberapi.configuration.RateLimitConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limiter which keeps a token bucket for every client in memory and only goes to redis to lease permits.
+ * <p>
+ * Every request first takes its permits from the local bucket of the client (rl.maxPerSecond permits per second), so
+ * a client over the limit is rejected without any network call. Then the permits are taken from the permits leased to
+ * this instance. Only when there are none left new permits are leased with a single lua script call, which keeps the
+ * limit across the whole cluster.
+ * <p>
+ * The script counts the leased permits of a client in a counter for every second of the wall clock, named
+ * rl:lease:{client}:second. A lease belongs to the second it was taken in and is dropped by the instance once that
+ * second is over, exactly when the counter stops counting it, so the leased permits are never lost while they are
+ * still counted. Like any fixed window the cluster can let through up to twice the limit around the border of two
+ * seconds, the local buckets still keep every instance at the limit. The instances must agree on the time, a clock
+ * difference between them allows as much more.
+ * <p>
+ * A lease takes at most rl.leaseSize permits and never more than half of what is left of the limit in the second,
+ * so the permits which one instance leased but doesn't use can't starve the other instances of a client which is
+ * under its limit. The counters expire after two seconds, so clients which went away don't leave anything in redis.
+ * <p>
+ * The buckets are kept in a {@link ConcurrentHashMap} and updated with compare-and-set only. The buckets of clients
+ * without requests for rl.idleEvictionSeconds are removed from time to time on the request threads. A blocking lease
+ * holds a {@link ReentrantLock} of the bucket instead of its monitor, so a virtual thread waiting for redis doesn't pin
+ * its carrier.
+ * <p>
+ * {@link #tryAcquireAsync(String, int)} can't hold the lock of the bucket while it waits for redis, so two requests of
+ * the same client may lease at the same time and the later lease replaces the earlier one. That only costs the client
+ * some of its leased permits, the limit itself is still kept by redis.
+ */
+@Component
+@ConditionalOnProperty(prefix = "rl", name = "mode", havingValue = "leasing", matchIfMissing = true)
+public class LeasingClientRateLimiter implements ClientRateLimiter {
+
+  // KEYS - the counter of the current second
+  // ARGV - the permits, the biggest lease, the limit and the length of the window in millis
+  // returns the leased permits, at least the requested ones, or 0 if they don't fit in the limit
+  static final String LEASE_SCRIPT =
+      "local permits = tonumber(ARGV[1]) " +
+      "local left = tonumber(ARGV[3]) - tonumber(redis.call('GET', KEYS[1]) or '0') " +
+      "if left < permits then " +
+      "  return 0 " +
+      "end " +
+      "local leased = math.max(permits, math.min(tonumber(ARGV[2]), math.floor(left / 2))) " +
+      "redis.call('INCRBY', KEYS[1], leased) " +
+      "redis.call('PEXPIRE', KEYS[1], tonumber(ARGV[4]) * 2) " +
+      "return leased";
+
+  private static final long WINDOW_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+  private final RedissonClient redissonClient;
+  private final int maxPerSecond;
+  private final int leaseSize;
+  private final long idleEvictionNanos;
+  // a permit is added to the local bucket every emissionIntervalNanos, the bucket holds at most a second of permits
+  private final long emissionIntervalNanos;
+  private final long burstNanos;
+  private final LongSupplier nanoTime;
+  private final LongSupplier currentTimeMillis;
+  private final Timer leaseTimer;
+
+  private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+  private final AtomicLong nextEviction;
+
+  @Autowired
+  public LeasingClientRateLimiter(RedissonClient redissonClient,
+                                  RateLimitConfig rateLimitConfig,
+                                  MeterRegistry meterRegistry) {
+    this(redissonClient, rateLimitConfig, meterRegistry, System::nanoTime, System::currentTimeMillis);
+  }
+
+  LeasingClientRateLimiter(RedissonClient redissonClient, RateLimitConfig rateLimitConfig, MeterRegistry meterRegistry,
+                           LongSupplier nanoTime, LongSupplier currentTimeMillis) {
+    this.redissonClient = redissonClient;
+    this.maxPerSecond = rateLimitConfig.getMaxPerSecond();
+    this.leaseSize = Math.max(1, Math.min(rateLimitConfig.getLeaseSize(), maxPerSecond));
+    this.idleEvictionNanos = TimeUnit.SECONDS.toNanos(rateLimitConfig.getIdleEvictionSeconds());
+    this.emissionIntervalNanos = TimeUnit.SECONDS.toNanos(1) / maxPerSecond;
+    this.burstNanos = emissionIntervalNanos * maxPerSecond;
+    this.nanoTime = nanoTime;
+    this.currentTimeMillis = currentTimeMillis;
+    this.nextEviction = new AtomicLong(nanoTime.getAsLong() + idleEvictionNanos);
+    this.leaseTimer = meterRegistry.timer("primenumber.redis", "operation", "rateLimiter.lease");
+  }
+
+  @Override
+  public RateLimitResult tryAcquire(String key, int permits) {
+    long now = nanoTime.getAsLong();
+    Bucket bucket = bucketOf(key, now);
+    long waitNanos = bucket.tryTakeLocal(permits, now);
+    if (waitNanos > 0) {
+      return RateLimitResult.rejected(maxPerSecond, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+    }
+    if (!bucket.tryTakeLeased(permits, now) && !lease(key, bucket, permits, now)) {
+      return rejectedByRedis();
+    }
+    return RateLimitResult.allowed(maxPerSecond, bucket.remaining(now));
+  }
+
+  @Override
+  public Mono<RateLimitResult> tryAcquireAsync(String key, int permits) {
+    long now = nanoTime.getAsLong();
+    Bucket bucket = bucketOf(key, now);
+    long waitNanos = bucket.tryTakeLocal(permits, now);
+    if (waitNanos > 0) {
+      return Mono.just(RateLimitResult.rejected(maxPerSecond, TimeUnit.NANOSECONDS.toMillis(waitNanos)));
+    }
+    if (bucket.tryTakeLeased(permits, now)) {
+      return Mono.just(RateLimitResult.allowed(maxPerSecond, bucket.remaining(now)));
+    }
+    return Mono.defer(() -> {
+      long millis = currentTimeMillis.getAsLong();
+      long start = System.nanoTime();
+      return Mono.fromCompletionStage(redissonClient.getScript(StringCodec.INSTANCE)
+          .<Long>evalAsync(RScript.Mode.READ_WRITE, LEASE_SCRIPT, RScript.ReturnType.INTEGER, List.of(leaseKey(key, millis)),
+              leaseArgs(permits)))
+          .doOnSuccess(leased -> leaseTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+          .map(leased -> {
+            if (leased == 0) {
+              return rejectedByRedis();
+            }
+            bucket.setLease(leased - permits, now, millis);
+            return RateLimitResult.allowed(maxPerSecond, bucket.remaining(now));
+          });
+    });
+  }
+
+  int getBucketCount() {
+    return buckets.size();
+  }
+
+  static String leaseKey(String client, long millis) {
+    // the hash tag keeps all counters of a client in the same slot of a redis cluster
+    return "rl:lease:{" + client + "}:" + millis / WINDOW_MILLIS;
+  }
+
+  private Bucket bucketOf(String key, long now) {
+    evictIdleBuckets(now);
+
+    Bucket bucket = buckets.get(key);
+    if (bucket == null) {
+      bucket = buckets.computeIfAbsent(key, k -> new Bucket(now));
+    }
+    bucket.lastAccess = now;
+    return bucket;
+  }
+
+  private RateLimitResult rejectedByRedis() {
+    // the other instances have used the limit of the client, the counter of the next second starts from 0
+    return RateLimitResult.rejected(maxPerSecond, WINDOW_MILLIS - currentTimeMillis.getAsLong() % WINDOW_MILLIS);
+  }
+
+  private boolean lease(String key, Bucket bucket, int permits, long now) {
+    bucket.leaseLock.lock();
+    try {
+      // another request of the same client may have leased in the meantime
+      if (bucket.tryTakeLeased(permits, now)) {
+        return true;
+      }
+      long millis = currentTimeMillis.getAsLong();
+      Long leased = leaseTimer.record(() -> redissonClient.getScript(StringCodec.INSTANCE)
+          .<Long>eval(RScript.Mode.READ_WRITE, LEASE_SCRIPT, RScript.ReturnType.INTEGER, List.of(leaseKey(key, millis)),
+              leaseArgs(permits)));
+      if (leased == 0) {
+        return false;
+      }
+      // whatever is left from the previous lease belongs to a second which is over
+      bucket.setLease(leased - permits, now, millis);
+      return true;
+    } finally {
+      bucket.leaseLock.unlock();
+    }
+  }
+
+  private Object[] leaseArgs(int permits) {
+    return new Object[]{String.valueOf(permits), String.valueOf(Math.max(permits, leaseSize)),
+        String.valueOf(maxPerSecond), String.valueOf(WINDOW_MILLIS)};
+  }
+
+  private void evictIdleBuckets(long now) {
+    long next = nextEviction.get();
+    if (now - next < 0 || !nextEviction.compareAndSet(next, now + idleEvictionNanos)) {
+      return;
+    }
+    buckets.values().removeIf(bucket -> now - bucket.lastAccess > idleEvictionNanos);
+  }
+
+  private final class Bucket {
+
+    // generic cell rate algorithm - the time when the bucket will be full again
+    private final AtomicLong theoreticalArrival;
+    private final AtomicLong leased = new AtomicLong();
+    private final ReentrantLock leaseLock = new ReentrantLock();
+    private volatile long leaseExpiresAt;
+    private volatile long lastAccess;
+
+    Bucket(long now) {
+      this.theoreticalArrival = new AtomicLong(now);
+      this.leaseExpiresAt = now;
+      this.lastAccess = now;
+    }
+
+    /**
+     * Replaces the lease with the permits leased at the given wall clock millis, which expire with its second.
+     */
+    void setLease(long permits, long now, long millis) {
+      leased.set(permits);
+      leaseExpiresAt = now + TimeUnit.MILLISECONDS.toNanos(WINDOW_MILLIS - millis % WINDOW_MILLIS);
+    }
+
+    /**
+     * @return 0 if the permits were taken, otherwise how long to wait until there are enough permits in the bucket
+     */
+    long tryTakeLocal(int permits, long now) {
+      long increment = permits * emissionIntervalNanos;
+      while (true) {
+        long arrival = theoreticalArrival.get();
+        long newArrival = Math.max(arrival - now, 0) + now + increment;
+        if (newArrival - now > burstNanos) {
+          return newArrival - now - burstNanos;
+        }
+        if (theoreticalArrival.compareAndSet(arrival, newArrival)) {
+          return 0;
+        }
+      }
+    }
+
+    long remaining(long now) {
+      return (burstNanos - Math.max(theoreticalArrival.get() - now, 0)) / emissionIntervalNanos;
+    }
+
+    boolean tryTakeLeased(int permits, long now) {
+      if (now - leaseExpiresAt >= 0) {
+        return false;
+      }
+      while (true) {
+        long available = leased.get();
+        if (available < permits) {
+          return false;
+        }
+        if (leased.compareAndSet(available, available - permits)) {
+          return true;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package com.nikolaynikolov.primenumberapi.service;
+
+import com.nikolaynikolov.primenumberapi.configuration.PrimePublishConfig;
+import com.nikolaynikolov.primenumberapi.prime.SieveSegment;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RFuture;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the finished segments of the sieve to the {@link PrimeNumberStore} without making the sieve wait for redis.
+ * <p>
+ * The sieve threads only put the segments in a bounded queue. A single writer thread drains up to prime.publish.batchSize
+ * segments at a time and sends them as one pipelined batch, with at most prime.publish.maxInFlight batches waiting for
+ * redis. When redis can't keep up the queue fills up and the sieve blocks until there is space again.
+ * <p>
+ * Nothing in the API reads the copy, so it's only written with prime.publish.enabled=true. Otherwise the writer thread
+ * isn't started and the segments are dropped right away.
+ * <p>
+ * Metrics:
+ * primenumber.publish.queue.size - segments waiting in the queue
+ * primenumber.publish.segments / primenumber.publish.primes - segments and prime numbers acknowledged by redis
+ * primenumber.publish.batch - time from sending a batch until redis has acknowledged it, recorded under
+ * primenumber.redis with operation=storeSegments as well, next to the rest of the redis calls
+ * primenumber.publish.failures - batches which redis didn't accept
+ */
+@Slf4j
+@Service
+public class PrimeNumberPublisher {
+
+  private final PrimeNumberStore primeNumberStore;
+  private final boolean enabled;
+  private final int batchSize;
+  private final BlockingQueue<SieveSegment> queue;
+  private final Semaphore inFlight;
+  private final Thread writer;
+
+  private final Counter publishedSegments;
+  private final Counter publishedPrimes;
+  private final Counter failedBatches;
+  private final Timer batchTimer;
+  private final Timer redisTimer;
+
+  @Autowired
+  public PrimeNumberPublisher(PrimeNumberStore primeNumberStore,
+                              PrimePublishConfig primePublishConfig,
+                              MeterRegistry meterRegistry) {
+    this.primeNumberStore = primeNumberStore;
+    this.enabled = primePublishConfig.isEnabled();
+    this.batchSize = primePublishConfig.getBatchSize();
+    this.queue = new ArrayBlockingQueue<>(primePublishConfig.getQueueCapacity());
+    this.inFlight = new Semaphore(primePublishConfig.getMaxInFlight());
+    this.writer = new Thread(this::drain, "PrimeNumberPublisher");
+    this.writer.setDaemon(true);
+
+    meterRegistry.gauge("primenumber.publish.queue.size", queue, BlockingQueue::size);
+    this.publishedSegments = meterRegistry.counter("primenumber.publish.segments");
+    this.publishedPrimes = meterRegistry.counter("primenumber.publish.primes");
+    this.failedBatches = meterRegistry.counter("primenumber.publish.failures");
+    this.batchTimer = meterRegistry.timer("primenumber.publish.batch");
+    this.redisTimer = meterRegistry.timer("primenumber.redis", "operation", "storeSegments");
+  }
+
+  @PostConstruct
+  public void start() {
+    if (enabled) {
+      writer.start();
+    }
+  }
+
+  @PreDestroy
+  public void stop() {
+    writer.interrupt();
+  }
+
+  /**
+   * Queues the segment to be written to redis. Blocks while the queue is full.
+   */
+  public void publish(SieveSegment segment) {
+    if (!enabled) {
+      return;
+    }
+    try {
+      queue.put(segment);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.warn("Interrupted while publishing prime numbers segment " + segment.getIndex());
+    }
+  }
+
+  private void drain() {
+    var segments = new ArrayList<SieveSegment>(batchSize);
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        segments.add(queue.take());
+        queue.drainTo(segments, batchSize - 1);
+        inFlight.acquire();
+        write(List.copyOf(segments));
+        segments.clear();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void write(List<SieveSegment> segments) {
+    long start = System.nanoTime();
+    RFuture<?> future;
+    try {
+      future = primeNumberStore.storeSegments(segments);
+    } catch (RuntimeException e) {
+      inFlight.release();
+      onFailure(segments, e);
+      return;
+    }
+
+    future.onComplete((result, error) -> {
+      inFlight.release();
+      long elapsed = System.nanoTime() - start;
+      batchTimer.record(elapsed, TimeUnit.NANOSECONDS);
+      redisTimer.record(elapsed, TimeUnit.NANOSECONDS);
+      if (error != null) {
+        onFailure(segments, error);
+        return;
+      }
+      publishedSegments.increment(segments.size());
+      for (SieveSegment segment : segments) {
+        publishedPrimes.increment(segment.getPrimeCount());
+      }
+    });
+  }
+
+  private void onFailure(List<SieveSegment> segments, Throwable error) {
+    failedBatches.increment();
+    log.warn("Couldn't publish " + segments.size() + " prime numbers segments", error);
+  }
+}
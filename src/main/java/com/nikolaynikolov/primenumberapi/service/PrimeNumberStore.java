@@ -0,0 +1,35 @@
+package com.nikolaynikolov.primenumberapi.service;
+
+import com.nikolaynikolov.primenumberapi.prime.SieveSegment;
+import org.redisson.api.RFuture;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Copy of the calculated prime numbers in redis, shared with everything else which uses the same redis. The API itself
+ * never reads it - it answers from the in-process prime index and the finished segments of the sieve - so the store
+ * only writes. The copy is filled while the sieve runs eagerly with prime.publish.enabled=true, an index loaded from a
+ * snapshot or sieved lazily isn't written to redis. The implementation is selected with prime.redisStorage - "bitmap"
+ * (default) or "set".
+ */
+public interface PrimeNumberStore {
+
+  /**
+   * Stores all prime numbers of a finished segment of the sieve and waits for redis.
+   */
+  default void storeSegment(SieveSegment segment) {
+    storeSegments(List.of(segment)).syncUninterruptibly();
+  }
+
+  /**
+   * Stores all prime numbers of the finished segments in a single pipelined batch without waiting for it.
+   *
+   * @return completes once redis has acknowledged the whole batch
+   */
+  RFuture<?> storeSegments(List<SieveSegment> segments);
+
+  void storePrimes(Collection<Integer> primes);
+
+  void clear();
+}
@@ -0,0 +1,25 @@
+package com.nikolaynikolov.primenumberapi.service;
+
+import lombok.Value;
+
+/**
+ * The outcome of a rate limited call, used for the X-RateLimit-* and Retry-After headers.
+ */
+@Value
+public class RateLimitResult {
+  boolean allowed;
+  // the limit of the window which is closest to being exceeded
+  long limit;
+  // requests left in that window, -1 if the limiter doesn't know it
+  long remaining;
+  // how long the client should wait before it tries again, 0 if the call was allowed
+  long retryAfterMillis;
+
+  public static RateLimitResult allowed(long limit, long remaining) {
+    return new RateLimitResult(true, limit, remaining, 0);
+  }
+
+  public static RateLimitResult rejected(long limit, long retryAfterMillis) {
+    return new RateLimitResult(false, limit, 0, Math.max(1, retryAfterMillis));
+  }
+}
@@ -1,28 +1,41 @@
 package com.nikolaynikolov.primenumberapi.service;
 
-import com.nikolaynikolov.primenumberapi.configuration.RateLimitConfig;
-import org.redisson.api.RateIntervalUnit;
-import org.redisson.api.RateType;
-import org.redisson.api.RedissonClient;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
 @Service
 public class RateLimitService {
-  
-  private final RedissonClient redissonClient;
-  private final RateLimitConfig rateLimiterConfig;
+
+  private final ClientRateLimiter clientRateLimiter;
 
   @Autowired
-  public RateLimitService(RedissonClient redissonClient,
-                          RateLimitConfig rateLimiterConfig) {
-    this.redissonClient = redissonClient;
-    this.rateLimiterConfig = rateLimiterConfig;
+  public RateLimitService(ClientRateLimiter clientRateLimiter) {
+    this.clientRateLimiter = clientRateLimiter;
   }
 
   public boolean canProceed(String ip) {
-    var rateLimiter = redissonClient.getRateLimiter(ip);
-    rateLimiter.trySetRate(RateType.PER_CLIENT, rateLimiterConfig.getMaxPerSecond(), 1, RateIntervalUnit.SECONDS);
-    return rateLimiter.tryAcquire();
+    return canProceed(ip, 1);
+  }
+
+  /**
+   * @param permits how many requests the call counts for, it can't be more than rl.maxPerSecond
+   */
+  public boolean canProceed(String ip, int permits) {
+    return acquire(ip, permits).isAllowed();
+  }
+
+  /**
+   * @param permits how many requests the call counts for, it can't be more than rl.maxPerSecond
+   */
+  public RateLimitResult acquire(String ip, int permits) {
+    return clientRateLimiter.tryAcquire(ip, permits);
+  }
+
+  /**
+   * Non-blocking version of {@link #acquire(String, int)} for the reactive endpoints.
+   */
+  public Mono<RateLimitResult> acquireAsync(String ip, int permits) {
+    return clientRateLimiter.tryAcquireAsync(ip, permits);
   }
 }
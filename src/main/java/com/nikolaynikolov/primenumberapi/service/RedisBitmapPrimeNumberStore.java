@@ -0,0 +1,92 @@
+package com.nikolaynikolov.primenumberapi.service;
+
+import com.nikolaynikolov.primenumberapi.prime.SieveSegment;
+import org.redisson.api.RBatch;
+import org.redisson.api.RBitSetAsync;
+import org.redisson.api.RFuture;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.redisson.misc.RedissonPromise;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Keeps the prime numbers as an odd-only bitmap in a single redis string - bit {@code i} is set when {@code 2 * i + 1}
+ * is prime, 2 is handled separately. For a max of 10_000_000 that is ~ 625 kb of redis memory.
+ * <p>
+ * Every finished segment of the sieve is written with a single SETRANGE and many segments are pipelined together.
+ * Other clients of the redis can check a number with a single GETBIT and find the next prime with BITPOS.
+ * <p>
+ * Redis numbers the bits of a byte from the most significant one, while the sieve uses the least significant one
+ * first, so the bits of every byte are reversed when the segment is written.
+ */
+@Component
+@ConditionalOnProperty(prefix = "prime", name = "redisStorage", havingValue = "bitmap", matchIfMissing = true)
+public class RedisBitmapPrimeNumberStore implements PrimeNumberStore {
+
+  private static final String PRIME_NUMBER_BITMAP = "primeNumberBitmap";
+
+  // RBatch doesn't expose SETRANGE, so it's sent as a script to be pipelined with the rest of the batch
+  private static final String SET_RANGE_SCRIPT = "return redis.call('SETRANGE', KEYS[1], ARGV[1], ARGV[2])";
+
+  private final RedissonClient redissonClient;
+
+  @Autowired
+  public RedisBitmapPrimeNumberStore(RedissonClient redissonClient) {
+    this.redissonClient = redissonClient;
+  }
+
+  @Override
+  public RFuture<?> storeSegments(List<SieveSegment> segments) {
+    if (redissonClient.isShutdown()) {
+      return RedissonPromise.newSucceededFuture(null);
+    }
+    RBatch batch = redissonClient.createBatch();
+    RScript script = batch.getScript(ByteArrayCodec.INSTANCE);
+    for (SieveSegment segment : segments) {
+      byte[] offset = String.valueOf((long) segment.getFromWord() * Long.BYTES).getBytes(StandardCharsets.US_ASCII);
+      script.evalAsync(RScript.Mode.READ_WRITE, SET_RANGE_SCRIPT, RScript.ReturnType.INTEGER,
+          List.of(PRIME_NUMBER_BITMAP), offset, toRedisBytes(segment));
+    }
+    return batch.executeAsync();
+  }
+
+  private static byte[] toRedisBytes(SieveSegment segment) {
+    long[] words = segment.getWords();
+    var bytes = ByteBuffer.allocate((segment.getToWord() - segment.getFromWord()) * Long.BYTES);
+    for (int word = segment.getFromWord(); word < segment.getToWord(); word++) {
+      // big-endian order of the reversed word puts bit 0 of the word in the most significant bit of the first byte
+      bytes.putLong(Long.reverse(words[word]));
+    }
+    return bytes.array();
+  }
+
+  @Override
+  public void storePrimes(Collection<Integer> primes) {
+    if (redissonClient.isShutdown() || primes.isEmpty()) {
+      return;
+    }
+    RBatch batch = redissonClient.createBatch();
+    RBitSetAsync bitmap = batch.getBitSet(PRIME_NUMBER_BITMAP);
+    for (int prime : primes) {
+      if ((prime & 1) == 1) {
+        bitmap.setAsync(prime >>> 1);
+      }
+    }
+    batch.execute();
+  }
+
+  @Override
+  public void clear() {
+    if (!redissonClient.isShutdown()) {
+      redissonClient.getBitSet(PRIME_NUMBER_BITMAP).delete();
+    }
+  }
+}
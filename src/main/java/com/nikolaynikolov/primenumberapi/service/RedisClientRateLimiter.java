@@ -0,0 +1,66 @@
+package com.nikolaynikolov.primenumberapi.service;
+
+import com.nikolaynikolov.primenumberapi.configuration.RateLimitConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.redisson.api.RateIntervalUnit;
+import org.redisson.api.RateType;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asks the redis rate limiter of the client on every request - simple, but at least two round trips per request.
+ */
+@Component
+@ConditionalOnProperty(prefix = "rl", name = "mode", havingValue = "redis")
+public class RedisClientRateLimiter implements ClientRateLimiter {
+
+  private final RedissonClient redissonClient;
+  private final RateLimitConfig rateLimiterConfig;
+  private final Timer timer;
+
+  @Autowired
+  public RedisClientRateLimiter(RedissonClient redissonClient,
+                                RateLimitConfig rateLimiterConfig,
+                                MeterRegistry meterRegistry) {
+    this.redissonClient = redissonClient;
+    this.rateLimiterConfig = rateLimiterConfig;
+    this.timer = meterRegistry.timer("primenumber.redis", "operation", "rateLimiter.redis");
+  }
+
+  @Override
+  public RateLimitResult tryAcquire(String key, int permits) {
+    int maxPerSecond = rateLimiterConfig.getMaxPerSecond();
+    var rateLimiter = redissonClient.getRateLimiter(key);
+    boolean allowed = timer.record(() -> {
+      rateLimiter.trySetRate(RateType.PER_CLIENT, maxPerSecond, 1, RateIntervalUnit.SECONDS);
+      return rateLimiter.tryAcquire(permits);
+    });
+    return toResult(allowed, maxPerSecond);
+  }
+
+  @Override
+  public Mono<RateLimitResult> tryAcquireAsync(String key, int permits) {
+    int maxPerSecond = rateLimiterConfig.getMaxPerSecond();
+    var rateLimiter = redissonClient.getRateLimiter(key);
+    return Mono.defer(() -> {
+      long start = System.nanoTime();
+      return Mono.fromCompletionStage(
+          rateLimiter.trySetRateAsync(RateType.PER_CLIENT, maxPerSecond, 1, RateIntervalUnit.SECONDS))
+          .then(Mono.fromCompletionStage(() -> rateLimiter.tryAcquireAsync(permits)))
+          .doOnSuccess(allowed -> timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+    }).map(allowed -> toResult(allowed, maxPerSecond));
+  }
+
+  private static RateLimitResult toResult(boolean allowed, int maxPerSecond) {
+    // the remaining permits would need one more round trip
+    return allowed
+        ? RateLimitResult.allowed(maxPerSecond, -1)
+        : RateLimitResult.rejected(maxPerSecond, TimeUnit.SECONDS.toMillis(1));
+  }
+}
@@ -0,0 +1,73 @@
+package com.nikolaynikolov.primenumberapi.service;
+
+import com.nikolaynikolov.primenumberapi.prime.SieveSegment;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
+import org.redisson.api.RSetCache;
+import org.redisson.api.RSetCacheAsync;
+import org.redisson.api.RedissonClient;
+import org.redisson.misc.RedissonPromise;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Keeps every prime number as a member of a redis set. Every member is a boxed Integer with its own TTL bookkeeping,
+ * so this takes tens of Mb for the default prime.max - prefer {@link RedisBitmapPrimeNumberStore}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "prime", name = "redisStorage", havingValue = "set")
+public class RedisSetPrimeNumberStore implements PrimeNumberStore {
+
+  private static final String PRIME_NUMBER_SET = "primeNumberSet";
+  private static final int CHUNK_SIZE = 1000;
+
+  private final RedissonClient redissonClient;
+
+  @Autowired
+  public RedisSetPrimeNumberStore(RedissonClient redissonClient) {
+    this.redissonClient = redissonClient;
+  }
+
+  @Override
+  public RFuture<?> storeSegments(List<SieveSegment> segments) {
+    if (redissonClient.isShutdown()) {
+      return RedissonPromise.newSucceededFuture(null);
+    }
+    RBatch batch = redissonClient.createBatch();
+    RSetCacheAsync<Integer> primeNumberSet = batch.getSetCache(PRIME_NUMBER_SET);
+    var primes = new ArrayList<Integer>(CHUNK_SIZE);
+    for (SieveSegment segment : segments) {
+      segment.forEachPrime(prime -> {
+        primes.add(prime);
+        if (primes.size() == CHUNK_SIZE) {
+          primeNumberSet.addAllAsync(new ArrayList<>(primes));
+          primes.clear();
+        }
+      });
+    }
+    if (!primes.isEmpty()) {
+      primeNumberSet.addAllAsync(primes);
+    }
+    return batch.executeAsync();
+  }
+
+  @Override
+  public void storePrimes(Collection<Integer> primes) {
+    if (!redissonClient.isShutdown() && !primes.isEmpty()) {
+      RSetCache<Integer> primeNumberSet = redissonClient.getSetCache(PRIME_NUMBER_SET);
+      primeNumberSet.addAll(primes);
+    }
+  }
+
+  @Override
+  public void clear() {
+    if (!redissonClient.isShutdown()) {
+      redissonClient.getSetCache(PRIME_NUMBER_SET).clear();
+    }
+  }
+}
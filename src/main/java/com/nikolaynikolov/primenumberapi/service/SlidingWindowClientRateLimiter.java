@@ -0,0 +1,156 @@
+package com.nikolaynikolov.primenumberapi.service;
+
+import com.nikolaynikolov.primenumberapi.configuration.RateLimitConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limiter which checks rl.maxPerSecond and rl.maxPerMinute together with a single lua script call per request.
+ * <p>
+ * Every window is a sliding window approximated with two fixed window counters - the current one and the previous one,
+ * weighted by how much of it still overlaps the sliding window. The request is counted in all windows only if it fits
+ * in all of them, so a rejected request doesn't use any of the limits. The counters are plain strings named
+ * rl:{client}:window seconds:window number which expire after two windows, so clients which stop sending requests
+ * don't leave anything behind in redis.
+ */
+@Component
+@ConditionalOnProperty(prefix = "rl", name = "mode", havingValue = "slidingWindow")
+public class SlidingWindowClientRateLimiter implements ClientRateLimiter {
+
+  // KEYS - the current and the previous counter of every window
+  // ARGV - the time in millis, the permits, then the length in millis and the limit of every window
+  // returns if the permits were taken, the limit and the remaining permits of the tightest window and the millis to wait
+  static final String SCRIPT =
+      "local now = tonumber(ARGV[1]) " +
+      "local permits = tonumber(ARGV[2]) " +
+      "local allowed = 1 " +
+      "local limit = 0 " +
+      "local remaining = nil " +
+      "local retryAfter = 0 " +
+      "for i = 1, #KEYS / 2 do " +
+      "  local window = tonumber(ARGV[i * 2 + 1]) " +
+      "  local max = tonumber(ARGV[i * 2 + 2]) " +
+      "  local current = tonumber(redis.call('GET', KEYS[i * 2 - 1]) or '0') " +
+      "  local previous = tonumber(redis.call('GET', KEYS[i * 2]) or '0') " +
+      "  local elapsed = now % window " +
+      "  local left = max - math.floor(previous * (window - elapsed) / window) - current - permits " +
+      "  if left < 0 then " +
+      "    allowed = 0 " +
+      "    local wait = window - elapsed " +
+      "    if current + permits <= max and previous > 0 then " +
+      "      wait = math.ceil((1 - (max - current - permits) / previous) * window) - elapsed " +
+      "    end " +
+      "    retryAfter = math.max(retryAfter, wait) " +
+      "  end " +
+      "  if remaining == nil or left < remaining then " +
+      "    remaining = left " +
+      "    limit = max " +
+      "  end " +
+      "end " +
+      "if allowed == 1 then " +
+      "  for i = 1, #KEYS / 2 do " +
+      "    redis.call('INCRBY', KEYS[i * 2 - 1], permits) " +
+      "    redis.call('PEXPIRE', KEYS[i * 2 - 1], tonumber(ARGV[i * 2 + 1]) * 2) " +
+      "  end " +
+      "end " +
+      "return {allowed, limit, remaining, retryAfter}";
+
+  private final RedissonClient redissonClient;
+  private final long[] windowMillis;
+  private final long[] limits;
+  private final LongSupplier currentTimeMillis;
+  private final Timer scriptTimer;
+
+  @Autowired
+  public SlidingWindowClientRateLimiter(RedissonClient redissonClient,
+                                        RateLimitConfig rateLimitConfig,
+                                        MeterRegistry meterRegistry) {
+    this(redissonClient, rateLimitConfig, meterRegistry, System::currentTimeMillis);
+  }
+
+  SlidingWindowClientRateLimiter(RedissonClient redissonClient, RateLimitConfig rateLimitConfig,
+                                 MeterRegistry meterRegistry, LongSupplier currentTimeMillis) {
+    this.redissonClient = redissonClient;
+    this.currentTimeMillis = currentTimeMillis;
+    this.scriptTimer = meterRegistry.timer("primenumber.redis", "operation", "rateLimiter.slidingWindow");
+
+    var windows = new ArrayList<long[]>();
+    if (rateLimitConfig.getMaxPerSecond() > 0) {
+      windows.add(new long[]{TimeUnit.SECONDS.toMillis(1), rateLimitConfig.getMaxPerSecond()});
+    }
+    if (rateLimitConfig.getMaxPerMinute() > 0) {
+      windows.add(new long[]{TimeUnit.MINUTES.toMillis(1), rateLimitConfig.getMaxPerMinute()});
+    }
+    if (windows.isEmpty()) {
+      throw new IllegalArgumentException("At least one of rl.maxPerSecond and rl.maxPerMinute must be set");
+    }
+    this.windowMillis = windows.stream().mapToLong(window -> window[0]).toArray();
+    this.limits = windows.stream().mapToLong(window -> window[1]).toArray();
+  }
+
+  @Override
+  public RateLimitResult tryAcquire(String key, int permits) {
+    long now = currentTimeMillis.getAsLong();
+    List<Long> result = scriptTimer.record(() -> redissonClient.getScript(StringCodec.INSTANCE)
+        .eval(RScript.Mode.READ_WRITE, SCRIPT, RScript.ReturnType.MULTI, keys(key, now), args(permits, now)));
+    return toResult(result);
+  }
+
+  @Override
+  public Mono<RateLimitResult> tryAcquireAsync(String key, int permits) {
+    return Mono.defer(() -> {
+      long now = currentTimeMillis.getAsLong();
+      long start = System.nanoTime();
+      return Mono.fromCompletionStage(redissonClient.getScript(StringCodec.INSTANCE)
+          .<List<Long>>evalAsync(RScript.Mode.READ_WRITE, SCRIPT, RScript.ReturnType.MULTI, keys(key, now),
+              args(permits, now)))
+          .doOnSuccess(result -> scriptTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+    }).map(SlidingWindowClientRateLimiter::toResult);
+  }
+
+  private List<Object> keys(String key, long now) {
+    List<Object> keys = new ArrayList<>(windowMillis.length * 2);
+    for (long millis : windowMillis) {
+      long window = now / millis;
+      keys.add(counterKey(key, millis, window));
+      keys.add(counterKey(key, millis, window - 1));
+    }
+    return keys;
+  }
+
+  private Object[] args(int permits, long now) {
+    Object[] args = new Object[2 + windowMillis.length * 2];
+    args[0] = String.valueOf(now);
+    args[1] = String.valueOf(permits);
+    for (int i = 0; i < windowMillis.length; i++) {
+      args[2 + i * 2] = String.valueOf(windowMillis[i]);
+      args[3 + i * 2] = String.valueOf(limits[i]);
+    }
+    return args;
+  }
+
+  private static RateLimitResult toResult(List<Long> result) {
+    long limit = result.get(1);
+    if (result.get(0) == 1) {
+      return RateLimitResult.allowed(limit, Math.max(0, result.get(2)));
+    }
+    return RateLimitResult.rejected(limit, result.get(3));
+  }
+
+  static String counterKey(String client, long windowMillis, long window) {
+    // the hash tag keeps all counters of a client in the same slot, so the script works on a redis cluster too
+    return "rl:{" + client + "}:" + TimeUnit.MILLISECONDS.toSeconds(windowMillis) + ":" + window;
+  }
+}
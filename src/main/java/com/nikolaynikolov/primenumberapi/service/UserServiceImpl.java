@@ -1,7 +1,12 @@
 package com.nikolaynikolov.primenumberapi.service;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.nikolaynikolov.primenumberapi.configuration.UserCacheConfig;
 import com.nikolaynikolov.primenumberapi.model.User;
 import com.nikolaynikolov.primenumberapi.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -10,30 +15,65 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+/**
+ * The users are cached in memory in front of redis, which is in front of the database.
+ * <p>
+ * Concurrent lookups of a user which isn't in memory wait for a single load, so a burst of requests with the same key
+ * goes to redis and the database only once. Unknown keys are cached as well. A user requested after
+ * user.cache.refreshAfterWriteSeconds is reloaded in the background while the cached one is still returned. When a user
+ * changes {@link #invalidateUser(String)} removes it from redis and publishes its key, and every instance drops it from
+ * memory.
+ */
 @Component
 public class UserServiceImpl implements UserDetailsService {
 
   private final UserRepository userRepository;
   private final CacheService cacheService;
+  private final LoadingCache<String, Optional<User>> users;
+  private int invalidationListenerId = -1;
 
   @Autowired
-  public UserServiceImpl(UserRepository userRepository, CacheService cacheService) {
+  public UserServiceImpl(UserRepository userRepository,
+                         CacheService cacheService,
+                         UserCacheConfig userCacheConfig,
+                         MeterRegistry meterRegistry) {
     this.userRepository = userRepository;
     this.cacheService = cacheService;
+    this.users = Caffeine.newBuilder()
+        .maximumSize(userCacheConfig.getMaximumSize())
+        .expireAfterWrite(userCacheConfig.getExpireAfterWriteSeconds(), TimeUnit.SECONDS)
+        .refreshAfterWrite(userCacheConfig.getRefreshAfterWriteSeconds(), TimeUnit.SECONDS)
+        .recordStats()
+        .build(this::loadUser);
+    CaffeineCacheMetrics.monitor(meterRegistry, users, "users");
   }
 
-  public Optional<User> getUserByKey(String key) {
-    User u = cacheService.getUser(key);
-    if (u != null) {
-      return Optional.of(u);
+  @PostConstruct
+  public void subscribe() {
+    invalidationListenerId = cacheService.addUserInvalidationListener(users::invalidate);
+  }
+
+  @PreDestroy
+  public void unsubscribe() {
+    if (invalidationListenerId != -1) {
+      cacheService.removeUserInvalidationListener(invalidationListenerId);
     }
-    var rawUser = this.userRepository.findFirstByKey(key);
-    rawUser.ifPresent(user -> cacheService.setUser(key, user));
-    return rawUser;
+  }
+
+  public Optional<User> getUserByKey(String key) {
+    return users.get(key);
+  }
+
+  public void invalidateUser(String key) {
+    users.invalidate(key);
+    cacheService.invalidateUser(key);
   }
 
   public Set<GrantedAuthority> getAuthorities(User user) {
@@ -55,4 +95,14 @@ public class UserServiceImpl implements UserDetailsService {
 
     return new org.springframework.security.core.userdetails.User(user.getName(), user.getKey(), authorities);
   }
+
+  private Optional<User> loadUser(String key) {
+    User u = cacheService.getUser(key);
+    if (u != null) {
+      return Optional.of(u);
+    }
+    var rawUser = this.userRepository.findFirstByKey(key);
+    rawUser.ifPresent(user -> cacheService.setUser(key, user));
+    return rawUser;
+  }
 }
@@ -1,18 +1,27 @@
 package com.nikolaynikolov.primenumberapi;
 
+import com.nikolaynikolov.primenumberapi.configuration.RateLimitConfig;
 import com.nikolaynikolov.primenumberapi.model.Permission;
 import com.nikolaynikolov.primenumberapi.model.User;
+import com.nikolaynikolov.primenumberapi.prime.SegmentedSieve;
 import com.nikolaynikolov.primenumberapi.service.CacheService;
+import com.nikolaynikolov.primenumberapi.service.LeasingClientRateLimiter;
+import com.nikolaynikolov.primenumberapi.service.PrimeNumberStore;
 import com.nikolaynikolov.primenumberapi.service.RateLimitService;
+import com.nikolaynikolov.primenumberapi.service.SlidingWindowClientRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.runner.RunWith;
+import org.redisson.api.RedissonClient;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import static com.nikolaynikolov.primenumberapi.model.Permission.ACCESS_PRIME_API;
 import static org.junit.Assert.*;
@@ -28,6 +37,12 @@ class PrimeapiApplicationTests {
   @Autowired
   private CacheService cacheService;
 
+  @Autowired
+  private PrimeNumberStore primeNumberStore;
+
+  @Autowired
+  private RedissonClient redissonClient;
+
   @Test
   public void contextLoads() {
   }
@@ -50,6 +65,65 @@ class PrimeapiApplicationTests {
     assertFalse(rateLimitService.canProceed(ip));
   }
 
+  @Test
+  public void testSlidingWindowRateLimiting_shouldEnforceBothWindows() throws InterruptedException {
+
+    var config = new RateLimitConfig();
+    config.setMaxPerSecond(5);
+    config.setMaxPerMinute(7);
+    var rateLimiter = new SlidingWindowClientRateLimiter(redissonClient, config, new SimpleMeterRegistry());
+    String ip = "123.34.0.3:" + System.nanoTime();
+    // the test needs about two seconds without crossing into the next minute
+    if (System.currentTimeMillis() % 60_000 > 55_000) {
+      Thread.sleep(60_000 - System.currentTimeMillis() % 60_000);
+    }
+    Thread.sleep(1000 - System.currentTimeMillis() % 1000);
+
+    for (int i = 0; i < 5; i++) {
+      var result = rateLimiter.tryAcquire(ip, 1);
+      assertTrue(result.isAllowed());
+      assertEquals(5, result.getLimit());
+      assertEquals(4 - i, result.getRemaining());
+    }
+    var rejected = rateLimiter.tryAcquire(ip, 1);
+    assertFalse(rejected.isAllowed());
+    assertEquals(5, rejected.getLimit());
+    assertTrue(rejected.getRetryAfterMillis() > 0 && rejected.getRetryAfterMillis() <= 1000);
+
+    // two seconds later the per second window is empty, but only 2 requests are left in the minute
+    Thread.sleep(2000 - System.currentTimeMillis() % 1000);
+    assertTrue(rateLimiter.tryAcquire(ip, 2).isAllowed());
+    rejected = rateLimiter.tryAcquire(ip, 1);
+    assertFalse(rejected.isAllowed());
+    assertEquals(7, rejected.getLimit());
+  }
+
+  @Test
+  public void testLeasingRateLimiting_shouldLetTheCountersExpire() throws InterruptedException {
+
+    var config = new RateLimitConfig();
+    config.setMaxPerSecond(5);
+    config.setLeaseSize(5);
+    config.setIdleEvictionSeconds(60);
+    var rateLimiter = new LeasingClientRateLimiter(redissonClient, config, new SimpleMeterRegistry());
+    String ip = "123.34.0.4:" + System.nanoTime();
+    for (int i = 0; i < 5; i++) {
+      assertTrue(rateLimiter.tryAcquire(ip, 1).isAllowed());
+    }
+
+    var keys = new ArrayList<String>();
+    redissonClient.getKeys().getKeysByPattern("rl:lease:{" + ip + "}:*").forEach(keys::add);
+    assertFalse(keys.isEmpty());
+    for (String key : keys) {
+      long ttl = redissonClient.getBucket(key).remainTimeToLive();
+      assertTrue("No expiry for " + key, ttl > 0 && ttl <= 2000);
+    }
+
+    // the counters expire two seconds after their last lease and nothing else of the client is kept in redis
+    Thread.sleep(2500);
+    assertFalse(redissonClient.getKeys().getKeysByPattern("*" + ip + "*").iterator().hasNext());
+  }
+
   @Test
   public void testCacheService_shouldSetPrimeNumberCorrectly_andReturnThemBack() {
 
@@ -69,9 +143,9 @@ class PrimeapiApplicationTests {
     var listOfPrimes = List.of(1741, 1747, 1753, 1759, 1777, 1783, 1787, 1789, 1801, 1811, 1823, 1831, 1847, 1861, 1867);
     cacheService.setPrimeNumbers(listOfPrimes);
 
-    var nextPrime = cacheService.getNextPrimeNumber(1741);
+    var nextPrime = cacheService.getNextPrimeNumber(1741L);
     assertEquals(1747, nextPrime.intValue());
-    nextPrime = cacheService.getNextPrimeNumber(1847);
+    nextPrime = cacheService.getNextPrimeNumber(1847L);
     assertEquals(1861, nextPrime.intValue());
   }
 
@@ -85,13 +159,67 @@ class PrimeapiApplicationTests {
   }
 
   @Test
-  public void testCacheService_getNextPrimeNumber_shouldReturnNullIfNextPrimeIsNotAvailable() {
+  public void testCacheService_getNextPrimeNumber_shouldFindNextPrimeAboveTheCachedPrimes() {
 
     var listOfPrimes = List.of(1741, 1747, 1753, 1759, 1777, 1783, 1787, 1789, 1801, 1811, 1823, 1831, 1847, 1861, 1867);
-    cacheService.disposeSetPrimeNumberCache();
+    cacheService.disposePrimeNumberCache();
     cacheService.setPrimeNumbers(listOfPrimes);
-    var nextPrime = cacheService.getNextPrimeNumber(1867);
-    assertNull(nextPrime);
+    var nextPrime = cacheService.getNextPrimeNumber(1867L);
+    assertEquals(1871, nextPrime.intValue());
+  }
+
+  @Test
+  public void testCacheService_getNextPrimeNumber_shouldFindNextPrimeAbovePrimeMax() {
+
+    // Max set in config for the test is 10
+    assertEquals(11, cacheService.getNextPrimeNumber(7L).intValue());
+    assertEquals(11, cacheService.getNextPrimeNumber(10L).intValue());
+  }
+
+  @Test
+  public void testCacheService_getNextPrimeNumber_shouldFindNextPrimeAboveInteger() {
+
+    assertEquals(2_147_483_659L, cacheService.getNextPrimeNumber((long) Integer.MAX_VALUE).longValue());
+  }
+
+  @Test
+  public void testCacheService_getNextPrimeNumber_shouldReturnNullIfNextPrimeDoesNotFitInLong() {
+
+    // the biggest prime which fits in a long
+    assertNull(cacheService.getNextPrimeNumber(Long.MAX_VALUE - 24));
+  }
+
+  @Test
+  public void testCacheService_checkIfPrimeNumber_shouldCheckNumbersAbovePrimeMax() {
+
+    assertTrue(cacheService.checkIfPrimeNumber(1_000_000_007L));
+    assertFalse(cacheService.checkIfPrimeNumber(1_000_000_007L * 998_244_353L));
+    assertTrue(cacheService.checkIfPrimeNumber(Long.MAX_VALUE - 24));
+  }
+
+  @Test
+  public void testCacheService_checkIfPrimeNumbers_shouldCheckAllNumbersInOrder() {
+
+    var primes = cacheService.checkIfPrimeNumbers(new long[]{2, 9, 1801, 1_000_000_007L, 4, 7});
+    assertArrayEquals(new boolean[]{true, false, true, true, false, true}, primes);
+  }
+
+  @Test
+  public void testPrimeNumberStore_shouldStoreSegmentsAsBitmap() {
+
+    primeNumberStore.clear();
+    new SegmentedSieve(100_000, 64).run(ForkJoinPool.commonPool(), primeNumberStore::storeSegment);
+
+    // bit i is set when 2 * i + 1 is prime
+    var bitmap = redissonClient.getBitSet("primeNumberBitmap");
+    assertTrue(bitmap.get(3 >>> 1));
+    assertTrue(bitmap.get(1801 >>> 1));
+    assertTrue(bitmap.get(99_991 >>> 1));
+    assertFalse(bitmap.get(1 >>> 1));
+    assertFalse(bitmap.get(9 >>> 1));
+    assertFalse(bitmap.get(99_993 >>> 1));
+    // all 9592 primes up to 100_000 except 2
+    assertEquals(9591, bitmap.cardinality());
   }
 
   @Test
@@ -0,0 +1,31 @@
+package com.nikolaynikolov.primenumberapi.configuration;
+
+import com.nikolaynikolov.primenumberapi.metrics.VirtualThreadMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+class VirtualThreadConfigTests {
+
+  @Test
+  public void testVirtualThreadExecutor_shouldRunEveryTaskOnANewVirtualThread() throws Exception {
+    var meterRegistry = new SimpleMeterRegistry();
+    var executor = new VirtualThreadConfig().virtualThreadExecutor(
+        new VirtualThreadMetrics(meterRegistry, new ThreadsConfig()));
+    try {
+      var first = CompletableFuture.supplyAsync(Thread::currentThread, executor).get(5, TimeUnit.SECONDS);
+      var second = CompletableFuture.supplyAsync(Thread::currentThread, executor).get(5, TimeUnit.SECONDS);
+
+      assertTrue(first.isVirtual());
+      assertTrue(first.getName().startsWith("primeapi-"));
+      assertNotSame(first, second);
+      assertEquals(2, meterRegistry.counter("threads.virtual.started").count(), 0);
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
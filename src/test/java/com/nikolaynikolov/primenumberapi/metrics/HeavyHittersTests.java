@@ -0,0 +1,164 @@
+package com.nikolaynikolov.primenumberapi.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+class HeavyHittersTests {
+
+  @Test
+  public void testCountMinSketch_shouldNeverUnderestimate() {
+    var sketch = new CountMinSketch(1000, 4);
+    assertEquals(1024, sketch.getWidth());
+    var random = new Random(42);
+    Map<Long, Long> counts = new HashMap<>();
+    for (int i = 0; i < 100_000; i++) {
+      long key = random.nextInt(10_000);
+      sketch.add(key, 1);
+      counts.merge(key, 1L, Long::sum);
+    }
+    for (var entry : counts.entrySet()) {
+      long estimate = sketch.estimate(entry.getKey());
+      assertTrue(estimate >= entry.getValue());
+      // e * N / width is about 265
+      assertTrue("Estimate too high for " + entry.getKey(), estimate - entry.getValue() < 1000);
+    }
+  }
+
+  @Test
+  public void testHeavyHitters_shouldFindTheMostFrequentNumbers() {
+    var heavyHitters = new HeavyHitters(2048, 4, 5);
+    var random = new Random(7);
+    for (int i = 0; i < 50_000; i++) {
+      heavyHitters.add(random.nextInt(1_000_000));
+      // the numbers 0 to 4 are requested much more than the rest
+      if (i % 10 == 0) {
+        heavyHitters.add(i % 50 / 10);
+      }
+    }
+
+    var top = heavyHitters.getTop();
+    assertEquals(5, top.size());
+    for (var entry : top) {
+      assertTrue("Unexpected heavy hitter " + entry.getKey(), (Long) entry.getKey() < 5);
+      assertTrue(entry.getCount() >= 1000);
+    }
+  }
+
+  @Test
+  public void testHeavyHitters_shouldTrackClientsAndReset() {
+    var heavyHitters = new HeavyHitters(2048, 4, 2);
+    for (int i = 0; i < 100; i++) {
+      heavyHitters.add("10.0.0.1");
+      heavyHitters.add("10.0.0." + (i % 20 + 2));
+    }
+    for (int i = 0; i < 50; i++) {
+      heavyHitters.add("10.0.0.2");
+    }
+
+    var top = heavyHitters.getTop();
+    assertEquals("10.0.0.1", top.get(0).getKey());
+    assertEquals(100, top.get(0).getCount());
+    assertEquals("10.0.0.2", top.get(1).getKey());
+    assertEquals(55, top.get(1).getCount());
+
+    heavyHitters.clear();
+    assertTrue(heavyHitters.getTop().isEmpty());
+  }
+
+  @Test
+  public void testHeavyHitters_shouldCountTrackedKeysWithoutTheLock() throws Exception {
+    var heavyHitters = new HeavyHitters(2048, 4, 2);
+    for (int i = 0; i < 10; i++) {
+      heavyHitters.add(1);
+      heavyHitters.add(2);
+    }
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      // the heap stays locked, so the adds only finish if the keys in it don't need the lock
+      synchronized (heavyHitters) {
+        executor.submit(() -> {
+          for (int i = 0; i < 1000; i++) {
+            heavyHitters.add(1);
+          }
+          for (int i = 0; i < 500; i++) {
+            heavyHitters.add(2);
+          }
+        }).get(10, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    var top = heavyHitters.getTop();
+    assertEquals(1L, top.get(0).getKey());
+    assertEquals(1010, top.get(0).getCount());
+    assertEquals(2L, top.get(1).getKey());
+    assertEquals(510, top.get(1).getCount());
+  }
+
+  @Test
+  public void testHeavyHitters_shouldReplaceKeysWhichAreNoLongerHot() {
+    var heavyHitters = new HeavyHitters(2048, 4, 2);
+    for (int i = 0; i < 10; i++) {
+      heavyHitters.add(1);
+      heavyHitters.add(2);
+    }
+    // 2 is counted without updating the heap, 3 must still replace 1 and not 2
+    for (int i = 0; i < 100; i++) {
+      heavyHitters.add(2);
+    }
+    for (int i = 0; i < 20; i++) {
+      heavyHitters.add(3);
+    }
+
+    var top = heavyHitters.getTop();
+    assertEquals(2, top.size());
+    assertEquals(2L, top.get(0).getKey());
+    assertEquals(110, top.get(0).getCount());
+    assertEquals(3L, top.get(1).getKey());
+    assertEquals(20, top.get(1).getCount());
+  }
+
+  @Test
+  public void testHeavyHitters_shouldFindTheMostFrequentNumbersFromManyThreads() throws Exception {
+    var heavyHitters = new HeavyHitters(2048, 4, 5);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      var results = new Future<?>[4];
+      for (int t = 0; t < results.length; t++) {
+        int seed = t;
+        results[t] = executor.submit(() -> {
+          var random = new Random(seed);
+          for (int i = 0; i < 50_000; i++) {
+            heavyHitters.add(random.nextInt(1_000_000));
+            if (i % 10 == 0) {
+              heavyHitters.add(i % 50 / 10);
+            }
+          }
+        });
+      }
+      for (var result : results) {
+        result.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    var top = heavyHitters.getTop();
+    assertEquals(5, top.size());
+    for (var entry : top) {
+      assertTrue("Unexpected heavy hitter " + entry.getKey(), (Long) entry.getKey() < 5);
+      // every thread adds each of them 1000 times, the estimate is never lower
+      assertTrue(entry.getCount() >= 4000);
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package com.nikolaynikolov.primenumberapi.metrics;
+
+import com.nikolaynikolov.primenumberapi.configuration.HotKeysConfig;
+import com.nikolaynikolov.primenumberapi.metrics.RequestMetrics.Endpoint;
+import com.nikolaynikolov.primenumberapi.metrics.RequestMetrics.Phase;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+class RequestMetricsTests {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final RequestMetrics requestMetrics = new RequestMetrics(meterRegistry, new HotKeysConfig());
+
+  @Test
+  public void testRequestMetrics_shouldNotCreateMetersPerNumberOrClient() {
+    int meters = meterRegistry.getMeters().size();
+    for (int i = 0; i < 10_000; i++) {
+      requestMetrics.recordNumber(Endpoint.CHECK_IF_PRIME, i);
+      requestMetrics.recordRequest(Endpoint.CHECK_IF_PRIME, 200, "10.0." + i / 256 + "." + i % 256);
+    }
+
+    assertEquals(meters, meterRegistry.getMeters().size());
+    assertEquals(10_000, meterRegistry.get(RequestMetrics.REQUEST_COUNTER)
+        .tags("endpoint_name", "checkIfPrimeNumber", "status_code", "200").counter().count(), 0);
+    assertEquals(10_000, meterRegistry.get(RequestMetrics.NUMBER_INPUT_COUNTER)
+        .tags("endpoint_name", "checkIfPrimeNumber").counter().count(), 0);
+  }
+
+  @Test
+  public void testRequestMetrics_shouldNotAllocatePerRequest() {
+    var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+    String client = "10.0.0.1";
+    // fills the top-k and warms up the code
+    for (int i = 0; i < 100_000; i++) {
+      requestMetrics.recordNumber(Endpoint.NEXT_PRIME, i % 100);
+      requestMetrics.recordRequest(Endpoint.NEXT_PRIME, 200, client);
+    }
+
+    long before = threads.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < 100_000; i++) {
+      requestMetrics.recordNumber(Endpoint.NEXT_PRIME, 1_000_000 + i);
+      requestMetrics.recordRequest(Endpoint.NEXT_PRIME, 429, client);
+    }
+    long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+    // only the top-k changes may allocate, far less than a byte per request
+    assertTrue("Allocated " + allocated + " bytes", allocated < 100_000);
+  }
+
+  @Test
+  public void testRequestTiming_shouldSplitTheRequestIntoPhases() throws InterruptedException {
+    var interceptor = new RequestTimingInterceptor(requestMetrics);
+    var request = new MockHttpServletRequest();
+    var response = new MockHttpServletResponse();
+
+    interceptor.preHandle(request, response, this);
+    var timing = requestMetrics.startTiming(request, Endpoint.COUNT);
+    timing.mark(Phase.RATE_LIMIT);
+    Thread.sleep(20);
+    timing.mark(Phase.LOOKUP);
+    interceptor.afterCompletion(request, response, this, null);
+    // the second pass of an async request doesn't record it again
+    interceptor.preHandle(request, response, this);
+    interceptor.afterCompletion(request, response, this, null);
+
+    var total = meterRegistry.get(RequestMetrics.REQUEST_TIMER).tags("endpoint_name", "countPrimeNumbers").timer();
+    assertEquals(1, total.count());
+    double phases = meterRegistry.find(RequestMetrics.PHASE_TIMER).tags("endpoint_name", "countPrimeNumbers").timers()
+        .stream().mapToDouble(timer -> timer.totalTime(TimeUnit.NANOSECONDS)).sum();
+    assertEquals(total.totalTime(TimeUnit.NANOSECONDS), phases, 0);
+    assertTrue(meterRegistry.get(RequestMetrics.PHASE_TIMER).tags("phase", "lookup").timer()
+        .totalTime(TimeUnit.MILLISECONDS) >= 20);
+  }
+}
@@ -0,0 +1,141 @@
+package com.nikolaynikolov.primenumberapi.prime;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.nikolaynikolov.primenumberapi.prime.PrimeIndexTests.buildIndex;
+import static org.junit.Assert.*;
+
+class LazyPrimeIndexTests {
+
+  private static final int MAX = 100_003;
+  // 64 bytes = 1024 numbers per segment, only 4 of the 98 segments are cached
+  private static final int SEGMENT_BYTES = 64;
+  private static final int CACHE_BYTES = 4 * SEGMENT_BYTES;
+
+  @Test
+  public void testLazyPrimeIndex_shouldMatchTheCompleteIndex() {
+    var expected = buildIndex(MAX);
+    for (boolean offHeap : new boolean[]{false, true}) {
+      var index = new LazyPrimeIndex(MAX, SEGMENT_BYTES, CACHE_BYTES, offHeap);
+
+      for (int i = -1; i <= MAX; i++) {
+        assertEquals("Wrong answer for " + i, expected.isPrime(i), index.isPrime(i));
+        assertEquals("Wrong next prime for " + i, expected.nextPrime(i), index.nextPrime(i));
+        if (i >= 0) {
+          assertEquals("Wrong count for " + i, expected.countPrimes(i), index.countPrimes(i));
+        }
+      }
+      for (int n = 1; n <= expected.getPrimeCount() + 1; n++) {
+        assertEquals("Wrong n-th prime for " + n, expected.nthPrime(n), index.nthPrime(n));
+      }
+      assertEquals(expected.getPrimeCount(), index.getPrimeCount());
+      assertEquals(expected.countPrimes(1_000, 50_000), index.countPrimes(1_000, 50_000));
+    }
+  }
+
+  @Test
+  public void testLazyPrimeIndex_shouldSieveOnlyTheRequestedSegments() {
+    var index = new LazyPrimeIndex(MAX, SEGMENT_BYTES, CACHE_BYTES, false);
+    var cache = index.getCache();
+    assertEquals(0, cache.size());
+
+    assertTrue(index.isPrime(99_991));
+    assertTrue(index.isPrime(99_989));
+    assertEquals(1, cache.getMissCount());
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.size());
+    assertTrue(cache.contains(99_991 / 1024));
+
+    // the nth prime is found in a cached segment, the counting before it doesn't fill the cache
+    assertEquals(99_991, index.nthPrime(9_592));
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void testLazyPrimeIndex_shouldEvictWithinTheBudget() {
+    var expected = buildIndex(MAX);
+    var index = new LazyPrimeIndex(MAX, SEGMENT_BYTES, CACHE_BYTES, true);
+
+    for (int i = 3; i <= MAX; i += 1024) {
+      assertEquals(expected.isPrime(i), index.isPrime(i));
+    }
+    var cache = index.getCache();
+    assertEquals(4, cache.size());
+    assertEquals(CACHE_BYTES, cache.getCapacityBytes());
+    assertEquals(index.getSegmentCount(), cache.getMissCount());
+    assertEquals(index.getSegmentCount() - 4, cache.getEvictionCount());
+  }
+
+  @Test
+  public void testLazyPrimeIndex_shouldAnswerConcurrentLookups() throws Exception {
+    var expected = buildIndex(MAX);
+    var index = new LazyPrimeIndex(MAX, SEGMENT_BYTES, CACHE_BYTES, false);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      var results = new Future<?>[4];
+      for (int t = 0; t < results.length; t++) {
+        results[t] = executor.submit(() -> {
+          var random = ThreadLocalRandom.current();
+          for (int i = 0; i < 20_000; i++) {
+            int number = random.nextInt(MAX + 1);
+            assertEquals("Wrong answer for " + number, expected.isPrime(number), index.isPrime(number));
+            assertEquals("Wrong next prime for " + number, expected.nextPrime(number), index.nextPrime(number));
+          }
+        });
+      }
+      for (var result : results) {
+        result.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testLazyPrimeIndex_shouldCoverIntegerMaxValue() {
+    var index = new LazyPrimeIndex(Integer.MAX_VALUE, 32 * 1024, 1024 * 1024, false);
+
+    // 2^31 - 1 is a Mersenne prime
+    assertTrue(index.isPrime(Integer.MAX_VALUE));
+    assertFalse(index.isPrime(Integer.MAX_VALUE - 2));
+    assertEquals(Integer.MAX_VALUE, index.nextPrime(2_147_483_629L));
+    assertEquals(-1, index.nextPrime(Integer.MAX_VALUE));
+    assertFalse(index.covers(Integer.MAX_VALUE + 1L));
+    // only the last segment of the range was sieved
+    assertEquals(1, index.getCache().getMissCount());
+    assertEquals(1, index.getCache().size());
+  }
+
+  @Test
+  public void testLazyPrimeIndex_shouldReportTheCountedSegments() {
+    var index = new LazyPrimeIndex(MAX, SEGMENT_BYTES, CACHE_BYTES, false);
+    assertFalse(index.isCounted(2));
+
+    // π(x) counts only the segments before the one with x
+    assertEquals(172, index.countPrimes(1024));
+    assertEquals(1229, index.countPrimes(10_000));
+    assertTrue(index.isCounted(2));
+    assertTrue(index.isCounted(9_215));
+    assertFalse(index.isCounted(10_000));
+    assertFalse(index.isCounted(MAX));
+
+    // 100_003 is prime as well
+    assertEquals(9_593, index.getPrimeCount());
+    assertTrue(index.isCounted(MAX));
+    assertTrue(index.isCounted(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void testLazyPrimeIndex_shouldRejectInvalidArguments() {
+    var index = new LazyPrimeIndex(MAX, SEGMENT_BYTES, CACHE_BYTES, false);
+
+    assertThrows(IllegalArgumentException.class, () -> index.countPrimes(MAX + 1));
+    assertThrows(IllegalArgumentException.class, () -> index.nthPrime(0));
+    assertThrows(IllegalArgumentException.class, () -> new LazyPrimeIndex(1, SEGMENT_BYTES, CACHE_BYTES, false));
+  }
+}
@@ -0,0 +1,59 @@
+package com.nikolaynikolov.primenumberapi.prime;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static com.nikolaynikolov.primenumberapi.prime.PrimeIndexTests.isPrime;
+import static org.junit.Assert.*;
+
+class MillerRabinTests {
+
+  @Test
+  public void testMillerRabin_shouldMatchTrialDivisionForSmallNumbers() {
+    for (long i = -5; i <= 200_000; i++) {
+      assertEquals("Wrong answer for " + i, isPrime(i), MillerRabin.isPrime(i));
+    }
+  }
+
+  @Test
+  public void testMillerRabin_shouldMatchBigIntegerForRandomLongs() {
+    var random = new Random(42);
+    for (int i = 0; i < 200_000; i++) {
+      long number = random.nextLong() >>> (1 + random.nextInt(62));
+      assertEquals("Wrong answer for " + number,
+          BigInteger.valueOf(number).isProbablePrime(64), MillerRabin.isPrime(number));
+    }
+  }
+
+  @Test
+  public void testMillerRabin_shouldDetectStrongPseudoprimes() {
+    // strong pseudoprimes to several small bases and Carmichael numbers
+    long[] composites = {561, 1_105, 3_215_031_751L, 4_759_123_141L, 1_122_004_669_633L,
+        3_825_123_056_546_413_051L, 3_037_000_493L * 3_037_000_453L};
+    for (long composite : composites) {
+      assertEquals("Wrong answer for " + composite,
+          BigInteger.valueOf(composite).isProbablePrime(64), MillerRabin.isPrime(composite));
+    }
+  }
+
+  @Test
+  public void testMillerRabin_shouldFindBigPrimes() {
+    assertTrue(MillerRabin.isPrime(2_147_483_647L));
+    assertTrue(MillerRabin.isPrime(2_305_843_009_213_693_951L));
+    // the biggest prime which fits in a long
+    assertTrue(MillerRabin.isPrime(Long.MAX_VALUE - 24));
+    assertFalse(MillerRabin.isPrime(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void testMillerRabin_nextPrime() {
+    assertEquals(2, MillerRabin.nextPrime(-1));
+    assertEquals(3, MillerRabin.nextPrime(2));
+    assertEquals(10_000_019, MillerRabin.nextPrime(10_000_000));
+    assertEquals(2_147_483_659L, MillerRabin.nextPrime(Integer.MAX_VALUE));
+    assertEquals(Long.MAX_VALUE - 24, MillerRabin.nextPrime(Long.MAX_VALUE - 60));
+    assertEquals(-1, MillerRabin.nextPrime(Long.MAX_VALUE - 24));
+  }
+}
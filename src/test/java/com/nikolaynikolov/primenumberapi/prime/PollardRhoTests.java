@@ -0,0 +1,62 @@
+package com.nikolaynikolov.primenumberapi.prime;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static com.nikolaynikolov.primenumberapi.prime.SmallestPrimeFactorsTests.trialDivision;
+import static org.junit.Assert.*;
+
+class PollardRhoTests {
+
+  @Test
+  public void testFactorize_shouldMatchTrialDivisionForSmallNumbers() {
+    for (long i = 2; i <= 100_000; i++) {
+      assertArrayEquals("Wrong factors of " + i, trialDivision(i), PollardRho.factorize(i));
+    }
+  }
+
+  @Test
+  public void testFactorize_shouldFactorizeRandomLongs() {
+    var random = new Random(42);
+    for (int i = 0; i < 2_000; i++) {
+      long number = Math.max(2, random.nextLong() >>> (1 + random.nextInt(62)));
+      assertFactors(number, PollardRho.factorize(number));
+    }
+  }
+
+  @Test
+  public void testFactorize_shouldSplitHardNumbers() {
+    long p = 3_037_000_493L;
+    long q = 3_037_000_453L;
+    assertArrayEquals(new long[]{q, p}, PollardRho.factorize(p * q));
+    // the biggest prime below 2^31, squared
+    assertArrayEquals(new long[]{2_147_483_647L, 2_147_483_647L}, PollardRho.factorize(2_147_483_647L * 2_147_483_647L));
+    // strong pseudoprimes and Carmichael numbers
+    assertArrayEquals(new long[]{3, 11, 17}, PollardRho.factorize(561));
+    assertFactors(3_825_123_056_546_413_051L, PollardRho.factorize(3_825_123_056_546_413_051L));
+    assertFactors(Long.MAX_VALUE, PollardRho.factorize(Long.MAX_VALUE));
+    assertArrayEquals(new long[]{Long.MAX_VALUE - 24}, PollardRho.factorize(Long.MAX_VALUE - 24));
+  }
+
+  @Test
+  public void testGcd_shouldMatchBigInteger() {
+    var random = new Random(42);
+    for (int i = 0; i < 10_000; i++) {
+      long a = random.nextLong() >>> 1;
+      long b = random.nextLong() >>> (1 + random.nextInt(62));
+      assertEquals(BigInteger.valueOf(a).gcd(BigInteger.valueOf(b)).longValue(), PollardRho.gcd(a, b));
+    }
+  }
+
+  private static void assertFactors(long number, long[] factors) {
+    long product = 1;
+    for (int i = 0; i < factors.length; i++) {
+      assertTrue("Factors of " + number + " are not sorted", i == 0 || factors[i - 1] <= factors[i]);
+      assertTrue(factors[i] + " is not prime", BigInteger.valueOf(factors[i]).isProbablePrime(64));
+      product *= factors[i];
+    }
+    assertEquals(number, product);
+  }
+}
@@ -0,0 +1,83 @@
+package com.nikolaynikolov.primenumberapi.prime;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static com.nikolaynikolov.primenumberapi.prime.PrimeIndexTests.buildIndex;
+import static org.junit.Assert.*;
+
+class PrimeIndexSnapshotTests {
+
+  private static final int MAX = 10_000;
+
+  @TempDir
+  Path directory;
+
+  @Test
+  public void testSnapshot_shouldLoadTheSameIndex() throws Exception {
+    var path = directory.resolve("primes.snapshot");
+    var index = buildIndex(MAX);
+    PrimeIndexSnapshot.write(path, index);
+
+    var loaded = PrimeIndexSnapshot.load(path, MAX).orElseThrow();
+
+    assertEquals(MAX, loaded.getMax());
+    assertEquals(index.getPrimeCount(), loaded.getPrimeCount());
+    for (int i = 0; i <= MAX; i++) {
+      assertEquals("Wrong answer for " + i, index.isPrime(i), loaded.isPrime(i));
+      assertEquals("Wrong next prime for " + i, index.nextPrime(i), loaded.nextPrime(i));
+    }
+    assertEquals(9_973, loaded.nthPrime(index.getPrimeCount()));
+  }
+
+  @Test
+  public void testSnapshot_shouldBeIgnoredForAnotherMax() throws Exception {
+    var path = directory.resolve("primes.snapshot");
+    PrimeIndexSnapshot.write(path, buildIndex(MAX));
+
+    assertTrue(PrimeIndexSnapshot.load(path, MAX * 2).isEmpty());
+  }
+
+  @Test
+  public void testSnapshot_shouldBeIgnoredWhenMissing() throws Exception {
+    assertTrue(PrimeIndexSnapshot.load(directory.resolve("missing.snapshot"), MAX).isEmpty());
+  }
+
+  @Test
+  public void testSnapshot_shouldBeIgnoredForAnotherFormatVersion() throws Exception {
+    var path = directory.resolve("primes.snapshot");
+    PrimeIndexSnapshot.write(path, buildIndex(MAX));
+    var bytes = Files.readAllBytes(path);
+    ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(4, PrimeIndexSnapshot.FORMAT_VERSION + 1);
+    Files.write(path, bytes);
+
+    assertTrue(PrimeIndexSnapshot.load(path, MAX).isEmpty());
+  }
+
+  @Test
+  public void testSnapshot_shouldBeIgnoredWhenCorrupted() throws Exception {
+    var path = directory.resolve("primes.snapshot");
+    PrimeIndexSnapshot.write(path, buildIndex(MAX));
+    var bytes = Files.readAllBytes(path);
+    bytes[PrimeIndexSnapshot.HEADER_BYTES + 10] ^= 1;
+    Files.write(path, bytes);
+
+    assertTrue(PrimeIndexSnapshot.load(path, MAX).isEmpty());
+  }
+
+  @Test
+  public void testSnapshot_shouldBeIgnoredWhenTruncated() throws Exception {
+    var path = directory.resolve("primes.snapshot");
+    PrimeIndexSnapshot.write(path, buildIndex(MAX));
+    var bytes = Files.readAllBytes(path);
+    Files.write(path, Arrays.copyOf(bytes, bytes.length - 8));
+
+    assertTrue(PrimeIndexSnapshot.load(path, MAX).isEmpty());
+  }
+}
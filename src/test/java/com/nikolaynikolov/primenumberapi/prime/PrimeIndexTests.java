@@ -0,0 +1,131 @@
+package com.nikolaynikolov.primenumberapi.prime;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.Assert.*;
+
+class PrimeIndexTests {
+
+  private static final int MAX = 10_000;
+
+  @Test
+  public void testPrimeIndex_isPrime_shouldMatchTrialDivision() {
+    var index = buildIndex(MAX);
+
+    for (int i = -1; i <= MAX; i++) {
+      assertEquals("Wrong answer for " + i, isPrime(i), index.isPrime(i));
+    }
+  }
+
+  @Test
+  public void testPrimeIndex_shouldNotAnswerOutOfRange() {
+    var index = buildIndex(MAX);
+
+    assertTrue(index.covers(MAX));
+    assertFalse(index.covers(MAX + 1));
+    assertFalse(index.isPrime(10_007));
+  }
+
+  @Test
+  public void testPrimeIndex_nextPrime_shouldMatchTrialDivision() {
+    var index = buildIndex(MAX);
+
+    int expected = 2;
+    for (int i = -1; i < 9_973; i++) {
+      if (i >= expected) {
+        expected = i + 1;
+        while (!isPrime(expected)) {
+          expected++;
+        }
+      }
+      assertEquals("Wrong answer for " + i, expected, index.nextPrime(i));
+    }
+  }
+
+  @Test
+  public void testPrimeIndex_nextPrime_shouldReturnMinusOneAboveTheLastPrime() {
+    var index = buildIndex(MAX);
+
+    // 9973 is the biggest prime below 10 000
+    assertEquals(-1, index.nextPrime(9_973));
+    assertEquals(-1, index.nextPrime(MAX));
+    assertEquals(-1, index.nextPrime(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void testPrimeIndex_countPrimes_shouldMatchTrialDivision() {
+    var index = buildIndex(MAX);
+
+    int expected = 0;
+    for (int i = 0; i <= MAX; i++) {
+      if (isPrime(i)) {
+        expected++;
+      }
+      assertEquals("Wrong answer for " + i, expected, index.countPrimes(i));
+    }
+    assertEquals(1_229, index.countPrimes(MAX));
+    assertEquals(1_229, index.getPrimeCount());
+  }
+
+  @Test
+  public void testPrimeIndex_countPrimes_inRange() {
+    var index = buildIndex(MAX);
+
+    assertEquals(4, index.countPrimes(2, 10));
+    assertEquals(6, index.countPrimes(10, 30));
+    assertEquals(1, index.countPrimes(7, 7));
+    assertEquals(0, index.countPrimes(8, 10));
+    assertEquals(0, index.countPrimes(30, 10));
+    assertThrows(IllegalArgumentException.class, () -> index.countPrimes(MAX + 1));
+  }
+
+  @Test
+  public void testPrimeIndex_nthPrime_shouldMatchTrialDivision() {
+    for (int max : new int[]{2, 3, 511, 512, 1_024, MAX, 100_000}) {
+      var index = buildIndex(max);
+
+      int n = 0;
+      for (int i = 2; i <= max; i++) {
+        if (isPrime(i)) {
+          n++;
+          assertEquals("Wrong answer for " + n + " with max " + max, i, index.nthPrime(n));
+        }
+      }
+      assertEquals(-1, index.nthPrime(n + 1));
+    }
+  }
+
+  @Test
+  public void testPrimeIndex_nthPrime_shouldRejectNonPositive() {
+    var index = buildIndex(MAX);
+
+    assertThrows(IllegalArgumentException.class, () -> index.nthPrime(0));
+  }
+
+  @Test
+  public void testPrimeIndex_shouldRejectTooSmallBitset() {
+    assertThrows(IllegalArgumentException.class, () -> new PrimeIndex(new long[1], MAX));
+  }
+
+  static PrimeIndex buildIndex(int max) {
+    var words = PrimeIndex.wordsFor(max);
+    for (int i = 3; i <= max; i += 2) {
+      if (isPrime(i)) {
+        PrimeIndex.setOdd(words, i);
+      }
+    }
+    return new PrimeIndex(words, max);
+  }
+
+  static boolean isPrime(long number) {
+    if (number < 2) {
+      return false;
+    }
+    for (long d = 2; d * d <= number; d++) {
+      if (number % d == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,99 @@
+package com.nikolaynikolov.primenumberapi.prime;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+class SegmentCacheTests {
+
+  private final List<Integer> loaded = new ArrayList<>();
+
+  @Test
+  public void testSegmentCache_shouldLoadOnMissOnly() {
+    var cache = createCache(3);
+
+    assertEquals(10, read(cache, 10));
+    assertEquals(10, read(cache, 10));
+    assertEquals(11, read(cache, 11));
+
+    assertEquals(List.of(10, 11), loaded);
+    assertEquals(1, cache.getHitCount());
+    assertEquals(2, cache.getMissCount());
+    assertEquals(0, cache.getEvictionCount());
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  public void testSegmentCache_shouldEvictTheSegmentNotUsedSinceTheLastPass() {
+    var cache = createCache(3);
+    read(cache, 1);
+    read(cache, 2);
+    read(cache, 3);
+
+    // the first eviction clears all marks and takes the oldest slot
+    read(cache, 4);
+    assertFalse(cache.contains(1));
+    // 2 is used again, so 3 is the next one without a mark
+    read(cache, 2);
+    read(cache, 5);
+
+    assertTrue(cache.contains(2));
+    assertFalse(cache.contains(3));
+    assertTrue(cache.contains(4));
+    assertTrue(cache.contains(5));
+    assertEquals(2, cache.getEvictionCount());
+    assertEquals(3, cache.size());
+  }
+
+  @Test
+  public void testSegmentCache_shouldKeepTheSegmentsOffHeap() {
+    var cache = new SegmentCache(16, 4, 8 * 32, true, this::fill);
+    assertTrue(cache.isOffHeap());
+    assertEquals(8, cache.getCapacity());
+
+    for (int segment = 0; segment < 16; segment++) {
+      assertEquals(segment, read(cache, segment));
+    }
+    for (int segment = 8; segment < 16; segment++) {
+      assertEquals(segment, read(cache, segment));
+    }
+    assertEquals(16, cache.getMissCount());
+    assertEquals(8, cache.getHitCount());
+  }
+
+  @Test
+  public void testSegmentCache_shouldKeepAtLeastOneSegment() {
+    var cache = new SegmentCache(16, 4, 0, false, this::fill);
+
+    assertEquals(1, cache.getCapacity());
+    assertEquals(5, read(cache, 5));
+    assertEquals(6, read(cache, 6));
+    assertEquals(1, cache.size());
+  }
+
+  private SegmentCache createCache(int capacity) {
+    // 4 words per segment
+    return new SegmentCache(16, 4, capacity * 32L, false, this::fill);
+  }
+
+  private void fill(int segment, long[] words) {
+    loaded.add(segment);
+    for (int i = 0; i < words.length; i++) {
+      words[i] = segment;
+    }
+  }
+
+  private static long read(SegmentCache cache, int segment) {
+    // the sum of the words divided by their number, so a word from another segment would show up
+    return cache.read(segment, (words, from) -> {
+      long sum = 0;
+      for (int i = 0; i < 4; i++) {
+        sum += words.get(from + i);
+      }
+      return sum / 4;
+    });
+  }
+}
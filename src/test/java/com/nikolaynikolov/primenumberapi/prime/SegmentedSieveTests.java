@@ -0,0 +1,63 @@
+package com.nikolaynikolov.primenumberapi.prime;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.nikolaynikolov.primenumberapi.prime.PrimeIndexTests.isPrime;
+import static org.junit.Assert.*;
+
+class SegmentedSieveTests {
+
+  private final ForkJoinPool pool = new ForkJoinPool(4);
+
+  @AfterEach
+  public void tearDown() {
+    pool.shutdownNow();
+  }
+
+  @Test
+  public void testSegmentedSieve_shouldMatchTrialDivision() {
+    for (int max : new int[]{2, 3, 10, 127, 128, 129, 1_000, 65_537}) {
+      for (int segmentBytes : new int[]{8, 24, 32 * 1024}) {
+        var index = new SegmentedSieve(max, segmentBytes).run(pool, segment -> {
+        });
+
+        for (int i = 0; i <= max; i++) {
+          assertEquals("Wrong answer for " + i + " with max " + max, isPrime(i), index.isPrime(i));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSegmentedSieve_shouldReportEverySegmentWithItsPrimes() {
+    int max = 100_000;
+    var sieve = new SegmentedSieve(max, 64);
+    var segments = new ConcurrentLinkedQueue<SieveSegment>();
+    sieve.run(pool, segments::add);
+
+    assertEquals(sieve.getSegmentCount(), segments.size());
+    List<Integer> reported = new ArrayList<>();
+    segments.forEach(segment -> segment.forEachPrime(reported::add));
+    Collections.sort(reported);
+
+    List<Integer> expected = new ArrayList<>();
+    for (int i = 2; i <= max; i++) {
+      if (isPrime(i)) {
+        expected.add(i);
+      }
+    }
+    assertEquals(expected, reported);
+  }
+
+  @Test
+  public void testSegmentedSieve_shouldRejectMaxBelowTwo() {
+    assertThrows(IllegalArgumentException.class, () -> new SegmentedSieve(1, 64));
+  }
+}
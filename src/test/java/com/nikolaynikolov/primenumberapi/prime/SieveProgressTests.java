@@ -0,0 +1,63 @@
+package com.nikolaynikolov.primenumberapi.prime;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.nikolaynikolov.primenumberapi.prime.PrimeIndexTests.isPrime;
+import static org.junit.Assert.*;
+
+class SieveProgressTests {
+
+  private final ForkJoinPool pool = new ForkJoinPool(1);
+
+  @AfterEach
+  public void tearDown() {
+    pool.shutdownNow();
+  }
+
+  @Test
+  public void testSieveProgress_shouldServeFinishedSegmentsOnly() {
+    var sieve = new SegmentedSieve(100_000, 64);
+    var progress = sieve.getProgress();
+    assertFalse(progress.isSieved(3));
+    assertFalse(progress.isSieved(99_991));
+
+    sieve.run(pool, segment -> {
+      assertTrue(progress.isSieved(segment.getFrom()));
+      assertTrue(progress.isSieved(segment.getTo()));
+      for (int i = segment.getFrom(); i <= segment.getTo(); i++) {
+        assertEquals("Wrong answer for " + i, isPrime(i), progress.isPrime(i));
+      }
+    });
+
+    assertEquals(sieve.getSegmentCount(), progress.getDoneSegmentCount());
+    assertTrue(progress.isSieved(99_991));
+    assertTrue(progress.isPrime(99_991));
+    assertFalse(progress.isSieved(100_001));
+  }
+
+  @Test
+  public void testSieveProgress_shouldSieveTheMostRequestedSegmentsFirst() {
+    var sieve = new SegmentedSieve(100_000, 64);
+    var progress = sieve.getProgress();
+    // 1024 numbers per segment
+    for (int i = 0; i < 3; i++) {
+      progress.isSieved(90_001);
+    }
+    progress.isSieved(50_001);
+    progress.isSieved(50_003);
+
+    List<Integer> order = new ArrayList<>();
+    sieve.run(pool, segment -> order.add(segment.getIndex()));
+
+    assertEquals(sieve.getSegmentCount(), order.size());
+    assertEquals(90_001 / 1024, order.get(0).intValue());
+    assertEquals(50_001 / 1024, order.get(1).intValue());
+    assertEquals(0, order.get(2).intValue());
+    assertEquals(1, order.get(3).intValue());
+  }
+}
@@ -0,0 +1,61 @@
+package com.nikolaynikolov.primenumberapi.prime;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.nikolaynikolov.primenumberapi.prime.PrimeIndexTests.isPrime;
+import static org.junit.Assert.*;
+
+class SmallestPrimeFactorsTests {
+
+  private final ForkJoinPool pool = new ForkJoinPool(2);
+
+  @AfterEach
+  public void tearDown() {
+    pool.shutdownNow();
+  }
+
+  @Test
+  public void testFactorize_shouldMatchTrialDivision() {
+    // more than one block, so the blocks are filled in parallel
+    int max = 2_000_000;
+    var table = SmallestPrimeFactors.build(max, pool);
+
+    for (int i = 2; i <= max; i += i < 200_000 ? 1 : 97) {
+      assertArrayEquals("Wrong factors of " + i, trialDivision(i), table.factorize(i));
+    }
+    assertArrayEquals(new long[]{1999993}, table.factorize(1_999_993));
+    assertArrayEquals(new long[]{2, 2, 2, 2, 2, 2, 2, 5, 5, 5, 5, 5, 5}, table.factorize(2_000_000));
+  }
+
+  @Test
+  public void testFactorize_shouldOnlyCoverTheTable() {
+    var table = SmallestPrimeFactors.build(1000, pool);
+
+    assertTrue(table.covers(2));
+    assertTrue(table.covers(1000));
+    assertFalse(table.covers(1));
+    assertFalse(table.covers(1001));
+    assertArrayEquals(new long[]{997}, table.factorize(997));
+    assertThrows(IllegalArgumentException.class, () -> table.factorize(1001));
+  }
+
+  static long[] trialDivision(long number) {
+    var factors = new long[Long.SIZE];
+    int count = 0;
+    for (long d = 2; d * d <= number; d++) {
+      while (number % d == 0) {
+        factors[count++] = d;
+        number /= d;
+      }
+    }
+    if (number > 1) {
+      assertTrue(isPrime(number));
+      factors[count++] = number;
+    }
+    return Arrays.copyOf(factors, count);
+  }
+}
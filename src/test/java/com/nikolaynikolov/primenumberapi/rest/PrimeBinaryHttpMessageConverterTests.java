@@ -0,0 +1,55 @@
+package com.nikolaynikolov.primenumberapi.rest;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+class PrimeBinaryHttpMessageConverterTests {
+
+  private static final MediaType BINARY = MediaType.parseMediaType(PrimeBinaryFormat.MEDIA_TYPE);
+
+  private final PrimeBinaryHttpMessageConverter converter = new PrimeBinaryHttpMessageConverter();
+
+  @Test
+  public void testConverter_shouldWriteLittleEndianResponses() throws Exception {
+    var output = new MockHttpOutputMessage();
+    converter.write(new PrimeNumberResponse(false, 0x0102030405060708L), BINARY, output);
+
+    assertEquals(BINARY, output.getHeaders().getContentType());
+    assertEquals(PrimeBinaryFormat.PRIME_NUMBER_SIZE, output.getHeaders().getContentLength());
+    assertArrayEquals(new byte[]{8, 7, 6, 5, 4, 3, 2, 1, 0}, output.getBodyAsBytes());
+
+    output = new MockHttpOutputMessage();
+    converter.write(new NextPrimeNumberResponse(Long.MAX_VALUE - 24, 9_223_372_036_854_775_000L), BINARY, output);
+
+    var body = ByteBuffer.wrap(output.getBodyAsBytes()).order(ByteOrder.LITTLE_ENDIAN);
+    assertEquals(PrimeBinaryFormat.NEXT_PRIME_NUMBER_SIZE, body.remaining());
+    assertEquals(9_223_372_036_854_775_000L, body.getLong());
+    assertEquals(Long.MAX_VALUE - 24, body.getLong());
+  }
+
+  @Test
+  public void testConverter_shouldWriteErrorsWithTheirMessage() throws Exception {
+    var output = new MockHttpOutputMessage();
+    converter.write(ApiError.builder().status(429).message("Too many requests").build(), BINARY, output);
+
+    var body = ByteBuffer.wrap(output.getBodyAsBytes()).order(ByteOrder.LITTLE_ENDIAN);
+    assertEquals(429, body.getInt());
+    assertEquals("Too many requests", StandardCharsets.UTF_8.decode(body).toString());
+    assertEquals(output.getBodyAsBytes().length, output.getHeaders().getContentLength());
+  }
+
+  @Test
+  public void testConverter_shouldOnlyWriteTheSingleNumberResponses() {
+    assertTrue(converter.canWrite(PrimeNumberResponse.class, BINARY));
+    assertFalse(converter.canWrite(PrimeNumberResponse.class, MediaType.APPLICATION_JSON));
+    assertFalse(converter.canWrite(BatchPrimeNumberResponse.class, BINARY));
+    assertFalse(converter.canRead(PrimeNumberResponse.class, BINARY));
+  }
+}
@@ -8,11 +8,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 
 import static org.junit.Assert.*;
@@ -51,6 +58,8 @@ class PrimeNumberApiControllerTests {
     assertNotNull(result.getBody());
     assertEquals(checkNumber, result.getBody().getNumber().intValue());
     assertTrue(result.getBody().isPrime());
+    assertEquals("5", result.getHeaders().getFirst("X-RateLimit-Limit"));
+    assertNotNull(result.getHeaders().getFirst("X-RateLimit-Remaining"));
   }
 
   @Test
@@ -67,11 +76,31 @@ class PrimeNumberApiControllerTests {
   }
 
   @Test
-  public void primeApi_shouldGetBadResponseWhenCalling_CheckIfPrimeNumber_NumberIsTooLarge() {
-    int checkNumber = 50; // Max set in config for the test is 10
+  public void primeApi_shouldGetSuccessWhenCalling_CheckIfPrimeNumber_NumberIsAbovePrimeMax() {
+    long checkNumber = 1_000_000_007L; // Max set in config for the test is 10
     String uri = getBasePath() + "/primes/api/v1/" + checkNumber;
     setRandomIdHeadersToRestTemplate();
     ResponseEntity<PrimeNumberResponse> result = this.restTemplate.getForEntity(uri, PrimeNumberResponse.class);
+
+    assertEquals(200, result.getStatusCodeValue());
+    assertNotNull(result.getBody());
+    assertEquals(checkNumber, result.getBody().getNumber().longValue());
+    assertTrue(result.getBody().isPrime());
+  }
+
+  @Test
+  public void primeApi_shouldGetBadResponseWhenCalling_CheckIfPrimeNumber_NumberIsTooLarge() {
+    String uri = getBasePath() + "/primes/api/v1/9223372036854775808"; // Long.MAX_VALUE + 1
+    setRandomIdHeadersToRestTemplate();
+    ResponseEntity<PrimeNumberResponse> result = this.restTemplate.getForEntity(uri, PrimeNumberResponse.class);
+    assertEquals(400, result.getStatusCodeValue());
+  }
+
+  @Test
+  public void primeApi_shouldGetBadResponseWhenCalling_CheckIfPrimeNumber_NumberIsTooSmall() {
+    String uri = getBasePath() + "/primes/api/v1/1";
+    setRandomIdHeadersToRestTemplate();
+    ResponseEntity<PrimeNumberResponse> result = this.restTemplate.getForEntity(uri, PrimeNumberResponse.class);
     assertEquals(400, result.getStatusCodeValue());
   }
 
@@ -109,6 +138,18 @@ class PrimeNumberApiControllerTests {
     assertEquals(7, result.getBody().getNextPrime().intValue());
   }
 
+  @Test
+  public void primeApi_shouldGetSuccessCalling_GetNextPrimeNumber_givenTopOfRange() {
+    int checkNumber = 7; // Max set in config for the test is 10
+    String uri = getBasePath() + "/primes/api/v1/next/" + checkNumber;
+    setRandomIdHeadersToRestTemplate();
+    ResponseEntity<NextPrimeNumberResponse> result = this.restTemplate.getForEntity(uri, NextPrimeNumberResponse.class);
+
+    assertEquals(200, result.getStatusCodeValue());
+    assertNotNull(result.getBody());
+    assertEquals(11, result.getBody().getNextPrime().intValue());
+  }
+
   @Test
   public void primeApi_shouldGetBadResponseWhenCalling_GetNextPrimeNumber_InvalidAlphaNumericString() {
     String uri = getBasePath() + "/primes/api/v1/next/45opdi";
@@ -118,10 +159,30 @@ class PrimeNumberApiControllerTests {
   }
 
   @Test
-  public void primeApi_shouldGetBadResponseWhenCalling_GetNextPrimeNumber_NumberIsTooLarge() {
-    int checkNumber = 50; // Max set in config for the test is 10
+  public void primeApi_shouldGetSuccessCalling_GetNextPrimeNumber_NumberIsAbovePrimeMax() {
+    long checkNumber = 1_000_000_000L; // Max set in config for the test is 10
     String uri = getBasePath() + "/primes/api/v1/next/" + checkNumber;
     setRandomIdHeadersToRestTemplate();
+    ResponseEntity<NextPrimeNumberResponse> result = this.restTemplate.getForEntity(uri, NextPrimeNumberResponse.class);
+
+    assertEquals(200, result.getStatusCodeValue());
+    assertNotNull(result.getBody());
+    assertEquals(1_000_000_007L, result.getBody().getNextPrime().longValue());
+  }
+
+  @Test
+  public void primeApi_shouldGetBadResponseWhenCalling_GetNextPrimeNumber_NumberIsTooLarge() {
+    String uri = getBasePath() + "/primes/api/v1/next/9223372036854775808"; // Long.MAX_VALUE + 1
+    setRandomIdHeadersToRestTemplate();
+    ResponseEntity<PrimeNumberResponse> result = this.restTemplate.getForEntity(uri, PrimeNumberResponse.class);
+
+    assertEquals(400, result.getStatusCodeValue());
+  }
+
+  @Test
+  public void primeApi_shouldGetBadResponseWhenCalling_GetNextPrimeNumber_NoBiggerPrimeInLong() {
+    String uri = getBasePath() + "/primes/api/v1/next/" + (Long.MAX_VALUE - 24);
+    setRandomIdHeadersToRestTemplate();
     ResponseEntity<PrimeNumberResponse> result = this.restTemplate.getForEntity(uri, PrimeNumberResponse.class);
 
     assertEquals(400, result.getStatusCodeValue());
@@ -154,6 +215,147 @@ class PrimeNumberApiControllerTests {
     }
     assertNotNull(result);
     assertEquals(429, result.getStatusCodeValue());
+    assertNotNull(result.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+  }
+
+  @Test
+  public void primeApi_shouldGetSuccessCalling_BatchCheckIfPrimeNumbers() {
+    String uri = getBasePath() + "/primes/api/v1/batch";
+    setRandomIdHeadersToRestTemplate();
+    long[] numbers = {2, 4, 7, 10, 1_000_000_007L};
+    ResponseEntity<BatchPrimeNumberResponse> result =
+        this.restTemplate.postForEntity(uri, numbers, BatchPrimeNumberResponse.class);
+
+    assertEquals(200, result.getStatusCodeValue());
+    assertNotNull(result.getBody());
+    assertArrayEquals(new boolean[]{true, false, true, false, true}, result.getBody().getPrimes());
+  }
+
+  @Test
+  public void primeApi_shouldGetSuccessCalling_BatchCheckIfPrimeNumbersBinary() {
+    String uri = getBasePath() + "/primes/api/v1/batch";
+    setRandomIdHeadersToRestTemplate();
+    var body = ByteBuffer.allocate(3 * Long.BYTES).putLong(3).putLong(9).putLong(Long.MAX_VALUE - 24).array();
+    var headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+    headers.setAccept(List.of(MediaType.APPLICATION_OCTET_STREAM));
+    ResponseEntity<byte[]> result = this.restTemplate.postForEntity(uri, new HttpEntity<>(body, headers), byte[].class);
+
+    assertEquals(200, result.getStatusCodeValue());
+    assertArrayEquals(new byte[]{1, 0, 1}, result.getBody());
+  }
+
+  @Test
+  public void primeApi_shouldGetBadResponseWhenCalling_BatchCheckIfPrimeNumbers_InvalidNumber() {
+    String uri = getBasePath() + "/primes/api/v1/batch";
+    setRandomIdHeadersToRestTemplate();
+    ResponseEntity<BatchPrimeNumberResponse> result =
+        this.restTemplate.postForEntity(uri, new long[]{3, 1}, BatchPrimeNumberResponse.class);
+
+    assertEquals(400, result.getStatusCodeValue());
+  }
+
+  @Test
+  public void primeApi_shouldGetBadResponseWhenCalling_BatchCheckIfPrimeNumbers_TooManyNumbers() {
+    String uri = getBasePath() + "/primes/api/v1/batch";
+    setRandomIdHeadersToRestTemplate();
+    var numbers = new long[5 * 1000 + 1]; // rl.maxPerSecond x rl.batchNumbersPerPermit
+    Arrays.fill(numbers, 2);
+    ResponseEntity<BatchPrimeNumberResponse> result =
+        this.restTemplate.postForEntity(uri, numbers, BatchPrimeNumberResponse.class);
+
+    assertEquals(400, result.getStatusCodeValue());
+  }
+
+  @Test
+  public void primeApi_shouldGetSuccessCalling_GetPrimeNumbersInRange() {
+    String uri = getBasePath() + "/primes/api/v1/range?from=3&to=10"; // Max set in config for the test is 10
+    setRandomIdHeadersToRestTemplate();
+    var headers = new HttpHeaders();
+    headers.setAccept(List.of(MediaType.APPLICATION_STREAM_JSON));
+    ResponseEntity<String> result = this.restTemplate.exchange(uri, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+
+    assertEquals(200, result.getStatusCodeValue());
+    assertEquals(List.of("3", "5", "7"), List.of(result.getBody().trim().split("\\s+")));
+  }
+
+  @Test
+  public void primeApi_shouldGetSuccessCalling_GetPrimeNumbersInRangeBinary() {
+    String uri = getBasePath() + "/primes/api/v1/range?from=2&to=10"; // Max set in config for the test is 10
+    setRandomIdHeadersToRestTemplate();
+    var headers = new HttpHeaders();
+    headers.setAccept(List.of(MediaType.APPLICATION_OCTET_STREAM));
+    ResponseEntity<byte[]> result = this.restTemplate.exchange(uri, HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+
+    assertEquals(200, result.getStatusCodeValue());
+    var primes = ByteBuffer.wrap(result.getBody()).asIntBuffer();
+    assertEquals(4, primes.remaining());
+    assertEquals(2, primes.get());
+    assertEquals(3, primes.get());
+    assertEquals(5, primes.get());
+    assertEquals(7, primes.get());
+  }
+
+  @Test
+  public void primeApi_shouldGetBadResponseWhenCalling_GetPrimeNumbersInRange_AbovePrimeMax() {
+    String uri = getBasePath() + "/primes/api/v1/range?from=2&to=50"; // Max set in config for the test is 10
+    setRandomIdHeadersToRestTemplate();
+    var headers = new HttpHeaders();
+    headers.setAccept(List.of(MediaType.APPLICATION_STREAM_JSON));
+    ResponseEntity<String> result = this.restTemplate.exchange(uri, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+
+    assertEquals(400, result.getStatusCodeValue());
+  }
+
+  @Test
+  public void primeApi_shouldGetSuccessCalling_CountPrimeNumbers() {
+    String uri = getBasePath() + "/primes/api/v1/count/10"; // Max set in config for the test is 10
+    setRandomIdHeadersToRestTemplate();
+    ResponseEntity<PrimeCountResponse> result = this.restTemplate.getForEntity(uri, PrimeCountResponse.class);
+
+    assertEquals(200, result.getStatusCodeValue());
+    assertNotNull(result.getBody());
+    assertEquals(4, result.getBody().getCount().intValue());
+  }
+
+  @Test
+  public void primeApi_shouldGetSuccessCalling_CountPrimeNumbersInRange() {
+    String uri = getBasePath() + "/primes/api/v1/count?from=3&to=6";
+    setRandomIdHeadersToRestTemplate();
+    ResponseEntity<PrimeCountResponse> result = this.restTemplate.getForEntity(uri, PrimeCountResponse.class);
+
+    assertEquals(200, result.getStatusCodeValue());
+    assertNotNull(result.getBody());
+    assertEquals(2, result.getBody().getCount().intValue());
+  }
+
+  @Test
+  public void primeApi_shouldGetBadResponseWhenCalling_CountPrimeNumbers_AbovePrimeMax() {
+    String uri = getBasePath() + "/primes/api/v1/count/50"; // Max set in config for the test is 10
+    setRandomIdHeadersToRestTemplate();
+    ResponseEntity<PrimeCountResponse> result = this.restTemplate.getForEntity(uri, PrimeCountResponse.class);
+
+    assertEquals(400, result.getStatusCodeValue());
+  }
+
+  @Test
+  public void primeApi_shouldGetSuccessCalling_GetNthPrimeNumber() {
+    String uri = getBasePath() + "/primes/api/v1/nth/4"; // Max set in config for the test is 10
+    setRandomIdHeadersToRestTemplate();
+    ResponseEntity<NthPrimeNumberResponse> result = this.restTemplate.getForEntity(uri, NthPrimeNumberResponse.class);
+
+    assertEquals(200, result.getStatusCodeValue());
+    assertNotNull(result.getBody());
+    assertEquals(7, result.getBody().getPrime().intValue());
+  }
+
+  @Test
+  public void primeApi_shouldGetBadResponseWhenCalling_GetNthPrimeNumber_AbovePrimeMax() {
+    String uri = getBasePath() + "/primes/api/v1/nth/5"; // 11 is bigger than the max set in config for the test
+    setRandomIdHeadersToRestTemplate();
+    ResponseEntity<NthPrimeNumberResponse> result = this.restTemplate.getForEntity(uri, NthPrimeNumberResponse.class);
+
+    assertEquals(400, result.getStatusCodeValue());
   }
 
   private String getBasePath() {
@@ -0,0 +1,309 @@
+package com.nikolaynikolov.primenumberapi.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nikolaynikolov.primenumberapi.configuration.HotKeysConfig;
+import com.nikolaynikolov.primenumberapi.configuration.PrimeCalculationConfig;
+import com.nikolaynikolov.primenumberapi.configuration.RateLimitConfig;
+import com.nikolaynikolov.primenumberapi.configuration.ResponseCacheConfig;
+import com.nikolaynikolov.primenumberapi.metrics.RequestMetrics;
+import com.nikolaynikolov.primenumberapi.metrics.RequestTimingWebFilter;
+import com.nikolaynikolov.primenumberapi.prime.LazyPrimeIndex;
+import com.nikolaynikolov.primenumberapi.prime.SegmentedSieve;
+import com.nikolaynikolov.primenumberapi.prime.SmallestPrimeFactors;
+import com.nikolaynikolov.primenumberapi.service.CacheService;
+import com.nikolaynikolov.primenumberapi.service.ClientRateLimiter;
+import com.nikolaynikolov.primenumberapi.service.PrimeNumberStore;
+import com.nikolaynikolov.primenumberapi.service.RateLimitResult;
+import com.nikolaynikolov.primenumberapi.service.RateLimitService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RedissonClient;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+class ReactivePrimeNumberApiControllerTests {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private RateLimitResult rateLimitResult = RateLimitResult.allowed(5, 4);
+  private CacheService cacheService;
+  private WebTestClient client;
+
+  @BeforeEach
+  public void setUp() {
+    var config = new PrimeCalculationConfig();
+    config.setMax(1000);
+    cacheService = new CacheService(mock(RedissonClient.class), mock(PrimeNumberStore.class), config,
+        meterRegistry);
+    var pool = new ForkJoinPool(1);
+    cacheService.publishPrimeIndex(new SegmentedSieve(1000, 64).run(pool, segment -> {
+    }));
+    cacheService.publishSmallestPrimeFactors(SmallestPrimeFactors.build(1000, pool));
+    pool.shutdownNow();
+
+    var rateLimitService = new RateLimitService(new ClientRateLimiter() {
+      @Override
+      public RateLimitResult tryAcquire(String key, int permits) {
+        throw new UnsupportedOperationException("The reactive endpoints must not block");
+      }
+
+      @Override
+      public Mono<RateLimitResult> tryAcquireAsync(String key, int permits) {
+        return Mono.just(rateLimitResult);
+      }
+    });
+    var requestMetrics = new RequestMetrics(meterRegistry, new HotKeysConfig());
+    var rateLimitConfig = new RateLimitConfig();
+    rateLimitConfig.setMaxPerSecond(5);
+    var controller = new ReactivePrimeNumberApiController(cacheService, rateLimitService, rateLimitConfig,
+        requestMetrics, new ResponseCache(new ObjectMapper(), config, new ResponseCacheConfig(), meterRegistry));
+    client = WebTestClient.bindToController(controller)
+        .controllerAdvice(new ReactiveRestExceptionHandler())
+        .webFilter(new RequestTimingWebFilter(requestMetrics))
+        .httpMessageCodecs(configurer -> configurer.customCodecs().register(new PrimeBinaryEncoder()))
+        .build();
+  }
+
+  @Test
+  public void testCheckIfPrimeNumber_shouldAnswerWithRateLimitHeaders() {
+    var response = client.get().uri("/primes/api/v1/997")
+        .header("X-Forwarded-For", "10.0.0.1")
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().valueEquals("X-RateLimit-Limit", "5")
+        .expectHeader().valueEquals("X-RateLimit-Remaining", "4")
+        .expectBody(PrimeNumberResponse.class)
+        .returnResult().getResponseBody();
+
+    assertNotNull(response);
+    assertTrue(response.isPrime());
+    assertEquals(997, response.getNumber().longValue());
+    assertEquals(1, meterRegistry.get("primenumber.request").tag("endpoint_name", "checkIfPrimeNumber").timer()
+        .count());
+    assertEquals(1, meterRegistry.get("request_counter").tag("endpoint_name", "checkIfPrimeNumber")
+        .tag("status_code", "200").counter().count(), 0);
+  }
+
+  @Test
+  public void testCheckIfPrimeNumber_shouldRejectOverTheLimit() {
+    rateLimitResult = RateLimitResult.rejected(5, 1500);
+
+    client.get().uri("/primes/api/v1/997")
+        .header("X-Forwarded-For", "10.0.0.1")
+        .exchange()
+        .expectStatus().isEqualTo(429)
+        .expectHeader().valueEquals("Retry-After", "2")
+        .expectHeader().valueEquals("X-RateLimit-Limit", "5");
+
+    assertEquals(1, meterRegistry.get("request_counter").tag("endpoint_name", "checkIfPrimeNumber")
+        .tag("status_code", "429").counter().count(), 0);
+  }
+
+  @Test
+  public void testCheckIfPrimeNumber_shouldAnswerNotModifiedBeforeTheRateLimit() {
+    var etag = client.get().uri("/primes/api/v1/997")
+        .header("X-Forwarded-For", "10.0.0.1")
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().valueEquals("Cache-Control", "max-age=31536000, public, immutable")
+        .returnResult(byte[].class).getResponseHeaders().getETag();
+    assertNotNull(etag);
+    rateLimitResult = RateLimitResult.rejected(5, 1500);
+
+    client.get().uri("/primes/api/v1/997")
+        .header("X-Forwarded-For", "10.0.0.1")
+        .header("If-None-Match", etag)
+        .exchange()
+        .expectStatus().isNotModified()
+        .expectHeader().valueEquals("ETag", etag)
+        .expectBody().isEmpty();
+
+    assertEquals(1, meterRegistry.get("request_counter").tag("endpoint_name", "checkIfPrimeNumber")
+        .tag("status_code", "304").counter().count(), 0);
+  }
+
+  @Test
+  public void testGetNextPrimeNumber_shouldRejectInvalidNumbers() {
+    client.get().uri("/primes/api/v1/next/abc")
+        .header("X-Forwarded-For", "10.0.0.1")
+        .exchange()
+        .expectStatus().isBadRequest();
+
+    var response = client.get().uri("/primes/api/v1/next/1000")
+        .header("X-Forwarded-For", "10.0.0.1")
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(NextPrimeNumberResponse.class)
+        .returnResult().getResponseBody();
+    assertNotNull(response);
+    assertEquals(1009, response.getNextPrime().longValue());
+  }
+
+  @Test
+  public void testCheckIfPrimeNumber_shouldAnswerInBinaryWhenAccepted() {
+    var body = client.get().uri("/primes/api/v1/997")
+        .header("X-Forwarded-For", "10.0.0.1")
+        .accept(MediaType.parseMediaType(PrimeBinaryFormat.MEDIA_TYPE))
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().contentType(PrimeBinaryFormat.MEDIA_TYPE)
+        .expectHeader().contentLength(PrimeBinaryFormat.PRIME_NUMBER_SIZE)
+        .expectBody(byte[].class)
+        .returnResult().getResponseBody();
+
+    assertNotNull(body);
+    var buffer = ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN);
+    assertEquals(997, buffer.getLong());
+    assertEquals(1, buffer.get());
+
+    body = client.get().uri("/primes/api/v1/next/1000")
+        .header("X-Forwarded-For", "10.0.0.1")
+        .accept(MediaType.parseMediaType(PrimeBinaryFormat.MEDIA_TYPE))
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(byte[].class)
+        .returnResult().getResponseBody();
+
+    assertNotNull(body);
+    buffer = ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN);
+    assertEquals(1000, buffer.getLong());
+    assertEquals(1009, buffer.getLong());
+  }
+
+  @Test
+  public void testCheckIfPrimeNumber_shouldAnswerErrorsInBinaryWhenAccepted() {
+    var body = client.get().uri("/primes/api/v1/abc")
+        .header("X-Forwarded-For", "10.0.0.1")
+        .accept(MediaType.parseMediaType(PrimeBinaryFormat.MEDIA_TYPE))
+        .exchange()
+        .expectStatus().isBadRequest()
+        .expectBody(byte[].class)
+        .returnResult().getResponseBody();
+
+    assertNotNull(body);
+    var buffer = ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN);
+    assertEquals(400, buffer.getInt());
+    assertTrue(buffer.hasRemaining());
+  }
+
+  @Test
+  public void testFactorNumber_shouldAnswerInAndAboveTheRange() {
+    var response = client.get().uri("/primes/api/v1/factor/360")
+        .header("X-Forwarded-For", "10.0.0.1")
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(FactorizationResponse.class)
+        .returnResult().getResponseBody();
+    assertNotNull(response);
+    assertArrayEquals(new long[]{2, 2, 2, 3, 3, 5}, response.getFactors());
+
+    response = client.get().uri("/primes/api/v1/factor/" + 1_000_000_007L * 998_244_353L)
+        .header("X-Forwarded-For", "10.0.0.1")
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(FactorizationResponse.class)
+        .returnResult().getResponseBody();
+    assertNotNull(response);
+    assertArrayEquals(new long[]{998_244_353L, 1_000_000_007L}, response.getFactors());
+
+    client.get().uri("/primes/api/v1/factor/1")
+        .header("X-Forwarded-For", "10.0.0.1")
+        .exchange()
+        .expectStatus().isBadRequest();
+  }
+
+  @Test
+  public void testBatch_shouldAnswerInOrder() {
+    var response = client.post().uri("/primes/api/v1/batch")
+        .header("X-Forwarded-For", "10.0.0.1")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue("[2, 4, 997, 1000000007]")
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(BatchPrimeNumberResponse.class)
+        .returnResult().getResponseBody();
+
+    assertNotNull(response);
+    assertArrayEquals(new boolean[]{true, false, true, true}, response.getPrimes());
+  }
+
+  @Test
+  public void testRangeBinary_shouldStreamAllPrimeNumbers() {
+    byte[] body = client.get().uri("/primes/api/v1/range?from=2&to=1000")
+        .header("X-Forwarded-For", "10.0.0.1")
+        .accept(MediaType.APPLICATION_OCTET_STREAM)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(byte[].class)
+        .returnResult().getResponseBody();
+
+    assertNotNull(body);
+    // there are 168 primes up to 1000
+    assertEquals(168 * Integer.BYTES, body.length);
+    var buffer = ByteBuffer.wrap(body);
+    assertEquals(2, buffer.getInt(0));
+    assertEquals(997, buffer.getInt(body.length - Integer.BYTES));
+  }
+
+  @Test
+  public void testCount_shouldRejectReversedRange() {
+    client.get().uri("/primes/api/v1/count?from=100&to=10")
+        .header("X-Forwarded-For", "10.0.0.1")
+        .exchange()
+        .expectStatus().isBadRequest();
+
+    var response = client.get().uri("/primes/api/v1/count/1000")
+        .header("X-Forwarded-For", "10.0.0.1")
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(PrimeCountResponse.class)
+        .returnResult().getResponseBody();
+    assertNotNull(response);
+    assertEquals(168, response.getCount().intValue());
+  }
+
+  @Test
+  public void testNthAndCount_shouldAnswerServiceUnavailableUntilCounted() {
+    // 1024 numbers per segment
+    var index = new LazyPrimeIndex(100_000, 64, 4 * 64, false);
+    cacheService.publishPrimeIndex(index);
+
+    client.get().uri("/primes/api/v1/nth/10")
+        .header("X-Forwarded-For", "10.0.0.1")
+        .exchange()
+        .expectStatus().isEqualTo(503);
+    client.get().uri("/primes/api/v1/count/1000")
+        .header("X-Forwarded-For", "10.0.0.1")
+        .exchange()
+        .expectStatus().isEqualTo(503);
+
+    // counts the first segment only
+    index.countPrimes(1024);
+    client.get().uri("/primes/api/v1/count/1000")
+        .header("X-Forwarded-For", "10.0.0.1")
+        .exchange()
+        .expectStatus().isOk();
+    client.get().uri("/primes/api/v1/nth/10")
+        .header("X-Forwarded-For", "10.0.0.1")
+        .exchange()
+        .expectStatus().isEqualTo(503);
+
+    index.getPrimeCount();
+    var response = client.get().uri("/primes/api/v1/nth/10")
+        .header("X-Forwarded-For", "10.0.0.1")
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(NthPrimeNumberResponse.class)
+        .returnResult().getResponseBody();
+    assertNotNull(response);
+    assertEquals(29, response.getPrime().intValue());
+  }
+}
@@ -0,0 +1,95 @@
+package com.nikolaynikolov.primenumberapi.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nikolaynikolov.primenumberapi.configuration.PrimeCalculationConfig;
+import com.nikolaynikolov.primenumberapi.configuration.ResponseCacheConfig;
+import com.nikolaynikolov.primenumberapi.metrics.RequestMetrics.Endpoint;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+class ResponseCacheTests {
+
+  private static final MediaType BINARY = MediaType.parseMediaType(PrimeBinaryFormat.MEDIA_TYPE);
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final ResponseCache responseCache = createResponseCache(1000);
+
+  @Test
+  public void testNegotiate_shouldPreferJsonUnlessBinaryIsAcceptedFirst() {
+    assertEquals(MediaType.APPLICATION_JSON, responseCache.negotiate(MediaType.parseMediaTypes("")));
+    assertEquals(MediaType.APPLICATION_JSON, responseCache.negotiate(MediaType.parseMediaTypes("*/*")));
+    assertEquals(BINARY, responseCache.negotiate(MediaType.parseMediaTypes(PrimeBinaryFormat.MEDIA_TYPE)));
+    assertEquals(BINARY, responseCache.negotiate(
+        MediaType.parseMediaTypes("application/json;q=0.5, " + PrimeBinaryFormat.MEDIA_TYPE)));
+    assertEquals(MediaType.APPLICATION_JSON, responseCache.negotiate(
+        MediaType.parseMediaTypes("application/json, " + PrimeBinaryFormat.MEDIA_TYPE + ";q=0.5")));
+  }
+
+  @Test
+  public void testEtag_shouldChangeWithTheDatasetAndTheRepresentation() {
+    String etag = responseCache.etag(Endpoint.CHECK_IF_PRIME, 97, MediaType.APPLICATION_JSON);
+
+    assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+    assertEquals(etag, responseCache.etag(Endpoint.CHECK_IF_PRIME, 97, MediaType.APPLICATION_JSON));
+    assertNotEquals(etag, responseCache.etag(Endpoint.NEXT_PRIME, 97, MediaType.APPLICATION_JSON));
+    assertNotEquals(etag, responseCache.etag(Endpoint.CHECK_IF_PRIME, 98, MediaType.APPLICATION_JSON));
+    assertNotEquals(etag, responseCache.etag(Endpoint.CHECK_IF_PRIME, 97, BINARY));
+    assertNotEquals(etag, createResponseCache(2000).etag(Endpoint.CHECK_IF_PRIME, 97, MediaType.APPLICATION_JSON));
+  }
+
+  @Test
+  public void testIsNotModified_shouldMatchAnyOfTheEtags() {
+    String etag = responseCache.etag(Endpoint.CHECK_IF_PRIME, 97, MediaType.APPLICATION_JSON);
+
+    assertFalse(responseCache.isNotModified(null, etag));
+    assertFalse(responseCache.isNotModified("\"other\"", etag));
+    assertTrue(responseCache.isNotModified(etag, etag));
+    assertTrue(responseCache.isNotModified("\"other\", W/" + etag, etag));
+    assertTrue(responseCache.isNotModified("*", etag));
+  }
+
+  @Test
+  public void testGet_shouldSerializeEveryAnswerOnce() {
+    var lookups = new AtomicInteger();
+    for (int i = 0; i < 3; i++) {
+      byte[] json = responseCache.get(Endpoint.CHECK_IF_PRIME, 97, MediaType.APPLICATION_JSON, () -> {
+        lookups.incrementAndGet();
+        return new PrimeNumberResponse(true, 97L);
+      });
+      assertEquals("{\"number\":97,\"prime\":true}", new String(json, StandardCharsets.UTF_8));
+    }
+    byte[] binary = responseCache.get(Endpoint.CHECK_IF_PRIME, 97, BINARY, () -> {
+      lookups.incrementAndGet();
+      return new PrimeNumberResponse(true, 97L);
+    });
+
+    assertArrayEquals(new byte[]{97, 0, 0, 0, 0, 0, 0, 0, 1}, binary);
+    assertEquals(2, lookups.get());
+    assertEquals(2, meterRegistry.get("cache.gets").tag("cache", "responses").tag("result", "hit")
+        .functionCounter().count(), 0);
+  }
+
+  @Test
+  public void testOk_shouldMarkTheAnswerImmutable() {
+    String etag = responseCache.etag(Endpoint.CHECK_IF_PRIME, 97, MediaType.APPLICATION_JSON);
+    var headers = responseCache.ok(etag, MediaType.APPLICATION_JSON, new byte[0]).getHeaders();
+
+    assertEquals(etag, headers.getETag());
+    assertEquals("max-age=31536000, public, immutable", headers.getCacheControl());
+    assertEquals(HttpHeaders.ACCEPT, headers.getFirst(HttpHeaders.VARY));
+    assertEquals(304, responseCache.notModified(etag).getStatusCodeValue());
+  }
+
+  private ResponseCache createResponseCache(int max) {
+    var config = new PrimeCalculationConfig();
+    config.setMax(max);
+    return new ResponseCache(new ObjectMapper(), config, new ResponseCacheConfig(), meterRegistry);
+  }
+}
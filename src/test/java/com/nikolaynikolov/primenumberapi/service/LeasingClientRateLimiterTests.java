@@ -0,0 +1,247 @@
+package com.nikolaynikolov.primenumberapi.service;
+
+import com.nikolaynikolov.primenumberapi.configuration.RateLimitConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.misc.RedissonPromise;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class LeasingClientRateLimiterTests {
+
+  private final RedissonClient redissonClient = mock(RedissonClient.class);
+  private final RScript script = mock(RScript.class);
+  private final LeaseCounters redis = new LeaseCounters();
+  // the wall clock starts at the beginning of a second
+  private final AtomicLong clock = new AtomicLong(TimeUnit.SECONDS.toNanos(1_000));
+  private LeasingClientRateLimiter rateLimiter;
+
+  @BeforeEach
+  public void setUp() {
+    doReturn(script).when(redissonClient).getScript(any());
+    when(script.eval(any(), anyString(), any(), anyList(), any())).thenAnswer(invocation -> redis.lease(
+        invocation.getArgument(3), invocation.getArguments()));
+    when(script.evalAsync(any(), anyString(), any(), anyList(), any())).thenAnswer(invocation ->
+        RedissonPromise.newSucceededFuture(redis.lease(invocation.getArgument(3), invocation.getArguments())));
+    rateLimiter = createRateLimiter(10, 5);
+  }
+
+  @Test
+  public void testRateLimiter_shouldLeasePermitsInBatches() {
+    for (int i = 0; i < 10; i++) {
+      assertTrue(rateLimiter.tryAcquire("client", 1).isAllowed());
+    }
+
+    // 5, then half of what is left - 2, 1, 1 and 1
+    assertEquals(5, redis.getCalls());
+    assertEquals(10, redis.get("rl:lease:{client}:1000"));
+  }
+
+  @Test
+  public void testRateLimiter_shouldReturnTheRemainingPermits() {
+    var result = rateLimiter.tryAcquire("client", 3);
+
+    assertTrue(result.isAllowed());
+    assertEquals(10, result.getLimit());
+    assertEquals(7, result.getRemaining());
+  }
+
+  @Test
+  public void testRateLimiter_shouldRejectOverTheLimitWithoutRedis() {
+    for (int i = 0; i < 10; i++) {
+      rateLimiter.tryAcquire("client", 1);
+    }
+    assertFalse(rateLimiter.tryAcquire("client", 1).isAllowed());
+    assertEquals(5, redis.getCalls());
+
+    // a permit is added every 100ms, but the limit of the second is used in redis already
+    assertEquals(100, rateLimiter.tryAcquire("client", 1).getRetryAfterMillis());
+    advance(100);
+    var result = rateLimiter.tryAcquire("client", 1);
+    assertFalse(result.isAllowed());
+    assertEquals(900, result.getRetryAfterMillis());
+    advance(900);
+    assertTrue(rateLimiter.tryAcquire("client", 1).isAllowed());
+  }
+
+  @Test
+  public void testRateLimiter_shouldRejectWhenTheClusterLimitIsReached() {
+    advance(300);
+    redis.set("rl:lease:{client}:1000", 10);
+
+    var result = rateLimiter.tryAcquire("client", 1);
+    assertFalse(result.isAllowed());
+    assertEquals(700, result.getRetryAfterMillis());
+  }
+
+  @Test
+  public void testRateLimiter_shouldLeaseOnlyTheNeededPermitsWhenTheClusterIsAlmostAtTheLimit() {
+    redis.set("rl:lease:{client}:1000", 9);
+
+    assertTrue(rateLimiter.tryAcquire("client", 1).isAllowed());
+    assertFalse(rateLimiter.tryAcquire("client", 1).isAllowed());
+    assertEquals(10, redis.get("rl:lease:{client}:1000"));
+  }
+
+  @Test
+  public void testRateLimiter_shouldKeepLeasesUntilTheEndOfTheirSecond() {
+    assertTrue(rateLimiter.tryAcquire("client", 1).isAllowed());
+    advance(999);
+    assertTrue(rateLimiter.tryAcquire("client", 1).isAllowed());
+    assertEquals(1, redis.getCalls());
+
+    advance(1);
+    assertTrue(rateLimiter.tryAcquire("client", 1).isAllowed());
+    assertEquals(2, redis.getCalls());
+    assertEquals(5, redis.get("rl:lease:{client}:1001"));
+  }
+
+  @Test
+  public void testRateLimiter_shouldAllowClientsUnderTheLimitOnSeveralInstances() {
+    rateLimiter = createRateLimiter(5, 5);
+    var other = createRateLimiter(5, 5);
+
+    // 4 requests per second against a limit of 5, every instance gets every other one
+    advance(100);
+    for (int i = 0; i < 40; i++) {
+      var instance = i % 2 == 0 ? rateLimiter : other;
+      assertTrue("Request " + i + " was rejected", instance.tryAcquire("client", 1).isAllowed());
+      advance(250);
+    }
+  }
+
+  @Test
+  public void testRateLimiter_shouldKeepTheLimitOnSeveralInstances() {
+    var other = createRateLimiter(10, 5);
+
+    // two instances share the limit of the client, every instance allows up to 10 on its own
+    int allowed = 0;
+    for (int i = 0; i < 40; i++) {
+      allowed += rateLimiter.tryAcquire("client", 1).isAllowed() ? 1 : 0;
+      allowed += other.tryAcquire("client", 1).isAllowed() ? 1 : 0;
+      advance(50);
+    }
+    // 2 seconds with 10 permits each
+    assertEquals(20, allowed);
+  }
+
+  @Test
+  public void testRateLimiter_shouldLeaseWithoutBlocking() {
+    for (int i = 0; i < 10; i++) {
+      var result = rateLimiter.tryAcquireAsync("client", 1).block();
+      assertNotNull(result);
+      assertTrue(result.isAllowed());
+    }
+    assertFalse(rateLimiter.tryAcquireAsync("client", 1).block().isAllowed());
+
+    verify(script, never()).eval(any(), anyString(), any(), anyList(), any());
+    assertEquals(5, redis.getCalls());
+  }
+
+  @Test
+  public void testRateLimiter_shouldLetTheCountersOfIdleClientsExpire() {
+    rateLimiter.tryAcquire("client", 1);
+    assertEquals(1, redis.size());
+
+    advance(1_999);
+    assertEquals(1, redis.size());
+    advance(1);
+    assertEquals(0, redis.size());
+  }
+
+  @Test
+  public void testRateLimiter_shouldEvictIdleClients() {
+    rateLimiter.tryAcquire("first", 1);
+    rateLimiter.tryAcquire("second", 1);
+    assertEquals(2, rateLimiter.getBucketCount());
+
+    advance(TimeUnit.SECONDS.toMillis(30));
+    rateLimiter.tryAcquire("second", 1);
+    advance(TimeUnit.SECONDS.toMillis(31));
+    rateLimiter.tryAcquire("second", 1);
+
+    assertEquals(1, rateLimiter.getBucketCount());
+  }
+
+  private LeasingClientRateLimiter createRateLimiter(int maxPerSecond, int leaseSize) {
+    var config = new RateLimitConfig();
+    config.setMaxPerSecond(maxPerSecond);
+    config.setLeaseSize(leaseSize);
+    config.setIdleEvictionSeconds(60);
+    return new LeasingClientRateLimiter(redissonClient, config, new SimpleMeterRegistry(), clock::get,
+        () -> TimeUnit.NANOSECONDS.toMillis(clock.get()));
+  }
+
+  private void advance(long millis) {
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+  }
+
+  /**
+   * Same as {@link LeasingClientRateLimiter#LEASE_SCRIPT} - counters which expire after PEXPIRE millis of the test
+   * clock.
+   */
+  private class LeaseCounters {
+
+    private final Map<String, long[]> counters = new HashMap<>();
+    private int calls;
+
+    long lease(List<Object> keys, Object[] arguments) {
+      calls++;
+      String key = (String) keys.get(0);
+      long permits = Long.parseLong((String) arguments[4]);
+      long leaseSize = Long.parseLong((String) arguments[5]);
+      long max = Long.parseLong((String) arguments[6]);
+      long windowMillis = Long.parseLong((String) arguments[7]);
+      long left = max - get(key);
+      if (left < permits) {
+        return 0;
+      }
+      long leased = Math.max(permits, Math.min(leaseSize, left / 2));
+      set(key, get(key) + leased);
+      counters.get(key)[1] = now() + windowMillis * 2;
+      return leased;
+    }
+
+    long get(String key) {
+      expire();
+      long[] counter = counters.get(key);
+      return counter != null ? counter[0] : 0;
+    }
+
+    void set(String key, long value) {
+      expire();
+      counters.computeIfAbsent(key, k -> new long[]{0, Long.MAX_VALUE})[0] = value;
+    }
+
+    int size() {
+      expire();
+      return counters.size();
+    }
+
+    int getCalls() {
+      return calls;
+    }
+
+    private void expire() {
+      long now = now();
+      counters.values().removeIf(counter -> now >= counter[1]);
+    }
+
+    private long now() {
+      return TimeUnit.NANOSECONDS.toMillis(clock.get());
+    }
+  }
+}
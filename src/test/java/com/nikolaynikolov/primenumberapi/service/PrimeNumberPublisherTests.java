@@ -0,0 +1,162 @@
+package com.nikolaynikolov.primenumberapi.service;
+
+import com.nikolaynikolov.primenumberapi.configuration.PrimePublishConfig;
+import com.nikolaynikolov.primenumberapi.prime.SegmentedSieve;
+import com.nikolaynikolov.primenumberapi.prime.SieveSegment;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RFuture;
+import org.redisson.misc.RedissonPromise;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PrimeNumberPublisherTests {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final PrimeNumberStore store = mock(PrimeNumberStore.class);
+  private PrimeNumberPublisher publisher;
+
+  @AfterEach
+  public void tearDown() {
+    publisher.stop();
+  }
+
+  @Test
+  public void testPublisher_shouldWriteAllSegmentsInBatches() throws Exception {
+    var batches = new LinkedBlockingQueue<List<SieveSegment>>();
+    when(store.storeSegments(anyList())).thenAnswer(invocation -> {
+      batches.add(invocation.getArgument(0));
+      return RedissonPromise.newSucceededFuture(null);
+    });
+    publisher = createPublisher(64, 4, 2);
+
+    List<SieveSegment> segments = sieve();
+    segments.forEach(publisher::publish);
+
+    var published = new ArrayList<SieveSegment>();
+    int batchCount = 0;
+    while (published.size() < segments.size()) {
+      List<SieveSegment> batch = batches.poll(5, TimeUnit.SECONDS);
+      assertNotNull("Not all segments were published", batch);
+      assertTrue(batch.size() <= 4);
+      published.addAll(batch);
+      batchCount++;
+    }
+    assertEquals(segments, published);
+    // the metrics are updated right after the batch has been acknowledged
+    awaitCount("primenumber.publish.segments", segments.size());
+    assertEquals(segments.size(), meterRegistry.counter("primenumber.publish.segments").count(), 0);
+    // there are 1229 primes up to 10_000
+    assertEquals(1229, meterRegistry.counter("primenumber.publish.primes").count(), 0);
+    assertEquals(batchCount, meterRegistry.timer("primenumber.publish.batch").count());
+    assertEquals(batchCount, meterRegistry.timer("primenumber.redis", "operation", "storeSegments").count());
+  }
+
+  @Test
+  public void testPublisher_shouldBlockWhenRedisCantKeepUp() throws Exception {
+    BlockingQueue<RedissonPromise<Object>> pending = new LinkedBlockingQueue<>();
+    when(store.storeSegments(anyList())).thenAnswer(invocation -> {
+      var promise = new RedissonPromise<>();
+      pending.add(promise);
+      return (RFuture<?>) promise;
+    });
+    publisher = createPublisher(1, 1, 1);
+    List<SieveSegment> segments = sieve();
+
+    // one batch in flight, one segment waiting for a permit and one in the queue
+    var producer = new Thread(() -> segments.forEach(publisher::publish));
+    producer.start();
+    RedissonPromise<Object> first = pending.poll(5, TimeUnit.SECONDS);
+    assertNotNull(first);
+    producer.join(200);
+    assertTrue("The sieve should wait for redis", producer.isAlive());
+    assertEquals(1, meterRegistry.get("primenumber.publish.queue.size").gauge().value(), 0);
+
+    first.trySuccess(null);
+    for (int i = 1; i < segments.size(); i++) {
+      RedissonPromise<Object> next = pending.poll(5, TimeUnit.SECONDS);
+      assertNotNull(next);
+      next.trySuccess(null);
+    }
+    producer.join(5_000);
+    assertFalse(producer.isAlive());
+  }
+
+  @Test
+  public void testPublisher_shouldContinueAfterFailedBatch() throws Exception {
+    var stored = new ConcurrentLinkedQueue<SieveSegment>();
+    when(store.storeSegments(anyList()))
+        .thenThrow(new IllegalStateException("redis is down"))
+        .thenAnswer(invocation -> {
+          stored.addAll(invocation.getArgument(0));
+          return RedissonPromise.newSucceededFuture(null);
+        });
+    publisher = createPublisher(64, 1, 1);
+
+    List<SieveSegment> segments = sieve();
+    segments.forEach(publisher::publish);
+
+    awaitCount("primenumber.publish.segments", segments.size() - 1);
+    assertEquals(segments.size() - 1, stored.size());
+    assertEquals(1, meterRegistry.counter("primenumber.publish.failures").count(), 0);
+  }
+
+  @Test
+  public void testPublisher_shouldDropTheSegmentsWhenDisabled() throws Exception {
+    publisher = createPublisher(false, 1, 1, 1);
+    List<SieveSegment> segments = sieve();
+
+    // a queue of 1 would block the sieve on the second segment
+    var producer = new Thread(() -> segments.forEach(publisher::publish));
+    producer.start();
+    producer.join(5_000);
+
+    assertFalse("The sieve shouldn't wait for redis", producer.isAlive());
+    assertEquals(0, meterRegistry.get("primenumber.publish.queue.size").gauge().value(), 0);
+    verify(store, never()).storeSegments(anyList());
+  }
+
+  private void awaitCount(String counter, int count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5_000;
+    while (meterRegistry.counter(counter).count() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+  }
+
+  private PrimeNumberPublisher createPublisher(int queueCapacity, int batchSize, int maxInFlight) {
+    return createPublisher(true, queueCapacity, batchSize, maxInFlight);
+  }
+
+  private PrimeNumberPublisher createPublisher(boolean enabled, int queueCapacity, int batchSize, int maxInFlight) {
+    var config = new PrimePublishConfig();
+    config.setEnabled(enabled);
+    config.setQueueCapacity(queueCapacity);
+    config.setBatchSize(batchSize);
+    config.setMaxInFlight(maxInFlight);
+    var created = new PrimeNumberPublisher(store, config, meterRegistry);
+    created.start();
+    return created;
+  }
+
+  private static List<SieveSegment> sieve() {
+    var segments = new ConcurrentLinkedQueue<SieveSegment>();
+    new SegmentedSieve(10_000, 64).run(ForkJoinPool.commonPool(), segments::add);
+    var sorted = new ArrayList<>(segments);
+    sorted.sort((a, b) -> Integer.compare(a.getIndex(), b.getIndex()));
+    return sorted;
+  }
+}
@@ -0,0 +1,67 @@
+package com.nikolaynikolov.primenumberapi.service;
+
+import com.nikolaynikolov.primenumberapi.configuration.RateLimitConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SlidingWindowClientRateLimiterTests {
+
+  private final RedissonClient redissonClient = mock(RedissonClient.class);
+  private final RScript script = mock(RScript.class);
+  private final RateLimitConfig config = new RateLimitConfig();
+
+  @BeforeEach
+  public void setUp() {
+    doReturn(script).when(redissonClient).getScript(any());
+    config.setMaxPerSecond(5);
+    config.setMaxPerMinute(50);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testRateLimiter_shouldCheckBothWindowsInOneCall() {
+    when(script.eval(any(), anyString(), any(), anyList(), any())).thenReturn(List.of(1L, 5L, 3L, 0L));
+    var rateLimiter = new SlidingWindowClientRateLimiter(redissonClient, config, new SimpleMeterRegistry(), () -> 125_500L);
+
+    var result = rateLimiter.tryAcquire("1.2.3.4", 2);
+
+    assertTrue(result.isAllowed());
+    assertEquals(5, result.getLimit());
+    assertEquals(3, result.getRemaining());
+    ArgumentCaptor<List<Object>> keys = ArgumentCaptor.forClass(List.class);
+    ArgumentCaptor<Object> args = ArgumentCaptor.forClass(Object.class);
+    verify(script, times(1)).eval(eq(RScript.Mode.READ_WRITE), eq(SlidingWindowClientRateLimiter.SCRIPT),
+        eq(RScript.ReturnType.MULTI), keys.capture(), args.capture());
+    assertEquals(List.of("rl:{1.2.3.4}:1:125", "rl:{1.2.3.4}:1:124", "rl:{1.2.3.4}:60:2", "rl:{1.2.3.4}:60:1"),
+        keys.getValue());
+    assertEquals(List.of("125500", "2", "1000", "5", "60000", "50"), args.getAllValues());
+  }
+
+  @Test
+  public void testRateLimiter_shouldSkipWindowsWithoutLimit() {
+    config.setMaxPerMinute(0);
+    when(script.eval(any(), anyString(), any(), anyList(), any())).thenReturn(List.of(0L, 5L, -1L, 400L));
+    var rateLimiter = new SlidingWindowClientRateLimiter(redissonClient, config, new SimpleMeterRegistry(), () -> 125_500L);
+
+    var result = rateLimiter.tryAcquire("1.2.3.4", 1);
+
+    assertFalse(result.isAllowed());
+    assertEquals(0, result.getRemaining());
+    assertEquals(400, result.getRetryAfterMillis());
+    verify(script).eval(any(), anyString(), any(), eq(List.of("rl:{1.2.3.4}:1:125", "rl:{1.2.3.4}:1:124")),
+        eq("125500"), eq("1"), eq("1000"), eq("5"));
+  }
+}
@@ -0,0 +1,98 @@
+package com.nikolaynikolov.primenumberapi.service;
+
+import com.nikolaynikolov.primenumberapi.configuration.UserCacheConfig;
+import com.nikolaynikolov.primenumberapi.model.User;
+import com.nikolaynikolov.primenumberapi.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class UserServiceImplTests {
+
+  private final UserRepository userRepository = mock(UserRepository.class);
+  private final CacheService cacheService = mock(CacheService.class);
+  private final UserServiceImpl userService =
+      new UserServiceImpl(userRepository, cacheService, new UserCacheConfig(), new SimpleMeterRegistry());
+
+  @Test
+  public void testGetUserByKey_shouldServeRepeatedLookupsFromMemory() {
+    when(userRepository.findFirstByKey("key")).thenReturn(Optional.of(user("key")));
+
+    for (int i = 0; i < 10; i++) {
+      assertEquals("key", userService.getUserByKey("key").orElseThrow().getKey());
+    }
+    assertTrue(userService.getUserByKey("unknown").isEmpty());
+    assertTrue(userService.getUserByKey("unknown").isEmpty());
+
+    verify(cacheService, times(1)).getUser("key");
+    verify(cacheService, times(1)).setUser(eq("key"), any());
+    verify(userRepository, times(1)).findFirstByKey("key");
+    verify(userRepository, times(1)).findFirstByKey("unknown");
+  }
+
+  @Test
+  public void testGetUserByKey_shouldCoalesceConcurrentMisses() throws Exception {
+    var loading = new CountDownLatch(1);
+    var release = new CountDownLatch(1);
+    when(userRepository.findFirstByKey("key")).thenAnswer(invocation -> {
+      loading.countDown();
+      release.await();
+      return Optional.of(user("key"));
+    });
+
+    List<CompletableFuture<Optional<User>>> lookups = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      lookups.add(CompletableFuture.supplyAsync(() -> userService.getUserByKey("key")));
+    }
+    assertTrue(loading.await(5, TimeUnit.SECONDS));
+    Thread.sleep(100);
+    release.countDown();
+
+    for (var lookup : lookups) {
+      assertTrue(lookup.get(5, TimeUnit.SECONDS).isPresent());
+    }
+    verify(userRepository, times(1)).findFirstByKey("key");
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testInvalidation_shouldDropTheUserFromMemory() {
+    ArgumentCaptor<Consumer<String>> listener = ArgumentCaptor.forClass(Consumer.class);
+    when(cacheService.addUserInvalidationListener(listener.capture())).thenReturn(7);
+    when(userRepository.findFirstByKey("key")).thenReturn(Optional.of(user("key")));
+    userService.subscribe();
+
+    userService.getUserByKey("key");
+    // published by another instance
+    listener.getValue().accept("key");
+    userService.getUserByKey("key");
+    verify(userRepository, times(2)).findFirstByKey("key");
+
+    userService.invalidateUser("key");
+    verify(cacheService).invalidateUser("key");
+    userService.getUserByKey("key");
+    verify(userRepository, times(3)).findFirstByKey("key");
+
+    userService.unsubscribe();
+    verify(cacheService).removeUserInvalidationListener(7);
+  }
+
+  private static User user(String key) {
+    var user = new User();
+    user.setKey(key);
+    user.setName("John");
+    return user;
+  }
+}